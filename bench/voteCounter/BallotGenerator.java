@@ -0,0 +1,167 @@
+package voteCounter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates synthetic contests for the benchmarks, writing a candidate file and a vote file in the formats the
+ * README documents.<br>
+ * <br>
+ * Each ballot ranks a random number of distinct candidates up to the ranking depth, drawn by popularity so that a few
+ * candidates lead and the rest trail. A share of the ballots, set by the duplication rate, copy the rankings of an
+ * earlier ballot exactly. The tie density is the share of candidates that are given exactly the same popularity,
+ * which makes close and tied rounds among them more likely.
+ */
+public class BallotGenerator {
+
+	//The number of distinct rankings kept for duplicate ballots to copy
+	private static final int DUPLICATE_POOL_SIZE = 4096;
+
+	private int ballots;
+	private int candidates;
+	private int depth;
+	private double duplication;
+	private double tieDensity;
+	private long seed;
+
+	/**
+	 * @param ballots - int - the number of ballots to generate
+	 * @param candidates - int - the number of candidates
+	 * @param depth - int - the most candidates a ballot ranks
+	 * @param duplication - double - the share of ballots, from 0 to 1, that copy an earlier ballot
+	 * @param tieDensity - double - the share of candidates, from 0 to 1, that share one popularity
+	 * @param seed - long - the random seed, so a contest can be generated again
+	 */
+	public BallotGenerator(int ballots, int candidates, int depth, double duplication, double tieDensity, long seed) {
+		this.ballots = ballots;
+		this.candidates = candidates;
+		this.depth = Math.min(depth, candidates);
+		this.duplication = duplication;
+		this.tieDensity = tieDensity;
+		this.seed = seed;
+	}
+
+	/**
+	 * Get the generated name of a candidate
+	 *
+	 * @param candidate - int - the index of the candidate
+	 * @return String - the candidate name
+	 */
+	public static String candidateName(int candidate) {
+		return "Candidate " + candidate;
+	}
+
+	/**
+	 * Write the candidate file, one candidate per line
+	 *
+	 * @param file - Path - the file to write
+	 * @throws IOException if the file could not be written
+	 */
+	public void writeCandidates(Path file) throws IOException {
+		try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			for(int candidate=0; candidate<candidates; candidate++) {
+				writer.write(candidateName(candidate));
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * Write the vote file, with a header line followed by one ballot per line
+	 *
+	 * @param file - Path - the file to write
+	 * @throws IOException if the file could not be written
+	 */
+	public void writeVotes(Path file) throws IOException {
+		Random random = new Random(seed);
+		double[] popularity = popularity(random);
+		int[][] pool = new int[DUPLICATE_POOL_SIZE][];
+		int pooled = 0;
+		int[] ranking = new int[depth];
+		boolean[] used = new boolean[candidates];
+
+		try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("voter,choice1,choice2,choice3");
+			writer.newLine();
+
+			for(int ballot=0; ballot<ballots; ballot++) {
+				int[] choices;
+
+				if(pooled > 0 && random.nextDouble() < duplication) {
+					choices = pool[random.nextInt(pooled)];
+				} else {
+					int length = 1 + random.nextInt(depth);
+
+					for(int i=0; i<length; i++) {
+						int choice = draw(random, popularity, used);
+						used[choice] = true;
+						ranking[i] = choice;
+					}
+					for(int i=0; i<length; i++) {
+						used[ranking[i]] = false;
+					}
+
+					choices = Arrays.copyOf(ranking, length);
+					if(pooled < DUPLICATE_POOL_SIZE) {
+						pool[pooled++] = choices;
+					} else {
+						pool[random.nextInt(DUPLICATE_POOL_SIZE)] = choices;
+					}
+				}
+
+				writer.write("voter" + ballot);
+				for(int choice : choices) {
+					writer.write(',');
+					writer.write(candidateName(choice));
+				}
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * Give each candidate a popularity, with the tied share of candidates all given the same one
+	 */
+	private double[] popularity(Random random) {
+		double[] popularity = new double[candidates];
+		int tied = (int) Math.round(candidates * tieDensity);
+		double shared = 0.5 + random.nextDouble();
+
+		for(int candidate=0; candidate<candidates; candidate++) {
+			popularity[candidate] = candidate < tied ? shared : 0.1 + 2.0 * random.nextDouble();
+		}
+
+		return popularity;
+	}
+
+	/**
+	 * Draw a candidate not yet used on the ballot, weighted by popularity
+	 */
+	private int draw(Random random, double[] popularity, boolean[] used) {
+		double total = 0;
+		for(int candidate=0; candidate<candidates; candidate++) {
+			if(!used[candidate]) {
+				total += popularity[candidate];
+			}
+		}
+
+		double target = random.nextDouble() * total;
+		int last = -1;
+		for(int candidate=0; candidate<candidates; candidate++) {
+			if(!used[candidate]) {
+				last = candidate;
+				target -= popularity[candidate];
+				if(target < 0) {
+					return candidate;
+				}
+			}
+		}
+
+		return last;
+	}
+}
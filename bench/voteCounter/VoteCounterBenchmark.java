@@ -0,0 +1,208 @@
+package voteCounter;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmarks the stages of a count on a synthetic contest from {@link BallotGenerator}: reading the vote file, a full
+ * tabulation, a single round of redistribution and a tie break. Each benchmark runs a number of untimed warmup
+ * operations and then timed ones, and reports throughput along with the bytes allocated per operation and the
+ * allocation rate.<br>
+ * <br>
+ * Allocation is measured on the benchmark thread only, so it leaves out the worker threads used with --threads.<br>
+ * <br>
+ * Options, each written as --name=value:<br>
+ * 	ballots - the number of ballots. Default 1000000<br>
+ * 	candidates - the number of candidates. Default 20<br>
+ * 	depth - the most candidates a ballot ranks. Default 6<br>
+ * 	duplication - the share of ballots that copy an earlier ballot. Default 0.5<br>
+ * 	ties - the share of candidates with identical popularity. Default 0.2<br>
+ * 	winners - the number of winners counted for. Default 3<br>
+ * 	tie-size - the number of candidates in the benchmarked tie break. Default 5<br>
+ * 	threads - the threads used to read and tally. Default 1<br>
+ * 	warmup - the untimed operations per benchmark. Default 3<br>
+ * 	iterations - the timed operations per benchmark. Default 10<br>
+ * 	seed - the random seed of the contest. Default 1
+ */
+public class VoteCounterBenchmark {
+
+	private static int warmup = 3;
+	private static int iterations = 10;
+
+	/**
+	 * An operation to benchmark, with untimed setup run before each operation
+	 */
+	private interface Benchmark {
+		void setup() throws Exception;
+		void run() throws Exception;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int ballots = 1000000;
+		int candidateCount = 20;
+		int depth = 6;
+		double duplication = 0.5;
+		double ties = 0.2;
+		int winners = 3;
+		int tieSize = 5;
+		int threads = 1;
+		long seed = 1;
+
+		for(String arg : args) {
+			String[] option = arg.replaceFirst("^--", "").split("=", 2);
+			if(option.length != 2) {
+				System.out.println("Options must be written as --name=value: " + arg);
+				return;
+			}
+
+			switch(option[0]) {
+			case "ballots": ballots = Integer.parseInt(option[1]); break;
+			case "candidates": candidateCount = Integer.parseInt(option[1]); break;
+			case "depth": depth = Integer.parseInt(option[1]); break;
+			case "duplication": duplication = Double.parseDouble(option[1]); break;
+			case "ties": ties = Double.parseDouble(option[1]); break;
+			case "winners": winners = Integer.parseInt(option[1]); break;
+			case "tie-size": tieSize = Integer.parseInt(option[1]); break;
+			case "threads": threads = Integer.parseInt(option[1]); break;
+			case "warmup": warmup = Integer.parseInt(option[1]); break;
+			case "iterations": iterations = Integer.parseInt(option[1]); break;
+			case "seed": seed = Long.parseLong(option[1]); break;
+			default:
+				System.out.println("Unknown option: " + arg);
+				return;
+			}
+		}
+
+		//generate the contest
+		Path directory = Files.createTempDirectory("voteCounterBenchmark");
+		Path candidateFile = directory.resolve("candidates.txt");
+		Path voteFile = directory.resolve("votes.txt");
+		BallotGenerator generator = new BallotGenerator(ballots, candidateCount, depth, duplication, ties, seed);
+		generator.writeCandidates(candidateFile);
+		generator.writeVotes(voteFile);
+
+		System.out.println("Contest: " + ballots + " ballots, " + candidateCount + " candidates, depth " + depth
+				+ ", duplication " + duplication + ", ties " + ties + ", " + Files.size(voteFile) + " bytes");
+
+		try {
+			int readThreads = threads;
+			Contest contest = Contest.read(candidateFile.toString(), voteFile.toString(), false, readThreads);
+			int registered = contest.getCandidates().size();
+			Tabulator tabulator = new Tabulator(contest, Math.min(winners, candidateCount));
+			if(threads > 1) {
+				tabulator.setTallyPool(new ForkJoinPool(threads));
+			}
+
+			System.out.println("Ballot groups: " + contest.getBallots().size());
+			System.out.println();
+			System.out.println(String.format("%-20s %14s %12s %14s %12s", "Benchmark", "ops/s", "ms/op", "bytes/op", "MB/s alloc"));
+
+			measure("ingest", new Benchmark() {
+				public void setup() {
+				}
+
+				public void run() throws Exception {
+					Contest.readVotes(voteFile.toString(), contest.getCandidates(), false, readThreads);
+				}
+			});
+
+			measure("tabulation", new Benchmark() {
+				public void setup() {
+				}
+
+				public void run() {
+					tabulator.run();
+				}
+			});
+
+			int[] lowest = new int[1];
+			measure("round", new Benchmark() {
+				public void setup() {
+					tabulator.start();
+
+					//redistribute the candidate that the first round would eliminate
+					lowest[0] = 0;
+					for(int candidate=1; candidate<registered; candidate++) {
+						if(tabulator.compareVoteCounts(candidate, lowest[0]) < 0) {
+							lowest[0] = candidate;
+						}
+					}
+				}
+
+				public void run() {
+					tabulator.redistributeVotes(lowest[0], 1.0, FixedPoint.ONE);
+				}
+			});
+
+			ArrayList<Integer> tied = new ArrayList<>();
+			Random random = new Random(seed);
+			while(tied.size() < Math.min(tieSize, candidateCount)) {
+				int candidate = random.nextInt(candidateCount);
+				if(!tied.contains(candidate)) {
+					tied.add(candidate);
+				}
+			}
+			int[] tiedIds = tied.stream().mapToInt(Integer::intValue).toArray();
+
+			measure("tieBreak", new Benchmark() {
+				public void setup() {
+				}
+
+				public void run() {
+					tabulator.condorcetTieBreak(tied);
+				}
+			});
+
+			measure("tieBreakUncached", new Benchmark() {
+				public void setup() {
+				}
+
+				public void run() {
+					PairwiseMatrix.count(contest.getBallots(), tiedIds, registered);
+				}
+			});
+		} finally {
+			Files.deleteIfExists(candidateFile);
+			Files.deleteIfExists(voteFile);
+			Files.deleteIfExists(directory);
+		}
+	}
+
+	/**
+	 * Run a benchmark and print its results
+	 *
+	 * @param name - String - the name to report the benchmark under
+	 * @param benchmark - Benchmark - the operation to measure
+	 * @throws Exception if the operation fails
+	 */
+	private static void measure(String name, Benchmark benchmark) throws Exception {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+
+		for(int i=0; i<warmup; i++) {
+			benchmark.setup();
+			benchmark.run();
+		}
+
+		long elapsed = 0;
+		long allocated = 0;
+
+		for(int i=0; i<iterations; i++) {
+			benchmark.setup();
+
+			long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+			long start = System.nanoTime();
+			benchmark.run();
+			elapsed += System.nanoTime() - start;
+			allocated += threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+		}
+
+		double seconds = elapsed / 1e9;
+		System.out.println(String.format("%-20s %14.2f %12.3f %14d %12.1f", name, iterations / seconds,
+				seconds * 1000 / iterations, allocated / iterations, allocated / seconds / (1 << 20)));
+	}
+}
@@ -1,2 +1,6 @@
 module voteCounter {
-}
\ No newline at end of file
+	//thread allocation counters for the benchmarks and the count metrics
+	requires jdk.management;
+	//the count metrics are read through their MBean interface
+	exports voteCounter to java.management;
+}
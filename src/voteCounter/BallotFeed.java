@@ -0,0 +1,148 @@
+package voteCounter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Reads the ballots that have arrived since it was last polled, either from a vote file that is only ever appended
+ * to or from a directory that vote files are added to.<br>
+ * <br>
+ * An append-only file is read up to its last complete line, so a row that is still being written is left for the
+ * next poll. A directory is read one whole vote file at a time, in name order, and each file is only read once, so
+ * files should be moved into the directory once they are complete rather than written in place.
+ */
+public class BallotFeed {
+
+	//The size of the window searched backwards for the last complete line
+	private static final int TAIL_WINDOW_SIZE = 1 << 16;
+
+	//The file or directory read
+	private Path source;
+	//The registered candidates
+	private CandidateRegistry candidates;
+	//The offset in the append-only file up to which ballots have been read
+	private long offset = 0;
+	//The number of lines of the append-only file read so far
+	private int lineCount = 0;
+	//The files of the directory read so far
+	private HashSet<Path> readFiles = new HashSet<>();
+
+	/**
+	 * @param source - Path - an append-only vote file, or a directory of vote files
+	 * @param candidates - CandidateRegistry - the registered candidates
+	 */
+	public BallotFeed(Path source, CandidateRegistry candidates) {
+		this.source = source;
+		this.candidates = candidates;
+	}
+
+	/**
+	 * Read every ballot that has arrived since the last poll
+	 *
+	 * @param errors - {@code ArrayList<String>} - receives a description of each malformed row
+	 * @return BallotStore - the ballots that arrived, which is empty if none did. Only complete if no errors were added
+	 * @throws IOException if the source could not be read
+	 */
+	public BallotStore poll(ArrayList<String> errors) throws IOException {
+		if(Files.isDirectory(source)) {
+			return pollDirectory(errors);
+		}
+
+		return pollFile(errors);
+	}
+
+	/**
+	 * Read the complete lines appended to the vote file since the last poll
+	 */
+	private BallotStore pollFile(ArrayList<String> errors) throws IOException {
+		BallotStore ballots = new BallotStore();
+
+		try(FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+			long end = lastLineEnd(channel, offset);
+			if(end <= offset) {
+				return ballots;
+			}
+
+			VoteFileParser parser = new VoteFileParser(candidates, ballots);
+			parser.parse(channel, offset, end, offset == 0);
+			errors.addAll(parser.getErrors(lineCount + 1));
+
+			lineCount += parser.getLineCount();
+			offset = end;
+		} catch (NoSuchFileException e) {
+			//the file has not been created yet, so nothing has arrived
+		}
+
+		return ballots;
+	}
+
+	/**
+	 * Read every vote file added to the directory since the last poll, in name order
+	 */
+	private BallotStore pollDirectory(ArrayList<String> errors) throws IOException {
+		BallotStore ballots = new BallotStore();
+		List<Path> added = new ArrayList<>();
+
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(source)) {
+			for(Path file : files) {
+				if(Files.isRegularFile(file) && !file.getFileName().toString().startsWith(".") && !readFiles.contains(file)) {
+					added.add(file);
+				}
+			}
+		}
+		Collections.sort(added);
+
+		for(Path file : added) {
+			try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				ArrayList<String> fileErrors = new ArrayList<>();
+				ballots.addAll(VoteFileParser.parseFile(channel, candidates, false, 1, fileErrors));
+
+				for(String error : fileErrors) {
+					errors.add(file.getFileName() + ": " + error);
+				}
+			}
+			readFiles.add(file);
+		}
+
+		return ballots;
+	}
+
+	/**
+	 * Find the end of the last complete line of a file
+	 *
+	 * @return long - the offset just past the last newline at or after start, or start if there is none
+	 */
+	private static long lastLineEnd(FileChannel channel, long start) throws IOException {
+		ByteBuffer window = ByteBuffer.allocate(TAIL_WINDOW_SIZE);
+		long end = channel.size();
+
+		while(end > start) {
+			long windowStart = Math.max(start, end - TAIL_WINDOW_SIZE);
+			window.clear();
+			window.limit((int) (end - windowStart));
+			while(window.hasRemaining() && channel.read(window, windowStart + window.position()) != -1) {
+				//keep reading until the window is full
+			}
+
+			for(int i=window.position()-1; i>=0; i--) {
+				if(window.get(i) == '\n') {
+					return windowStart + i + 1;
+				}
+			}
+
+			end = windowStart;
+		}
+
+		return start;
+	}
+}
@@ -0,0 +1,47 @@
+package voteCounter;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A share of a contest's ballots, such as the ballots of some precincts, counted where they are held. A
+ * {@link Tabulator} given shards decides every round from their merged tallies and tells each shard which
+ * candidates' ballots to transfer, so the ballots never need to be held in one place.<br>
+ * <br>
+ * {@link LocalShard} holds its ballots in this process, and {@link RemoteShard} talks to a {@link ShardWorker} in
+ * another process, on this host or another.
+ */
+public interface BallotShard extends Closeable {
+
+	/**
+	 * Return every ballot to its first choice with full weight and count them
+	 *
+	 * @param fixedPoint - boolean - true to count in fixed-point, false to count in double precision
+	 * @return ShardTally - the tally of the shard's ballots
+	 * @throws IOException if the shard could not be reached or could not count its ballots
+	 */
+	ShardTally start(boolean fixedPoint) throws IOException;
+
+	/**
+	 * Transfer every ballot counting for some candidates to its next choice that is still in the running, as in
+	 * {@link Tabulator#transferVotes(java.util.List, double[], long[])}
+	 *
+	 * @param from - int[] - the ids of the candidates to transfer from, in the order they are tallied
+	 * @param redistributeAmounts - double[] - the weight each candidate's ballots are transferred with, by candidate id,
+	 * 		when counting in double precision, or null to transfer them with a weight of 1.0
+	 * @param fixedRedistributeAmounts - long[] - the fixed-point weight each candidate's ballots are transferred with,
+	 * 		by candidate id, when counting in fixed-point, or null to transfer them with a weight of 1.0
+	 * @return ShardTally - the tally of the shard's ballots after the transfer
+	 * @throws IOException if the shard could not be reached
+	 */
+	ShardTally transfer(int[] from, double[] redistributeAmounts, long[] fixedRedistributeAmounts) throws IOException;
+
+	/**
+	 * Count the head to head results and points of a set of candidates over the shard's ballots, for a tie break
+	 *
+	 * @param ids - int[] - the ids of the candidates. Matrix index i refers to ids[i]
+	 * @return PairwiseMatrix - the counts
+	 * @throws IOException if the shard could not be reached
+	 */
+	PairwiseMatrix countPairwise(int[] ids) throws IOException;
+}
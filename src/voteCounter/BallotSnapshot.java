@@ -0,0 +1,235 @@
+package voteCounter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Saves the ballots of a contest to a compact binary file, and loads them again by memory-mapping it, so a recount
+ * starts without reading the vote file again.<br>
+ * <br>
+ * The file is little-endian and laid out as:<br>
+ * 	header - {@code HEADER_SIZE} bytes: the magic number, the format version, the CRC-32 of everything after the
+ * 		header, the number of candidates, ballot groups and ballots, the number of rankings and the length of the
+ * 		candidate table<br>
+ * 	candidate table - each candidate name in id order, as its UTF-8 length followed by its bytes, padded to a
+ * 		multiple of 8 bytes<br>
+ * 	counts - the number of ballots in each group, as ints<br>
+ * 	offsets - the index at which each group's rankings start, as ints, with one more marking the end of the last
+ * 		group<br>
+ * 	rankings - the rankings of every group back to back, as short candidate ids<br>
+ * <br>
+ * The counts, offsets and rankings are mapped and read in place by {@link MappedBallots}. Voter names are not saved.
+ * The counts and the offsets are each mapped whole, and a single mapping holds at most 2GB, so a snapshot holds at
+ * most {@code MAX_GROUPS} ballot groups. The rankings are mapped in windows, so are only limited by the int offsets.
+ */
+public class BallotSnapshot {
+
+	//The first 4 bytes of every snapshot, "RCVB"
+	static final int MAGIC = 0x52435642;
+	//The version of the layout written, increased whenever the layout changes
+	static final int VERSION = 1;
+	//The size of the header in bytes
+	static final int HEADER_SIZE = 40;
+	//The size of the buffer used to write each section
+	private static final int WRITE_BUFFER_SIZE = 1 << 20;
+	//The most ballot groups a snapshot can hold, so its offsets fit in one mapping
+	static final int MAX_GROUPS = Integer.MAX_VALUE / 4 - 1;
+
+	/**
+	 * Write the candidates and ballots of a contest to a snapshot file, replacing the file if it exists
+	 *
+	 * @param file - Path - the file to write
+	 * @param candidates - CandidateRegistry - the registered candidates
+	 * @param ballots - BallotSource - the ballots
+	 * @throws IOException if the file could not be written, or the ballots are too many to save
+	 */
+	public static void write(Path file, CandidateRegistry candidates, BallotSource ballots) throws IOException {
+		if(ballots.size() > MAX_GROUPS) {
+			throw new IOException("The ballots hold too many ballot groups to save in a snapshot.");
+		}
+
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			CRC32 checksum = new CRC32();
+			channel.position(HEADER_SIZE);
+
+			//the candidate table
+			int namesLength = 0;
+			for(int candidate=0; candidate<candidates.size(); candidate++) {
+				byte[] name = candidates.getName(candidate).getBytes(StandardCharsets.UTF_8);
+				if(name.length + 4 > buffer.remaining()) {
+					flush(channel, buffer, checksum);
+				}
+				if(name.length + 4 > buffer.capacity()) {
+					throw new IOException("A candidate name is too long to save in a snapshot.");
+				}
+
+				buffer.putInt(name.length);
+				buffer.put(name);
+				namesLength += name.length + 4;
+			}
+			while(namesLength % 8 != 0) {
+				if(!buffer.hasRemaining()) {
+					flush(channel, buffer, checksum);
+				}
+				buffer.put((byte) 0);
+				namesLength++;
+			}
+
+			//the counts, offsets and rankings
+			for(int group=0; group<ballots.size(); group++) {
+				if(buffer.remaining() < 4) {
+					flush(channel, buffer, checksum);
+				}
+				buffer.putInt(ballots.count(group));
+			}
+
+			long rankingCount = 0;
+			for(int group=0; group<=ballots.size(); group++) {
+				if(buffer.remaining() < 4) {
+					flush(channel, buffer, checksum);
+				}
+				buffer.putInt((int) rankingCount);
+
+				if(group < ballots.size()) {
+					rankingCount += ballots.length(group);
+					if(rankingCount > Integer.MAX_VALUE) {
+						throw new IOException("The ballots hold too many rankings to save in a snapshot.");
+					}
+				}
+			}
+
+			for(int group=0; group<ballots.size(); group++) {
+				for(int position=0; position<ballots.length(group); position++) {
+					if(buffer.remaining() < 2) {
+						flush(channel, buffer, checksum);
+					}
+					buffer.putShort((short) ballots.choice(group, position));
+				}
+			}
+			flush(channel, buffer, checksum);
+
+			//the header is written last, once the checksum is known
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt((int) checksum.getValue());
+			buffer.putInt(candidates.size());
+			buffer.putInt(ballots.size());
+			buffer.putInt(ballots.ballotCount());
+			buffer.putLong(rankingCount);
+			buffer.putInt(namesLength);
+			buffer.putInt(0);
+			buffer.flip();
+			channel.position(0);
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Load a contest from a snapshot file. The file is checked against its checksum, and its ballots are read in place
+	 * from the mapped file
+	 *
+	 * @param file - Path - the snapshot file
+	 * @return Contest - the contest
+	 * @throws IOException if the file could not be read, is not a snapshot, has an unsupported version or is corrupt
+	 */
+	public static Contest read(Path file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			while(header.hasRemaining() && channel.read(header) != -1) {
+				//keep reading until the header is full or the file ends
+			}
+			header.flip();
+
+			if(header.remaining() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+				throw new IOException("The file is not a ballot snapshot.");
+			}
+			if(header.getInt(4) != VERSION) {
+				throw new IOException("The ballot snapshot has version " + header.getInt(4) + ", but only version " + VERSION + " can be read.");
+			}
+
+			int expectedChecksum = header.getInt(8);
+			int candidateCount = header.getInt(12);
+			int groupCount = header.getInt(16);
+			int ballotCount = header.getInt(20);
+			long rankingCount = header.getLong(24);
+			int namesLength = header.getInt(32);
+
+			if(candidateCount < 0 || groupCount < 0 || groupCount > MAX_GROUPS || rankingCount < 0 || rankingCount > Integer.MAX_VALUE || namesLength < 0) {
+				throw new IOException("The ballot snapshot is corrupt: its header is invalid.");
+			}
+
+			long countsStart = HEADER_SIZE + (long) namesLength;
+			long offsetsStart = countsStart + 4L*groupCount;
+			long rankingsStart = offsetsStart + 4L*(groupCount+1);
+			long end = rankingsStart + 2L*rankingCount;
+			if(channel.size() != end) {
+				throw new IOException("The ballot snapshot is corrupt: it should be " + end + " bytes but is " + channel.size() + ".");
+			}
+
+			MappedByteBuffer names = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, namesLength);
+			MappedByteBuffer counts = channel.map(FileChannel.MapMode.READ_ONLY, countsStart, offsetsStart - countsStart);
+			MappedByteBuffer offsets = channel.map(FileChannel.MapMode.READ_ONLY, offsetsStart, rankingsStart - offsetsStart);
+
+			CRC32 checksum = new CRC32();
+			checksum.update(names.duplicate());
+			checksum.update(counts.duplicate());
+			checksum.update(offsets.duplicate());
+
+			//a single mapping holds at most 2GB, so the rankings are mapped in windows
+			ShortBuffer[] rankings = new ShortBuffer[(int) ((rankingCount + MappedBallots.WINDOW_SIZE - 1) / MappedBallots.WINDOW_SIZE)];
+			for(int window=0; window<rankings.length; window++) {
+				long first = (long) window * MappedBallots.WINDOW_SIZE;
+				long length = Math.min(MappedBallots.WINDOW_SIZE, rankingCount - first);
+				MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, rankingsStart + 2*first, 2*length);
+
+				checksum.update(mapped.duplicate());
+				rankings[window] = mapped.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+			}
+			if((int) checksum.getValue() != expectedChecksum) {
+				throw new IOException("The ballot snapshot is corrupt: its checksum does not match.");
+			}
+
+			//the candidate table
+			CandidateRegistry candidates = new CandidateRegistry();
+			names.order(ByteOrder.LITTLE_ENDIAN);
+			for(int candidate=0; candidate<candidateCount; candidate++) {
+				byte[] name = new byte[names.getInt()];
+				names.get(name);
+
+				if(candidates.add(new String(name, StandardCharsets.UTF_8)) != candidate) {
+					throw new IOException("The ballot snapshot is corrupt: its candidate table is invalid.");
+				}
+			}
+
+			return new Contest(candidates, new MappedBallots(
+					counts.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer(),
+					offsets.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer(),
+					rankings,
+					ballotCount));
+		}
+	}
+
+	/**
+	 * Write out the contents of the buffer, adding them to the checksum, and clear it for reuse
+	 */
+	private static void flush(FileChannel channel, ByteBuffer buffer, CRC32 checksum) throws IOException {
+		buffer.flip();
+		checksum.update(buffer.duplicate());
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
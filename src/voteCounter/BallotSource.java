@@ -0,0 +1,48 @@
+package voteCounter;
+
+/**
+ * Read access to the ballots of a contest, grouped by identical rankings. Everything that counts ballots reads them
+ * through this interface, so the rankings can be held in a {@link BallotStore} on the heap or read in place from a
+ * memory-mapped {@link BallotSnapshot}.
+ */
+public interface BallotSource {
+
+	/**
+	 * Getter for the number of ballot groups
+	 *
+	 * @return int - the number of groups
+	 */
+	int size();
+
+	/**
+	 * Getter for the total number of ballots
+	 *
+	 * @return int - the number of ballots, over all groups
+	 */
+	int ballotCount();
+
+	/**
+	 * Getter for the number of ballots in a group
+	 *
+	 * @param ballot - int - the index of the group
+	 * @return int - the number of ballots with the group's rankings
+	 */
+	int count(int ballot);
+
+	/**
+	 * Getter for the number of rankings on a ballot group
+	 *
+	 * @param ballot - int - the index of the group
+	 * @return int - the number of rankings
+	 */
+	int length(int ballot);
+
+	/**
+	 * Retrieve a single ranking of a ballot group
+	 *
+	 * @param ballot - int - the index of the group
+	 * @param position - int - the ranking position, with 0 being the first choice
+	 * @return int - the candidate id at that position
+	 */
+	int choice(int ballot, int position);
+}
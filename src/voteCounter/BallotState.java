@@ -0,0 +1,389 @@
+package voteCounter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The state of every ballot group being counted, held in parallel primitive arrays rather than an object per group.
+ * The rankings themselves live in a {@link BallotSource} and are never altered, so only the group, the position of
+ * its current choice and its weight are kept here, indexed by the vote's position. Every ballot in a group always
+ * counts for the same candidate with the same weight.<br>
+ * <br>
+ * Only the weights of the arithmetic being counted with are held. A copy of the state, such as for a fork of the
+ * count or a checkpoint, shares the arrays of the state it was copied from, and each takes its own copy of them only
+ * when it is first altered, so copies that are never altered cost nothing.<br>
+ * <br>
+ * The arrays are on the heap. {@link OffHeapBallotState} holds the same state outside it, for contests too large for
+ * the heap, and {@link StateMemory#newBallotState(BallotSource, boolean)} creates whichever the count is set to use.
+ */
+public class BallotState {
+
+	//The store holding the rankings of the groups
+	private BallotSource store;
+	//The number of votes held
+	private int size = 0;
+	//The index in the store of each vote's ballot group
+	private int[] groups;
+	//The index of the rankings that each vote is currently being counted for
+	private int[] cursors;
+	//The weight of each ballot in each vote's group, when counting in double precision, otherwise null
+	private double[] weights;
+	//The weight of each ballot in each vote's group, when counting in fixed-point, otherwise null
+	private long[] fixedWeights;
+	//True while groups may be shared with a copy, so it must be copied before it is altered
+	private boolean groupsShared = false;
+	//True while cursors and the weights may be shared with a copy, so they must be copied before they are altered
+	private boolean choicesShared = false;
+
+	/**
+	 * Create the state of every group of a store, each at its first choice with full weight
+	 *
+	 * @param store - BallotSource - the ballots being counted
+	 * @param fixedPoint - boolean - true to hold fixed-point weights, false to hold double precision weights
+	 */
+	public BallotState(BallotSource store, boolean fixedPoint) {
+		this.store = store;
+		size = store.size();
+
+		groups = new int[Math.max(16, size)];
+		for(int i=0; i<size; i++) {
+			groups[i] = i;
+		}
+		cursors = new int[groups.length];
+
+		if(fixedPoint) {
+			fixedWeights = new long[groups.length];
+			Arrays.fill(fixedWeights, FixedPoint.ONE);
+		} else {
+			weights = new double[groups.length];
+			Arrays.fill(weights, 1.0);
+		}
+	}
+
+	/**
+	 * Create a state holding no arrays, for a subclass that holds the state elsewhere
+	 */
+	BallotState() {
+	}
+
+	/**
+	 * Create the state of a number of votes, each to be set as it is read
+	 */
+	private BallotState(BallotSource store, int size, boolean fixedPoint) {
+		this.store = store;
+		this.size = size;
+
+		groups = new int[Math.max(16, size)];
+		cursors = new int[groups.length];
+		if(fixedPoint) {
+			fixedWeights = new long[groups.length];
+		} else {
+			weights = new double[groups.length];
+		}
+	}
+
+	/**
+	 * Create a copy of another state, with every vote at the same choice and with the same weight. The arrays are
+	 * shared until either state is altered
+	 *
+	 * @param other - BallotState - the state to copy
+	 */
+	public BallotState(BallotState other) {
+		this.store = other.store;
+		this.size = other.size;
+		this.groups = other.groups;
+		this.cursors = other.cursors;
+		this.weights = other.weights;
+		this.fixedWeights = other.fixedWeights;
+		this.groupsShared = true;
+		this.choicesShared = true;
+		other.groupsShared = true;
+		other.choicesShared = true;
+	}
+
+	/**
+	 * Create a copy of this state, in the same memory, with every vote at the same choice and with the same weight.
+	 * The arrays are shared until either state is altered
+	 *
+	 * @return BallotState - the copy
+	 */
+	BallotState copy() {
+		return new BallotState(this);
+	}
+
+	/**
+	 * Give the memory of the state back for reuse, once the state will not be used again. The arrays of a state on
+	 * the heap are left to the garbage collector
+	 */
+	void release() {
+	}
+
+	/**
+	 * Take private copies of the cursors and weights if they may be shared with a copy of the state. Moving and
+	 * reweighting votes does not do this itself, since it is done from several threads at once, so this must be
+	 * called before they are. The groups are only copied when votes are added or removed
+	 *
+	 * @see #moveToNextChoice(int, BitSet)
+	 */
+	public void own() {
+		if(choicesShared) {
+			cursors = cursors.clone();
+			weights = weights == null ? null : weights.clone();
+			fixedWeights = fixedWeights == null ? null : fixedWeights.clone();
+			choicesShared = false;
+		}
+	}
+
+	/**
+	 * Take a private copy of the groups if they may be shared with a copy of the state
+	 */
+	private void ownGroups() {
+		if(groupsShared) {
+			groups = groups.clone();
+			groupsShared = false;
+		}
+	}
+
+	/**
+	 * Setter for the store, once it has grown to hold more groups. The groups already held must be unchanged in it
+	 *
+	 * @param store - BallotSource - the grown store
+	 */
+	public void setStore(BallotSource store) {
+		this.store = store;
+	}
+
+	/**
+	 * Add a vote for a ballot group, at its first choice with full weight
+	 *
+	 * @param group - int - the index of the group in the store
+	 * @return int - the index of the new vote
+	 */
+	public int add(int group) {
+		ownGroups();
+		own();
+		if(size == groups.length) {
+			groups = Arrays.copyOf(groups, size*2);
+			cursors = Arrays.copyOf(cursors, groups.length);
+			weights = weights == null ? null : Arrays.copyOf(weights, groups.length);
+			fixedWeights = fixedWeights == null ? null : Arrays.copyOf(fixedWeights, groups.length);
+		}
+
+		groups[size] = group;
+		cursors[size] = 0;
+		if(weights != null) {
+			weights[size] = 1.0;
+		} else {
+			fixedWeights[size] = FixedPoint.ONE;
+		}
+
+		return size++;
+	}
+
+	/**
+	 * Getter for the number of votes held
+	 *
+	 * @return int - the number of votes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get the ballot group of a vote
+	 *
+	 * @param vote - int - the index of the vote
+	 * @return int - the index of the group in the store
+	 */
+	public int getGroup(int vote) {
+		return groups[vote];
+	}
+
+	/**
+	 * Get the number of ballots a vote represents
+	 *
+	 * @param vote - int - the index of the vote
+	 * @return int - the number of ballots in the group
+	 */
+	public int getCount(int vote) {
+		return store.count(groups[vote]);
+	}
+
+	/**
+	 * Get the number of candidates ranked on a vote
+	 *
+	 * @param vote - int - the index of the vote
+	 * @return int - the number of rankings
+	 */
+	public int getChoiceCount(int vote) {
+		return store.length(groups[vote]);
+	}
+
+	/**
+	 * Get the candidate a vote is currently being counted for
+	 *
+	 * @param vote - int - the index of the vote
+	 * @return int - the id of the current choice
+	 */
+	public int getChoice(int vote) {
+		return store.choice(groups[vote], cursors[vote]);
+	}
+
+	/**
+	 * Moves the current choice of a vote to the next ranked candidate that is still in the running. Candidates that
+	 * were eliminated or have already won are skipped in place, so the rankings never need to be altered. The state
+	 * must not be sharing its arrays with a copy, see {@link #own()}.
+	 *
+	 * @param vote - int - the index of the vote
+	 * @param inactiveCandidates - BitSet - the ids of the candidates that can no longer receive votes
+	 * @return boolean - True if the current choice was moved, false if no eligible candidate remains on this vote.
+	 */
+	public boolean moveToNextChoice(int vote, BitSet inactiveCandidates) {
+		int group = groups[vote];
+		int length = store.length(group);
+
+		for(int i=cursors[vote]+1; i<length; i++) {
+			if(!inactiveCandidates.get(store.choice(group, i))) {
+				cursors[vote] = i;
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Get the weight of each ballot of a vote, when counting in double precision
+	 *
+	 * @param vote - int - the index of the vote
+	 * @return double - the weight
+	 */
+	public double getWeight(int vote) {
+		return weights[vote];
+	}
+
+	/**
+	 * Multiply the weight of a vote, when counting in double precision. The state must not be sharing its arrays with
+	 * a copy, see {@link #own()}
+	 *
+	 * @param vote - int - the index of the vote
+	 * @param value - double - the factor
+	 */
+	public void alterWeight(int vote, double value) {
+		weights[vote] *= value;
+	}
+
+	/**
+	 * Get the fixed-point weight of each ballot of a vote, when counting in fixed-point
+	 *
+	 * @param vote - int - the index of the vote
+	 * @return long - the fixed-point weight
+	 */
+	public long getFixedWeight(int vote) {
+		return fixedWeights[vote];
+	}
+
+	/**
+	 * Multiply the fixed-point weight of a vote by a fixed-point factor, truncating the result. The state must not be
+	 * sharing its arrays with a copy, see {@link #own()}
+	 *
+	 * @param vote - int - the index of the vote
+	 * @param value - long - the factor, at most {@code FixedPoint.ONE}
+	 */
+	public void alterFixedWeight(int vote, long value) {
+		fixedWeights[vote] = FixedPoint.multiply(fixedWeights[vote], value);
+	}
+
+	/**
+	 * Write the group, current choice and weight of every vote to a stream, such as for a {@link TabulationCheckpoint}
+	 *
+	 * @param output - DataOutputStream - the stream
+	 * @throws IOException if the state could not be written
+	 */
+	void write(DataOutputStream output) throws IOException {
+		output.writeInt(size);
+		output.writeBoolean(fixedWeights != null);
+
+		for(int i=0; i<size; i++) {
+			output.writeInt(groups[i]);
+			//a ballot may rank a candidate more than once, so its cursor can pass the range of candidate ids
+			output.writeInt(cursors[i]);
+			if(fixedWeights != null) {
+				output.writeLong(fixedWeights[i]);
+			} else {
+				output.writeDouble(weights[i]);
+			}
+		}
+	}
+
+	/**
+	 * Read a state written by {@link #write(DataOutputStream)}
+	 *
+	 * @param input - DataInputStream - the stream
+	 * @param store - BallotSource - the ballots the state was written for
+	 * @return BallotState - the state
+	 * @throws IOException if the state could not be read or does not fit the ballots
+	 */
+	static BallotState read(DataInputStream input, BallotSource store) throws IOException {
+		int size = input.readInt();
+		boolean fixedPoint = input.readBoolean();
+		if(size < 0 || size > store.size()) {
+			throw new IOException("The ballot state holds more votes than there are ballot groups.");
+		}
+
+		BallotState state = new BallotState(store, size, fixedPoint);
+		for(int i=0; i<size; i++) {
+			state.groups[i] = input.readInt();
+			state.cursors[i] = input.readInt();
+			if(state.groups[i] < 0 || state.groups[i] >= store.size() || state.cursors[i] < 0
+					|| (state.cursors[i] > 0 && state.cursors[i] >= store.length(state.groups[i]))) {
+				throw new IOException("The ballot state does not fit the ballots.");
+			}
+
+			if(fixedPoint) {
+				state.fixedWeights[i] = input.readLong();
+			} else {
+				state.weights[i] = input.readDouble();
+			}
+		}
+
+		return state;
+	}
+
+	/**
+	 * Remove votes, keeping the order of the votes that remain
+	 *
+	 * @param newIndexes - IntList - the new index of each vote, in the same order as the votes, or -1 to remove it
+	 * @param remaining - int - the number of votes that remain
+	 */
+	public void compact(IntList newIndexes, int remaining) {
+		ownGroups();
+		own();
+		for(int i=0; i<size; i++) {
+			int index = newIndexes.get(i);
+
+			if(index != -1) {
+				groups[index] = groups[i];
+				cursors[index] = cursors[i];
+				if(weights != null) {
+					weights[index] = weights[i];
+				} else {
+					fixedWeights[index] = fixedWeights[i];
+				}
+			}
+		}
+
+		size = remaining;
+
+		//release the memory of the removed votes once most of the arrays are unused
+		if(size*2 < groups.length && groups.length > 16) {
+			groups = Arrays.copyOf(groups, Math.max(16, size));
+			cursors = Arrays.copyOf(cursors, groups.length);
+			weights = weights == null ? null : Arrays.copyOf(weights, groups.length);
+			fixedWeights = fixedWeights == null ? null : Arrays.copyOf(fixedWeights, groups.length);
+		}
+	}
+}
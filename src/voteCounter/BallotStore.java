@@ -0,0 +1,303 @@
+package voteCounter;
+
+import java.util.Arrays;
+
+/**
+ * Compact storage for every ballot in a contest. Rankings are packed as candidate ids into one flat
+ * {@code short[]}, with each ranking addressed by an offset and a length, so a ballot costs a few bytes
+ * per ranking instead of a list of strings.<br>
+ * <br>
+ * Ballots with identical rankings always count identically, so they are collapsed into a single ballot group
+ * carrying the number of ballots it represents. Voter names are only kept, in a side table mapping each ballot
+ * in file order to its group, when the store is created for auditing.
+ */
+public class BallotStore implements BallotSource {
+
+	//The rankings of every ballot group, back to back, as candidate ids
+	private short[] rankings;
+	//The index in rankings at which each group starts
+	private int[] offsets;
+	//The number of rankings each group holds
+	private int[] lengths;
+	//The number of ballots in each group
+	private int[] counts;
+	//The hash of each group's rankings
+	private int[] hashes;
+	//Open addressing table of group index + 1, keyed by the hash of the rankings. 0 marks an empty slot
+	private int[] table;
+	//The number of ballot groups stored
+	private int size = 0;
+	//The number of rankings stored
+	private int rankingCount = 0;
+	//The number of ballots stored, over all groups
+	private int ballotCount = 0;
+	
+	//Whether the voter side table is kept
+	private boolean keepVoters;
+	//The name of the voter of each ballot, in the order they were added. Only kept for auditing
+	private String[] voters;
+	//The group of each ballot, in the order they were added. Only kept for auditing
+	private int[] voterGroups;
+
+	public BallotStore() {
+		this(false);
+	}
+
+	public BallotStore(boolean keepVoters) {
+		this.keepVoters = keepVoters;
+		
+		rankings = new short[1024];
+		offsets = new int[256];
+		lengths = new int[256];
+		counts = new int[256];
+		hashes = new int[256];
+		table = new int[512];
+		
+		if(keepVoters) {
+			voters = new String[256];
+			voterGroups = new int[256];
+		}
+	}
+
+	/**
+	 * Add a ballot to the store, adding it to the group with the same rankings if there is one
+	 *
+	 * @param voter - String - the name of the voter
+	 * @param choices - short[] - the ranked candidate ids, with index 0 being the first choice
+	 * @param length - int - the number of entries of choices to store
+	 * @return int - the index of the group the ballot was added to
+	 */
+	public int add(String voter, short[] choices, int length) {
+		int group = addGroup(choices, length, 1);
+		
+		if(keepVoters) {
+			if(ballotCount > voters.length) {
+				voters = Arrays.copyOf(voters, voters.length*2);
+				voterGroups = Arrays.copyOf(voterGroups, voterGroups.length*2);
+			}
+			
+			voters[ballotCount-1] = voter;
+			voterGroups[ballotCount-1] = group;
+		}
+		
+		return group;
+	}
+	
+	/**
+	 * Add a number of ballots with the same rankings to the store, without recording voters
+	 *
+	 * @param choices - short[] - the ranked candidate ids, with index 0 being the first choice
+	 * @param length - int - the number of entries of choices to store
+	 * @param count - int - the number of ballots with these rankings
+	 * @return int - the index of the group the ballots were added to
+	 */
+	public int addGroup(short[] choices, int length, int count) {
+		int hash = hash(choices, length);
+		int mask = table.length - 1;
+		int slot = hash & mask;
+		
+		//probe for a group with the same rankings
+		while(table[slot] != 0) {
+			int group = table[slot] - 1;
+			
+			if(hashes[group] == hash && sameRankings(group, choices, length)) {
+				counts[group] += count;
+				ballotCount += count;
+				return group;
+			}
+			
+			slot = (slot + 1) & mask;
+		}
+		
+		//no group matched, so start a new one
+		if(size == offsets.length) {
+			int newCapacity = size*2;
+			offsets = Arrays.copyOf(offsets, newCapacity);
+			lengths = Arrays.copyOf(lengths, newCapacity);
+			counts = Arrays.copyOf(counts, newCapacity);
+			hashes = Arrays.copyOf(hashes, newCapacity);
+		}
+
+		if(rankingCount + length > rankings.length) {
+			rankings = Arrays.copyOf(rankings, Math.max(rankings.length*2, rankingCount + length));
+		}
+
+		System.arraycopy(choices, 0, rankings, rankingCount, length);
+		offsets[size] = rankingCount;
+		lengths[size] = length;
+		counts[size] = count;
+		hashes[size] = hash;
+		table[slot] = size + 1;
+
+		rankingCount += length;
+		ballotCount += count;
+		size++;
+		
+		//keep the table at most half full
+		if(size*2 > table.length) {
+			rehash();
+		}
+		
+		return size - 1;
+	}
+
+	/**
+	 * Append every ballot of another store to this one, keeping their order and merging identical rankings
+	 *
+	 * @param other - BallotStore - the store to append
+	 */
+	public void addAll(BallotStore other) {
+		//map each group of the other store to the matching group of this store
+		int[] groupMap = new int[other.size];
+		short[] choices = new short[16];
+		
+		for(int group=0; group<other.size; group++) {
+			int length = other.lengths[group];
+			if(length > choices.length) {
+				choices = new short[length];
+			}
+			System.arraycopy(other.rankings, other.offsets[group], choices, 0, length);
+			
+			groupMap[group] = addGroup(choices, length, other.counts[group]);
+		}
+		
+		if(keepVoters) {
+			int first = ballotCount - other.ballotCount;
+			if(ballotCount > voters.length) {
+				voters = Arrays.copyOf(voters, Math.max(voters.length*2, ballotCount));
+				voterGroups = Arrays.copyOf(voterGroups, voters.length);
+			}
+			
+			for(int i=0; i<other.ballotCount; i++) {
+				voters[first+i] = other.voters[i];
+				voterGroups[first+i] = groupMap[other.voterGroups[i]];
+			}
+		}
+	}
+
+	/**
+	 * Getter for the number of ballot groups
+	 *
+	 * @return int - the number of groups stored
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Getter for the total number of ballots
+	 *
+	 * @return int - the number of ballots stored, over all groups
+	 */
+	public int ballotCount() {
+		return ballotCount;
+	}
+	
+	/**
+	 * Getter for the number of ballots in a group
+	 *
+	 * @param ballot - int - the index of the group
+	 * @return int - the number of ballots with the group's rankings
+	 */
+	public int count(int ballot) {
+		return counts[ballot];
+	}
+
+	/**
+	 * Getter for the number of rankings on a ballot group
+	 *
+	 * @param ballot - int - the index of the group
+	 * @return int - the number of rankings
+	 */
+	public int length(int ballot) {
+		return lengths[ballot];
+	}
+
+	/**
+	 * Retrieve a single ranking of a ballot group
+	 *
+	 * @param ballot - int - the index of the group
+	 * @param position - int - the ranking position, with 0 being the first choice
+	 * @return int - the candidate id at that position
+	 */
+	public int choice(int ballot, int position) {
+		return rankings[offsets[ballot] + position];
+	}
+
+	/**
+	 * Getter for whether voter names were kept
+	 *
+	 * @return boolean - true if the voter side table is available
+	 */
+	public boolean hasVoters() {
+		return keepVoters;
+	}
+	
+	/**
+	 * Getter for the voter of a ballot. Only available if the store keeps voters
+	 *
+	 * @param index - int - the position of the ballot in the order ballots were added
+	 * @return String - the voter name
+	 */
+	public String getVoter(int index) {
+		return voters[index];
+	}
+	
+	/**
+	 * Getter for the group a ballot was added to. Only available if the store keeps voters
+	 *
+	 * @param index - int - the position of the ballot in the order ballots were added
+	 * @return int - the index of the ballot's group
+	 */
+	public int getVoterGroup(int index) {
+		return voterGroups[index];
+	}
+	
+	/**
+	 * Check whether a group holds exactly the given rankings
+	 */
+	private boolean sameRankings(int group, short[] choices, int length) {
+		if(lengths[group] != length) {
+			return false;
+		}
+		
+		int start = offsets[group];
+		for(int i=0; i<length; i++) {
+			if(rankings[start+i] != choices[i]) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Double the size of the lookup table and reinsert every group
+	 */
+	private void rehash() {
+		table = new int[table.length*2];
+		int mask = table.length - 1;
+		
+		for(int group=0; group<size; group++) {
+			int slot = hashes[group] & mask;
+			while(table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = group + 1;
+		}
+	}
+	
+	/**
+	 * Hash a sequence of rankings, spreading the bits so that the low bits can index the table
+	 */
+	private static int hash(short[] choices, int length) {
+		int hash = length;
+		
+		for(int i=0; i<length; i++) {
+			hash = 31*hash + choices[i];
+		}
+		
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -0,0 +1,173 @@
+package voteCounter;
+
+/**
+ * One contest of a batch, as listed in a manifest, along with the outcome of counting it once {@link BatchRunner} has
+ * run: either the result and how long it took to read and count, or the reason it could not be counted.
+ */
+public class BatchContest {
+
+	//The line of the manifest that listed the contest
+	private int line;
+	//The name of the candidate file
+	private String candidateFileName;
+	//The name of the vote file
+	private String voteFileName;
+	//The number of candidates that can win
+	private int numberOfWinners;
+	//The size of the vote file in bytes, used to count the largest contests first
+	private long size;
+	//The result of the count, or null if it could not be counted
+	private TabulationResult result;
+	//The number of ballots read
+	private int ballotCount;
+	//The reason the contest could not be counted, or null if it was counted
+	private String error;
+	//The time taken to read the contest, in nanoseconds
+	private long readNanos;
+	//The time taken to count the contest, in nanoseconds
+	private long countNanos;
+	//The metrics the contest's count is recorded in, or null if none are recorded
+	private TabulationMetrics metrics;
+
+	public BatchContest(int line, String candidateFileName, String voteFileName, int numberOfWinners, long size) {
+		this.line = line;
+		this.candidateFileName = candidateFileName;
+		this.voteFileName = voteFileName;
+		this.numberOfWinners = numberOfWinners;
+		this.size = size;
+	}
+
+	/**
+	 * Record the result of counting the contest
+	 *
+	 * @param result - TabulationResult - the result
+	 * @param ballotCount - int - the number of ballots read
+	 * @param readNanos - long - the time taken to read the contest, in nanoseconds
+	 * @param countNanos - long - the time taken to count the contest, in nanoseconds
+	 */
+	void setResult(TabulationResult result, int ballotCount, long readNanos, long countNanos) {
+		this.result = result;
+		this.ballotCount = ballotCount;
+		this.readNanos = readNanos;
+		this.countNanos = countNanos;
+	}
+
+	/**
+	 * Record why the contest could not be counted
+	 *
+	 * @param error - String - the reason
+	 * @param readNanos - long - the time spent before the failure, in nanoseconds
+	 */
+	void setError(String error, long readNanos) {
+		this.error = error;
+		this.readNanos = readNanos;
+	}
+
+	/**
+	 * Getter for line
+	 *
+	 * @return int - the line of the manifest that listed the contest
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * Getter for candidateFileName
+	 *
+	 * @return String - the name of the candidate file
+	 */
+	public String getCandidateFileName() {
+		return candidateFileName;
+	}
+
+	/**
+	 * Getter for voteFileName
+	 *
+	 * @return String - the name of the vote file
+	 */
+	public String getVoteFileName() {
+		return voteFileName;
+	}
+
+	/**
+	 * Getter for numberOfWinners
+	 *
+	 * @return int - the number of candidates that can win
+	 */
+	public int getNumberOfWinners() {
+		return numberOfWinners;
+	}
+
+	/**
+	 * Getter for size
+	 *
+	 * @return long - the size of the vote file in bytes
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Setter for the metrics the contest's count is recorded in
+	 *
+	 * @param metrics - TabulationMetrics - the metrics, or null to not record any
+	 */
+	void setMetrics(TabulationMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Getter for the metrics
+	 *
+	 * @return TabulationMetrics - the metrics the contest's count was recorded in, or null if none were recorded
+	 */
+	public TabulationMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Getter for the result
+	 *
+	 * @return TabulationResult - the result of the count, or null if it could not be counted
+	 */
+	public TabulationResult getResult() {
+		return result;
+	}
+
+	/**
+	 * Getter for ballotCount
+	 *
+	 * @return int - the number of ballots read
+	 */
+	public int getBallotCount() {
+		return ballotCount;
+	}
+
+	/**
+	 * Getter for the error
+	 *
+	 * @return String - the reason the contest could not be counted, or null if it was counted
+	 */
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * Getter for readNanos
+	 *
+	 * @return long - the time taken to read the contest, in nanoseconds
+	 */
+	public long getReadNanos() {
+		return readNanos;
+	}
+
+	/**
+	 * Getter for countNanos
+	 *
+	 * @return long - the time taken to count the contest, in nanoseconds
+	 */
+	public long getCountNanos() {
+		return countNanos;
+	}
+}
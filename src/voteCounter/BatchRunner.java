@@ -0,0 +1,288 @@
+package voteCounter;
+
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.management.JMException;
+
+/**
+ * Counts a batch of contests in one JVM. Each contest listed in a manifest is read and counted by its own
+ * {@link Tabulator}, all sharing one work-stealing pool, and the winners and timings of every contest are written to
+ * a combined results file.<br>
+ * <br>
+ * Contests are started largest first, judged by the size of their vote file, so that the largest contest does not
+ * start last and run on alone. The tally blocks of each round also run on the shared pool, so the rounds of a large
+ * contest are spread across any threads that have run out of contests to count.<br>
+ * <br>
+ * Arguments:<br>
+ * 	manifestFileName - String - The name of the manifest. Each line lists a contest as the candidate file name, vote
+ * 		file name and number of winners, separated by commas. File names are relative to the manifest. Blank lines and
+ * 		lines starting with # are ignored.<br>
+ * 	resultsFileName - String - The name of the csv file to write the results of every contest to<br>
+ * <br>
+ * Options:<br>
+ * 	--threads=N - the number of contests and tally blocks counted at once. Defaults to the number of processors<br>
+ * 	--arithmetic=fixed|double - as for {@link VoteCounter}<br>
+ * 	--metrics=FILE - record the timings of every contest, watchable over JMX while it is counted, and write them to
+ * 		FILE as JSON, in manifest order
+ */
+public class BatchRunner {
+
+	/**
+	 * The main method. See class docs for description on required arguments
+	 *
+	 * @param args - String[]
+	 */
+	public static void main(String[] args) {
+		//Quit if the two arguments were not supplied
+		if(args.length < 2) {
+			System.out.println("Please provide a manifest file and a results file.");
+			return;
+		}
+
+		CommandLine options = new CommandLine(Runtime.getRuntime().availableProcessors(), CommandLine.Option.ARITHMETIC,
+				CommandLine.Option.THREADS);
+		String metricsFileName = null;
+
+		//Read any options that follow the two arguments
+		for(int i=2; i<args.length; i++) {
+			if(args[i].startsWith("--metrics=")) {
+				metricsFileName = args[i].substring("--metrics=".length());
+			} else if(!options.read(args[i])) {
+				return;
+			}
+		}
+
+		List<BatchContest> contests = readManifest(args[0]);
+		if(contests == null) {
+			return;
+		}
+		if(metricsFileName != null) {
+			for(BatchContest contest : contests) {
+				contest.setMetrics(new TabulationMetrics("line " + contest.getLine() + ": " + contest.getVoteFileName()));
+			}
+		}
+
+		long start = System.nanoTime();
+		ForkJoinPool pool = new ForkJoinPool(options.threads);
+		try {
+			run(contests, pool, options.fixedPoint);
+		} finally {
+			pool.shutdown();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		if(!writeResults(args[1], contests)) {
+			return;
+		}
+		if(metricsFileName != null && !writeMetrics(metricsFileName, contests)) {
+			return;
+		}
+
+		int failed = 0;
+		for(BatchContest contest : contests) {
+			if(contest.getError() != null) {
+				failed++;
+			}
+		}
+
+		System.out.println("Counted " + (contests.size() - failed) + " of " + contests.size() + " contests in "
+				+ (elapsed / 1000000) + " ms on " + options.threads + " threads.");
+		if(failed > 0) {
+			System.out.println(failed + " contests could not be counted. See " + args[1] + " for the reasons.");
+		}
+	}
+
+	/**
+	 * Read a manifest, with one contest on each line
+	 *
+	 * @param manifestFileName - String - the name of the manifest
+	 * @return {@code List<BatchContest>} - the contests, in manifest order, or null if the manifest could not be read
+	 */
+	public static List<BatchContest> readManifest(String manifestFileName) {
+		ArrayList<BatchContest> contests = new ArrayList<>();
+		Path directory = Paths.get(manifestFileName).toAbsolutePath().getParent();
+
+		boolean read = CommandLine.readListedLines(manifestFileName, "manifest file", (lineNumber, line) -> {
+			String[] fields = line.split(",");
+			if(fields.length != 3) {
+				System.out.println("Line " + lineNumber + " of the manifest must list a candidate file, a vote file and a number of winners.");
+				return false;
+			}
+
+			int numberOfWinners;
+			try {
+				numberOfWinners = Integer.parseInt(fields[2].trim());
+			} catch (NumberFormatException e) {
+				System.out.println("Line " + lineNumber + " of the manifest has an invalid winner count.");
+				return false;
+			}
+
+			Path candidateFile = directory.resolve(fields[0].trim());
+			Path voteFile = directory.resolve(fields[1].trim());
+			long size;
+			try {
+				size = Files.size(voteFile);
+			} catch (IOException e) {
+				//the contest is still listed, and reports that its vote file could not be read when it is counted
+				size = 0;
+			}
+
+			contests.add(new BatchContest(lineNumber, candidateFile.toString(), voteFile.toString(), numberOfWinners, size));
+			return true;
+		});
+
+		return read ? contests : null;
+	}
+
+	/**
+	 * Read and count every contest on a pool, largest first, recording the result or error of each on the contest
+	 *
+	 * @param contests - {@code List<BatchContest>} - the contests to count
+	 * @param pool - ForkJoinPool - the pool the contests, and the tally blocks of their rounds, run on
+	 * @param fixedPoint - boolean - true to count in fixed-point, false to count in double precision
+	 */
+	public static void run(List<BatchContest> contests, ForkJoinPool pool, boolean fixedPoint) {
+		ArrayList<BatchContest> largestFirst = new ArrayList<>(contests);
+		largestFirst.sort(Comparator.comparingLong(BatchContest::getSize).reversed());
+
+		ArrayList<Callable<Void>> tasks = new ArrayList<>();
+		for(BatchContest contest : largestFirst) {
+			tasks.add(() -> {
+				count(contest, pool, fixedPoint);
+				return null;
+			});
+		}
+
+		//each contest records its own failure
+		CommandLine.runAll(pool, tasks);
+	}
+
+	/**
+	 * Read and count one contest, recording its result or the reason it could not be counted
+	 */
+	private static void count(BatchContest contest, ForkJoinPool pool, boolean fixedPoint) {
+		TabulationMetrics metrics = contest.getMetrics();
+		if(metrics != null) {
+			try {
+				metrics.register();
+			} catch (JMException e) {
+				//the contest is still counted and its metrics written, they just cannot be watched while it runs
+			}
+		}
+		try {
+			count(contest, pool, fixedPoint, metrics);
+		} finally {
+			if(metrics != null) {
+				metrics.unregister();
+			}
+		}
+	}
+
+	/**
+	 * Read and count one contest, recording its phases in its metrics if it has any
+	 */
+	private static void count(BatchContest contest, ForkJoinPool pool, boolean fixedPoint, TabulationMetrics metrics) {
+		long start = System.nanoTime();
+		long allocated = metrics == null ? 0 : metrics.allocatedBytes();
+		Contest read;
+
+		try {
+			read = Contest.read(contest.getCandidateFileName(), contest.getVoteFileName(), false, 1);
+		} catch (MalformedVoteFileException e) {
+			contest.setError("The vote file contains malformed rows. The first is: " + e.getErrors().get(0), System.nanoTime() - start);
+			return;
+		} catch (FileNotFoundException | NoSuchFileException e) {
+			contest.setError("Unable to open " + e.getMessage(), System.nanoTime() - start);
+			return;
+		} catch (IOException e) {
+			contest.setError("An error occured while reading the contest: " + e.getMessage(), System.nanoTime() - start);
+			return;
+		}
+
+		if(contest.getNumberOfWinners() < 1 || contest.getNumberOfWinners() > read.getCandidates().size()) {
+			contest.setError("The number of winners must be at least 1 and no more than the number of candidates", System.nanoTime() - start);
+			return;
+		}
+
+		long counted = System.nanoTime();
+		if(metrics != null) {
+			metrics.recordIngest(read.getBallots().ballotCount(), counted - start, metrics.allocatedBytes() - allocated);
+		}
+		Tabulator tabulator = new Tabulator(read, contest.getNumberOfWinners());
+		tabulator.setFixedPoint(fixedPoint);
+		tabulator.setTallyPool(pool);
+		tabulator.setMetrics(metrics);
+		TabulationResult result = tabulator.run();
+
+		contest.setResult(result, read.getBallots().ballotCount(), counted - start, System.nanoTime() - counted);
+	}
+
+	/**
+	 * Write the results of every contest to a csv file, in manifest order
+	 *
+	 * @param resultsFileName - String - the name of the results file
+	 * @param contests - {@code List<BatchContest>} - the counted contests
+	 * @return boolean - true if successful, false if not successful
+	 */
+	public static boolean writeResults(String resultsFileName, List<BatchContest> contests) {
+		try(BufferedWriter writer = Files.newBufferedWriter(Paths.get(resultsFileName), StandardCharsets.UTF_8)) {
+			writer.write("line,candidates,votes,winners,ballots,rounds,read_ms,count_ms,elected,error");
+			writer.newLine();
+
+			for(BatchContest contest : contests) {
+				TabulationResult result = contest.getResult();
+
+				writer.write(contest.getLine() + "," + OutputFormat.csvField(contest.getCandidateFileName()) + ","
+						+ OutputFormat.csvField(contest.getVoteFileName()) + "," + contest.getNumberOfWinners() + ",");
+				if(result != null) {
+					writer.write(contest.getBallotCount() + "," + result.getRounds().size() + ","
+							+ OutputFormat.formatMillis(contest.getReadNanos()) + "," + OutputFormat.formatMillis(contest.getCountNanos()) + ","
+							+ OutputFormat.csvField(String.join(", ", result.getWinnerNames())) + ",");
+				} else {
+					writer.write(",," + OutputFormat.formatMillis(contest.getReadNanos()) + ",,," + OutputFormat.csvField(contest.getError()));
+				}
+				writer.newLine();
+			}
+		} catch (IOException e) {
+			System.out.println("An error occured while writing the results file:" + e.getMessage());
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Write the metrics of every contest to a JSON file, in manifest order
+	 *
+	 * @param metricsFileName - String - the name of the metrics file
+	 * @param contests - {@code List<BatchContest>} - the counted contests, each with its metrics
+	 * @return boolean - true if successful, false if not successful
+	 */
+	public static boolean writeMetrics(String metricsFileName, List<BatchContest> contests) {
+		ArrayList<TabulationMetrics> metrics = new ArrayList<>();
+		for(BatchContest contest : contests) {
+			metrics.add(contest.getMetrics());
+		}
+
+		try {
+			TabulationMetrics.write(Paths.get(metricsFileName), metrics);
+		} catch (IOException e) {
+			System.out.println("An error occured while writing the metrics file:" + e.getMessage());
+			return false;
+		}
+
+		return true;
+	}
+}
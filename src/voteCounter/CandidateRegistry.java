@@ -0,0 +1,145 @@
+package voteCounter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Maps every candidate name to a dense, zero-based id. Names are interned once when the candidate file is read,
+ * so the rest of the count works with small integers and only resolves names again when printing results.
+ */
+public class CandidateRegistry {
+
+	//The largest number of candidates that fit in the packed short rankings of a BallotStore
+	public static final int MAX_CANDIDATES = Short.MAX_VALUE;
+
+	//Lookup from trimmed candidate name to id
+	private HashMap<String, Integer> ids = new HashMap<>();
+	//The candidate names, indexed by id
+	private ArrayList<String> names = new ArrayList<>();
+	//The UTF-8 encoding of each candidate name, indexed by id
+	private ArrayList<byte[]> encodedNames = new ArrayList<>();
+	//Open addressing table of id + 1, keyed by the hash of the encoded name. 0 marks an empty slot
+	private int[] byteTable = new int[64];
+
+	/**
+	 * Register a candidate, assigning it the next free id. Registering the same name twice returns the existing id.
+	 *
+	 * @param name - String - the candidate name
+	 * @return int - the id of the candidate, or -1 if the registry is full
+	 */
+	public int add(String name) {
+		String trimmed = name.trim();
+		Integer existing = ids.get(trimmed);
+
+		if(existing != null) {
+			return existing;
+		}
+
+		if(names.size() >= MAX_CANDIDATES) {
+			return -1;
+		}
+
+		int id = names.size();
+		ids.put(trimmed, id);
+		names.add(trimmed);
+		encodedNames.add(trimmed.getBytes(StandardCharsets.UTF_8));
+
+		//keep the byte table at most half full
+		if(names.size()*2 > byteTable.length) {
+			byteTable = new int[byteTable.length*2];
+			for(int i=0; i<names.size(); i++) {
+				insertEncoded(i);
+			}
+		} else {
+			insertEncoded(id);
+		}
+
+		return id;
+	}
+
+	/**
+	 * Look up the id of a candidate
+	 *
+	 * @param name - String - the trimmed candidate name
+	 * @return int - the id of the candidate, or -1 if they are not registered
+	 */
+	public int getId(String name) {
+		Integer id = ids.get(name);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Look up the id of a candidate from the UTF-8 bytes of their trimmed name, without creating a String
+	 *
+	 * @param bytes - byte[] - the buffer holding the name
+	 * @param start - int - the index of the first byte of the name
+	 * @param length - int - the number of bytes in the name
+	 * @return int - the id of the candidate, or -1 if they are not registered
+	 */
+	public int getId(byte[] bytes, int start, int length) {
+		int mask = byteTable.length - 1;
+		int slot = hash(bytes, start, length) & mask;
+
+		while(byteTable[slot] != 0) {
+			int id = byteTable[slot] - 1;
+			byte[] name = encodedNames.get(id);
+
+			if(Arrays.equals(name, 0, name.length, bytes, start, start + length)) {
+				return id;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Resolve an id back to the candidate name
+	 *
+	 * @param id - int - the candidate id
+	 * @return String - the candidate name
+	 */
+	public String getName(int id) {
+		return names.get(id);
+	}
+
+	/**
+	 * Getter for the number of registered candidates
+	 *
+	 * @return int - the number of candidates
+	 */
+	public int size() {
+		return names.size();
+	}
+
+	/**
+	 * Place a candidate's encoded name in the byte table
+	 */
+	private void insertEncoded(int id) {
+		byte[] name = encodedNames.get(id);
+		int mask = byteTable.length - 1;
+		int slot = hash(name, 0, name.length) & mask;
+
+		while(byteTable[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+
+		byteTable[slot] = id + 1;
+	}
+
+	/**
+	 * FNV-1a hash of a run of bytes
+	 */
+	private static int hash(byte[] bytes, int start, int length) {
+		int hash = 0x811C9DC5;
+
+		for(int i=start; i<start+length; i++) {
+			hash = (hash ^ (bytes[i] & 0xFF)) * 0x01000193;
+		}
+
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -0,0 +1,188 @@
+package voteCounter;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * What the command line tools have in common: the options that change how a contest is counted, reading a list file
+ * such as a manifest, and counting many things at once on a pool. A tool reads its own options first and passes the
+ * rest to {@link #read(String)}, so every tool spells and checks the shared options the same way.
+ */
+class CommandLine {
+
+	/**
+	 * The groups of shared options, so that a tool only accepts the ones it uses
+	 */
+	enum Option {
+
+		/**
+		 * --arithmetic=fixed|double
+		 */
+		ARITHMETIC,
+
+		/**
+		 * --batch-elimination and --elect-all-over-quota
+		 */
+		RULES,
+
+		/**
+		 * --from-snapshot
+		 */
+		SNAPSHOT,
+
+		/**
+		 * --threads=N
+		 */
+		THREADS,
+
+		/**
+		 * --seed=N
+		 */
+		SEED
+	}
+
+	//The options this tool accepts
+	private EnumSet<Option> accepted;
+	//Printed after an unknown option, such as where to find the options the tool accepts
+	String unknownHint = "";
+
+	//Option: count in fixed-point rather than double precision
+	boolean fixedPoint = true;
+	//Option: eliminate every mathematically defeated candidate in one round
+	boolean batchElimination = false;
+	//Option: elect every candidate over the threshold in one round
+	boolean simultaneousElection = false;
+	//Option: read the ballots from a snapshot rather than a vote file
+	boolean fromSnapshot = false;
+	//Option: the number of threads to count with
+	int threads;
+	//Option: the seed of any random choices, or null to not seed them
+	Long seed = null;
+
+	/**
+	 * @param threads - int - the number of threads to count with unless --threads is given
+	 * @param accepted - Option... - the options the tool accepts
+	 */
+	CommandLine(int threads, Option... accepted) {
+		this.threads = threads;
+		this.accepted = EnumSet.noneOf(Option.class);
+		for(Option option : accepted) {
+			this.accepted.add(option);
+		}
+	}
+
+	/**
+	 * Read one of the shared options, printing the reason if it is unknown or its value is not valid
+	 *
+	 * @param option - String - the option, such as --threads=4
+	 * @return boolean - true if the option was read, false if the tool should quit
+	 */
+	boolean read(String option) {
+		if(accepted.contains(Option.ARITHMETIC) && option.equals("--arithmetic=fixed")) {
+			fixedPoint = true;
+		} else if(accepted.contains(Option.ARITHMETIC) && option.equals("--arithmetic=double")) {
+			fixedPoint = false;
+		} else if(accepted.contains(Option.RULES) && option.equals("--batch-elimination")) {
+			batchElimination = true;
+		} else if(accepted.contains(Option.RULES) && option.equals("--elect-all-over-quota")) {
+			simultaneousElection = true;
+		} else if(accepted.contains(Option.SNAPSHOT) && option.equals("--from-snapshot")) {
+			fromSnapshot = true;
+		} else if(accepted.contains(Option.SEED) && option.startsWith("--seed=")) {
+			try {
+				seed = Long.parseLong(option.substring("--seed=".length()));
+			} catch (NumberFormatException e) {
+				System.out.println("The seed must be a whole number.");
+				return false;
+			}
+		} else if(accepted.contains(Option.THREADS) && option.startsWith("--threads=")) {
+			try {
+				threads = Integer.parseInt(option.substring("--threads=".length()));
+			} catch (NumberFormatException e) {
+				threads = 0;
+			}
+
+			if(threads < 1) {
+				System.out.println("The thread count must be a whole number of at least 1.");
+				return false;
+			}
+		} else {
+			System.out.println("Unknown option: " + option + unknownHint);
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Reads one line of a list file
+	 */
+	interface ListedLine {
+
+		/**
+		 * @param lineNumber - int - the number of the line in the file, from 1
+		 * @param line - String - the line
+		 * @return boolean - true to carry on reading, false to stop once the reason has been printed
+		 */
+		boolean read(int lineNumber, String line);
+	}
+
+	/**
+	 * Read a list file, such as a manifest, line by line, skipping blank lines and lines starting with #, and printing
+	 * the reason if it cannot be read
+	 *
+	 * @param fileName - String - the name of the file
+	 * @param description - String - what the file is, such as "manifest file", for the messages printed
+	 * @param reader - ListedLine - reads each line that is not skipped
+	 * @return boolean - true if every line was read, false if the file could not be read or a line was refused
+	 */
+	static boolean readListedLines(String fileName, String description, ListedLine reader) {
+		try(BufferedReader lineReader = new BufferedReader(new FileReader(fileName))) {
+			String line = null;
+			int lineNumber = 0;
+
+			while((line=lineReader.readLine()) != null) {
+				lineNumber++;
+				if(line.trim().isEmpty() || line.trim().startsWith("#")) {
+					continue;
+				}
+
+				if(!reader.read(lineNumber, line)) {
+					return false;
+				}
+			}
+		} catch(FileNotFoundException e) {
+			System.out.println("Unable to open the " + description + ". Please ensure the provided file path is correct.");
+			return false;
+		} catch(IOException e) {
+			System.out.println("An error occured while reading the " + description + ":" + e.getMessage());
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Run tasks that each record their own result or failure on a pool, all at once, and wait for every one of them
+	 *
+	 * @param pool - ForkJoinPool - the pool
+	 * @param tasks - {@code List<Callable<Void>>} - the tasks
+	 * @throws IllegalStateException if a task failed, which can only be a programming error
+	 */
+	static void runAll(ForkJoinPool pool, List<Callable<Void>> tasks) {
+		for(Future<Void> result : pool.invokeAll(tasks)) {
+			try {
+				result.get();
+			} catch (Exception e) {
+				throw new IllegalStateException("A task failed to record its result", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package voteCounter;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * An ingested contest: its candidates and its original ballots. A Contest is never altered once created, so any
+ * number of {@link Tabulator}s, on any number of threads, can count it at the same time.<br>
+ * <br>
+ * The head to head counts and points the tie breaker needs only depend on the original ballots, so they are counted
+ * once, the first time a tie is broken, and shared by every count of the contest after that.
+ */
+public class Contest {
+
+	//The registry mapping candidate names to the ids used throughout the count
+	private CandidateRegistry candidates;
+	//The original, unaltered ballots, grouped by identical rankings
+	private BallotSource ballots;
+	//The head to head counts and points of every candidate, counted when first needed. Stays null if there are too
+	//many candidates to hold the full matrix, in which case each tie break counts its own
+	private volatile PairwiseMatrix pairwiseTotals;
+
+	public Contest(CandidateRegistry candidates, BallotSource ballots) {
+		this.candidates = candidates;
+		this.ballots = ballots;
+	}
+
+	/**
+	 * Read a contest from a candidate file and a vote file
+	 *
+	 * @param candidateFileName - String - the name of the candidate file
+	 * @param voteFileName - String - the name of the vote file
+	 * @param keepVoters - boolean - true to keep the name of every voter for auditing
+	 * @param threads - int - the number of threads to read the vote file with
+	 * @return Contest - the contest
+	 * @throws IOException if either file could not be read, or the vote file has malformed rows
+	 */
+	public static Contest read(String candidateFileName, String voteFileName, boolean keepVoters, int threads) throws IOException {
+		CandidateRegistry candidates = readCandidates(candidateFileName);
+		return new Contest(candidates, readVotes(voteFileName, candidates, keepVoters, threads));
+	}
+
+	/**
+	 * Read a candidate file, with each candidate on a new line
+	 *
+	 * @param candidateFileName - String - the name of the candidate file
+	 * @return CandidateRegistry - the registered candidates
+	 * @throws IOException if the file could not be read or lists too many candidates
+	 */
+	public static CandidateRegistry readCandidates(String candidateFileName) throws IOException {
+		CandidateRegistry candidates = new CandidateRegistry();
+
+		try(BufferedReader candidateReader = new BufferedReader(new FileReader(candidateFileName))) {
+			String candidate = null;
+
+			//Loop through each line and store the candidate
+			while((candidate=candidateReader.readLine()) != null) {
+				if(candidates.add(candidate) == -1) {
+					throw new IOException("The candidate file lists more than " + CandidateRegistry.MAX_CANDIDATES + " candidates.");
+				}
+			}
+		}
+
+		return candidates;
+	}
+
+	/**
+	 * Read a vote file, with a header line followed by one ballot per line
+	 *
+	 * @param voteFileName - String - the name of the vote file
+	 * @param candidates - CandidateRegistry - the registered candidates
+	 * @param keepVoters - boolean - true to keep the name of every voter for auditing
+	 * @param threads - int - the number of threads to read the file with
+	 * @return BallotStore - the ballots, grouped by identical rankings
+	 * @throws IOException if the file could not be read
+	 * @throws MalformedVoteFileException if any row could not be read
+	 */
+	public static BallotStore readVotes(String voteFileName, CandidateRegistry candidates, boolean keepVoters, int threads) throws IOException {
+		try(FileChannel voteChannel = FileChannel.open(Paths.get(voteFileName), StandardOpenOption.READ)) {
+			//stream every row after the header straight into the ballot store, using every requested thread
+			ArrayList<String> errors = new ArrayList<>();
+			BallotStore ballots = VoteFileParser.parseFile(voteChannel, candidates, keepVoters, threads, errors);
+
+			if(!errors.isEmpty()) {
+				throw new MalformedVoteFileException(errors);
+			}
+
+			return ballots;
+		}
+	}
+
+	/**
+	 * Getter for the candidates
+	 *
+	 * @return CandidateRegistry - the registered candidates
+	 */
+	public CandidateRegistry getCandidates() {
+		return candidates;
+	}
+
+	/**
+	 * Getter for the ballots
+	 *
+	 * @return BallotSource - the original ballots
+	 */
+	public BallotSource getBallots() {
+		return ballots;
+	}
+
+	/**
+	 * Get the head to head counts and points of a set of candidates, sliced from the counts of every candidate, which
+	 * are made on the first call, or counted in one pass over the ballots if there are too many candidates to keep them
+	 *
+	 * @param ids - int[] - the ids of the candidates. Matrix index i refers to ids[i]
+	 * @return PairwiseMatrix - the counts
+	 */
+	public PairwiseMatrix getPairwiseMatrix(int[] ids) {
+		if(candidates.size() > PairwiseMatrix.MAX_PRECOUNTED_CANDIDATES) {
+			return PairwiseMatrix.count(ballots, ids, candidates.size());
+		}
+
+		PairwiseMatrix totals = pairwiseTotals;
+		if(totals == null) {
+			synchronized(this) {
+				totals = pairwiseTotals;
+				if(totals == null) {
+					totals = PairwiseMatrix.countAll(ballots, candidates.size());
+					pairwiseTotals = totals;
+				}
+			}
+		}
+
+		return totals.slice(ids);
+	}
+}
@@ -0,0 +1,52 @@
+package voteCounter;
+
+/**
+ * Fixed-point arithmetic for ballot weights and vote counts. A value is held as a long counting billionths of a vote,
+ * so adding weights is exact and every operation that has to round truncates in the same, documented way on every
+ * machine and for every order of addition.
+ */
+public class FixedPoint {
+
+	//The number of decimal places kept
+	public static final int DECIMALS = 9;
+	//The fixed-point representation of 1 vote
+	public static final long ONE = 1_000_000_000L;
+
+	/**
+	 * Convert a whole number of votes to fixed-point
+	 *
+	 * @param votes - long - the number of votes
+	 * @return long - the fixed-point value
+	 */
+	public static long fromVotes(long votes) {
+		return Math.multiplyExact(votes, ONE);
+	}
+
+	/**
+	 * Multiply a weight by a factor, truncating the result. Both values must be at most {@code ONE}, so the product
+	 * cannot overflow
+	 *
+	 * @param weight - long - the fixed-point weight
+	 * @param factor - long - the fixed-point factor
+	 * @return long - the fixed-point product, rounded down
+	 */
+	public static long multiply(long weight, long factor) {
+		return weight * factor / ONE;
+	}
+
+	/**
+	 * Format a fixed-point value as a decimal number of votes, without trailing zeros but with at least one decimal
+	 *
+	 * @param value - long - the fixed-point value
+	 * @return String - the formatted value
+	 */
+	public static String toString(long value) {
+		StringBuilder fraction = new StringBuilder(Long.toString(ONE + Math.abs(value) % ONE).substring(1));
+
+		while(fraction.length() > 1 && fraction.charAt(fraction.length()-1) == '0') {
+			fraction.setLength(fraction.length()-1);
+		}
+
+		return (value < 0 ? "-" : "") + (Math.abs(value) / ONE) + "." + fraction;
+	}
+}
@@ -0,0 +1,126 @@
+package voteCounter;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive ints, used to index ballots without boxing every entry. Copies share their values until
+ * either list is altered, so copying a list that is never altered again costs nothing. The values are held in an array
+ * on the heap, or outside it by {@link OffHeapIntList}
+ */
+public class IntList {
+
+	private int[] values;
+	private int size = 0;
+	//True while values may be shared with a copy, so they must be copied before they are altered
+	private boolean shared = false;
+
+	public IntList() {
+		this(16);
+	}
+
+	/**
+	 * Create an empty list with room for a number of values before it grows
+	 *
+	 * @param capacity - int - the number of values
+	 */
+	IntList(int capacity) {
+		values = new int[capacity];
+	}
+
+	/**
+	 * Create a list holding the same values as another. The values are shared until either list is altered
+	 *
+	 * @param other - IntList - the list to copy
+	 */
+	public IntList(IntList other) {
+		values = other.values;
+		size = other.size;
+		shared = true;
+		other.shared = true;
+	}
+
+	/**
+	 * Create a list holding the same values as this one, in the same memory. The values are shared until either list
+	 * is altered
+	 *
+	 * @return IntList - the copy
+	 */
+	IntList copy() {
+		return new IntList(this);
+	}
+
+	/**
+	 * Take a private copy of the values if they may be shared with a copy of the list
+	 */
+	private void own() {
+		if(shared) {
+			values = Arrays.copyOf(values, Math.max(16, size));
+			shared = false;
+		}
+	}
+
+	/**
+	 * Append a value to the end of the list
+	 *
+	 * @param value - int - the value to append
+	 */
+	public void add(int value) {
+		own();
+		if(size == values.length) {
+			values = Arrays.copyOf(values, size*2);
+		}
+
+		values[size++] = value;
+	}
+
+	/**
+	 * Retrieve a value from the list
+	 *
+	 * @param index - int - the index of the value
+	 * @return int - the value at that index
+	 */
+	public int get(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Getter for the number of values in the list
+	 *
+	 * @return int - the size of the list
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Replace a value in the list
+	 *
+	 * @param index - int - the index of the value
+	 * @param value - int - the new value
+	 */
+	public void set(int index, int value) {
+		own();
+		values[index] = value;
+	}
+
+	/**
+	 * Give the memory of the list back for reuse, once the list will not be used again. The values of a list on the
+	 * heap are left to the garbage collector
+	 */
+	void release() {
+	}
+
+	/**
+	 * Grow the list to a new size, filling the added entries with 0 until they are set
+	 *
+	 * @param newSize - int - the new size, which must be at least the current size
+	 */
+	public void grow(int newSize) {
+		own();
+		if(newSize > values.length) {
+			values = Arrays.copyOf(values, Math.max(newSize, values.length*2));
+		}
+
+		size = newSize;
+	}
+}
@@ -0,0 +1,406 @@
+package voteCounter;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Keeps a preliminary result up to date as batches of ballots arrive, without counting every round again for each
+ * batch.<br>
+ * <br>
+ * Until someone wins, every ballot counts at full weight for its first choice that has not been eliminated, whatever
+ * the other ballots are. So the count is kept at the last round before anyone could win, and each batch is simply
+ * added to it: every new ballot goes to the candidate it would be counting for by then. The batch is also walked
+ * through the eliminations already made, to update the vote counts of those rounds and check that each one would
+ * still eliminate the same candidate with no one over the threshold. Only if one would not is the count started
+ * again. Once someone can win, the surplus transferred depends on every ballot, so the rounds from there to the end
+ * are counted again from a copy of the kept count.<br>
+ * <br>
+ * Arguments:<br>
+ * 	candidateFileName - String - The name of the file listing each candidate<br>
+ * 	source - String - An append-only vote file, or a directory that vote files are added to. See {@link BallotFeed}<br>
+ * 	numberOfWinners - int - The number of candidates that can win<br>
+ * <br>
+ * Options:<br>
+ * 	--interval=N - the number of seconds between checks for new ballots. Defaults to 60<br>
+ * 	--once - count the ballots that have already arrived and stop<br>
+ * 	--arithmetic=fixed|double and --threads=N - as for {@link VoteCounter}
+ */
+public class LiveCount {
+
+	//The registered candidates
+	private CandidateRegistry candidates;
+	//The number of candidates that can win
+	private int numberOfWinners;
+	//Option: count in fixed-point rather than double precision
+	private boolean fixedPoint = true;
+	//The pool that tally blocks run on, or null when tallying on the calling thread
+	private ForkJoinPool tallyPool;
+	//Every ballot that has arrived
+	private BallotStore ballots = new BallotStore();
+	//The count, kept at the last round before anyone could win. Null until ballots arrive
+	private Tabulator prefix;
+	//The latest preliminary result. Null until ballots arrive
+	private TabulationResult result;
+	//The number of rounds carried over, rather than counted again, by the latest batch
+	private int reusedRounds = 0;
+
+	/**
+	 * @param candidates - CandidateRegistry - the registered candidates
+	 * @param numberOfWinners - int - the number of candidates that can win
+	 * @throws IllegalArgumentException if the number of winners is below 1 or above the number of candidates
+	 */
+	public LiveCount(CandidateRegistry candidates, int numberOfWinners) {
+		if(numberOfWinners < 1 || numberOfWinners > candidates.size()) {
+			throw new IllegalArgumentException("The number of winners must be at least 1 and no more than the number of candidates");
+		}
+
+		this.candidates = candidates;
+		this.numberOfWinners = numberOfWinners;
+	}
+
+	/**
+	 * The main method. See class docs for description on required arguments
+	 *
+	 * @param args - String[]
+	 */
+	public static void main(String[] args) {
+		//Quit if the three arguments were not supplied
+		if(args.length < 3) {
+			System.out.println("Please provide a candidate file, a vote file or directory and the number of winners.");
+			return;
+		}
+
+		long interval = 60;
+		boolean once = false;
+		CommandLine options = new CommandLine(1, CommandLine.Option.ARITHMETIC, CommandLine.Option.THREADS);
+
+		//Read any options that follow the three arguments
+		for(int i=3; i<args.length; i++) {
+			if(args[i].equals("--once")) {
+				once = true;
+			} else if(args[i].startsWith("--interval=")) {
+				try {
+					interval = Long.parseLong(args[i].substring("--interval=".length()));
+				} catch (NumberFormatException e) {
+					interval = 0;
+				}
+
+				if(interval < 1 || interval > Integer.MAX_VALUE) {
+					System.out.println("The interval must be a whole number of at least 1.");
+					return;
+				}
+			} else if(!options.read(args[i])) {
+				return;
+			}
+		}
+
+		CandidateRegistry candidates = VoteCounter.readCandidates(args[0], System.out);
+		if(candidates == null) {
+			return;
+		}
+
+		LiveCount live;
+		try {
+			live = new LiveCount(candidates, Integer.parseInt(args[2]));
+		} catch (NumberFormatException e) {
+			System.out.println("Invalid winner count argument. ");
+			return;
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			return;
+		}
+		live.setFixedPoint(options.fixedPoint);
+		if(options.threads > 1) {
+			live.setTallyPool(new ForkJoinPool(options.threads));
+		}
+
+		BallotFeed feed = new BallotFeed(Paths.get(args[1]), candidates);
+
+		while(true) {
+			ArrayList<String> errors = new ArrayList<>();
+			BallotStore batch;
+
+			try {
+				batch = feed.poll(errors);
+			} catch (IOException e) {
+				System.out.println("An error occured while reading the new ballots:" + e.getMessage());
+				return;
+			}
+
+			//quit rather than publish a result missing rows that could not be read
+			if(!errors.isEmpty()) {
+				System.out.println("The new ballots contain malformed rows:");
+				for(String error : errors) {
+					System.out.println(error);
+				}
+				return;
+			}
+
+			if(batch.ballotCount() > 0) {
+				TabulationResult result = live.addBallots(batch);
+
+				System.out.println();
+				System.out.println("Preliminary result after " + live.getBallotCount() + " ballots, with "
+						+ live.getReusedRounds() + " rounds carried over:");
+				for(RoundResult round : result.getRounds()) {
+					VoteCounter.printRound(candidates, round);
+				}
+				System.out.println();
+				System.out.println("Winners:");
+				System.out.println(String.join(", ", result.getWinnerNames()));
+			}
+
+			if(once) {
+				return;
+			}
+
+			try {
+				Thread.sleep(interval * 1000);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Setter for the arithmetic counted with. Takes effect from the next batch that starts the count again
+	 *
+	 * @param fixedPoint - boolean - true to count in fixed-point, false to count in double precision
+	 */
+	public void setFixedPoint(boolean fixedPoint) {
+		this.fixedPoint = fixedPoint;
+	}
+
+	/**
+	 * Setter for the pool that each round's tally is shared across
+	 *
+	 * @param tallyPool - ForkJoinPool - the pool, or null to tally on the calling thread
+	 */
+	public void setTallyPool(ForkJoinPool tallyPool) {
+		this.tallyPool = tallyPool;
+	}
+
+	/**
+	 * Add a batch of ballots and update the preliminary result
+	 *
+	 * @param batch - BallotStore - the ballots that arrived
+	 * @return TabulationResult - the preliminary result over every ballot that has arrived, or null if none have
+	 */
+	public TabulationResult addBallots(BallotStore batch) {
+		if(batch.ballotCount() == 0) {
+			return result;
+		}
+
+		//merge the batch, noting the group each of its groups joined
+		int[] groups = new int[batch.size()];
+		int[] counts = new int[batch.size()];
+		short[] choices = new short[16];
+		for(int group=0; group<batch.size(); group++) {
+			int length = batch.length(group);
+			if(length > choices.length) {
+				choices = new short[length];
+			}
+			for(int position=0; position<length; position++) {
+				choices[position] = (short) batch.choice(group, position);
+			}
+
+			groups[group] = ballots.addGroup(choices, length, batch.count(group));
+			counts[group] = batch.count(group);
+		}
+
+		//the tie breaker must see every ballot, so the contest is replaced rather than altered
+		Contest contest = new Contest(candidates, ballots);
+
+		List<RoundResult> updated = null;
+		if(prefix != null) {
+			List<RoundResult> previous = prefix.getResult().getRounds();
+			prefix.addBallots(contest, groups, counts, groups.length);
+			updated = updateRounds(previous, groups, counts);
+		}
+
+		if(updated != null) {
+			prefix.replaceRounds(updated);
+			reusedRounds = updated.size();
+		} else {
+			//an earlier round could have gone differently, so count from the beginning
+			prefix = new Tabulator(contest, numberOfWinners);
+			prefix.setFixedPoint(fixedPoint);
+			prefix.setTallyPool(tallyPool);
+			prefix.start();
+			reusedRounds = 0;
+		}
+
+		//keep the count at the last round before anyone could win
+		while(prefix.nextRoundEliminates()) {
+			prefix.nextRound();
+		}
+
+		//count the rest on a copy, so the kept count is ready for the next batch
+		Tabulator rest = new Tabulator(prefix);
+		while(!rest.isComplete()) {
+			rest.nextRound();
+		}
+		result = rest.getResult();
+
+		return result;
+	}
+
+	/**
+	 * Walk a batch through the eliminations already made, adding it to the vote counts of each round and checking that
+	 * each round would still eliminate the same candidate, with no one over the threshold
+	 *
+	 * @param previous - {@code List<RoundResult>} - the rounds already counted, all of them eliminations
+	 * @param groups - int[] - the ballot group each of the batch's groups joined
+	 * @param counts - int[] - the number of ballots in each of the batch's groups
+	 * @return {@code List<RoundResult>} - the rounds with their vote counts updated, or null if any round could now go differently
+	 */
+	private List<RoundResult> updateRounds(List<RoundResult> previous, int[] groups, int[] counts) {
+		int candidateCount = candidates.size();
+		BitSet eliminated = new BitSet();
+		//the ballots of the batch counting for each candidate, and the position each batch group has reached
+		long[] added = new long[candidateCount];
+		IntList[] buckets = new IntList[candidateCount];
+		int[] positions = new int[groups.length];
+		for(int candidate=0; candidate<candidateCount; candidate++) {
+			buckets[candidate] = new IntList();
+		}
+		//the ballots of the batch that count for no one
+		long exhausted = 0;
+		for(int i=0; i<groups.length; i++) {
+			if(!place(i, groups, counts, positions, eliminated, added, buckets)) {
+				exhausted += counts[i];
+			}
+		}
+
+		ArrayList<RoundResult> updated = new ArrayList<>();
+		for(RoundResult round : previous) {
+			//only single eliminations are walked, so a round that eliminated several candidates is counted again
+			if(round.getEliminatedCandidates().size() != 1) {
+				return null;
+			}
+
+			boolean[] continuing = new boolean[candidateCount];
+			double[] voteCounts = round.isFixedPoint() ? null : new double[candidateCount];
+			long[] fixedVoteCounts = round.isFixedPoint() ? new long[candidateCount] : null;
+			ArrayList<Integer> lowest = new ArrayList<>();
+
+			for(int candidate=0; candidate<candidateCount; candidate++) {
+				continuing[candidate] = round.isContinuing(candidate);
+				if(round.isFixedPoint()) {
+					fixedVoteCounts[candidate] = round.getFixedVoteCount(candidate) + (continuing[candidate] ? FixedPoint.fromVotes(added[candidate]) : 0);
+				} else {
+					voteCounts[candidate] = round.getVoteCount(candidate) + (continuing[candidate] ? added[candidate] : 0);
+				}
+
+				if(!continuing[candidate]) {
+					continue;
+				}
+
+				//no one may have reached the threshold, which grows with the batch too
+				if(prefix.isOverThreshold(round.isFixedPoint() ? fixedVoteCounts[candidate] : 0, round.isFixedPoint() ? 0 : voteCounts[candidate])) {
+					return null;
+				}
+
+				int compared = lowest.isEmpty() ? -1 : round.isFixedPoint()
+						? Long.compare(fixedVoteCounts[candidate], fixedVoteCounts[lowest.get(0)])
+						: Double.compare(voteCounts[candidate], voteCounts[lowest.get(0)]);
+				if(compared < 0) {
+					lowest.clear();
+					lowest.add(candidate);
+				} else if(compared == 0) {
+					lowest.add(candidate);
+				}
+			}
+
+			//the same candidate must still be last, or lose the same tie break
+			TieBreak tieBreak = null;
+			if(lowest.size() == 1) {
+				if(!round.getTiedCandidates().isEmpty() || lowest.get(0) != round.getEliminated()) {
+					return null;
+				}
+			} else if(!lowest.equals(round.getTiedCandidates())) {
+				return null;
+			} else {
+				tieBreak = prefix.condorcetTieBreakDetails(lowest);
+				if(tieBreak.getLoser() != round.getEliminated()) {
+					return null;
+				}
+			}
+
+			updated.add(new RoundResult(round.getNumber(), continuing, voteCounts, fixedVoteCounts,
+					round.getExhaustedBallots() + exhausted,
+					round.isFixedPoint() ? 0.0 : round.getExhaustedWeight() + exhausted,
+					round.isFixedPoint() ? round.getFixedExhaustedWeight() + FixedPoint.fromVotes(exhausted) : 0,
+					new ArrayList<>(), false, round.getTiedCandidates(), tieBreak, round.getEliminatedCandidates()));
+
+			//move the batch ballots of the eliminated candidate on, as the round did
+			int loser = round.getEliminated();
+			eliminated.set(loser);
+			IntList moved = buckets[loser];
+			buckets[loser] = null;
+			added[loser] = 0;
+			for(int i=0; i<moved.size(); i++) {
+				if(!place(moved.get(i), groups, counts, positions, eliminated, added, buckets)) {
+					exhausted += counts[moved.get(i)];
+				}
+			}
+		}
+
+		return updated;
+	}
+
+	/**
+	 * Move a batch group to its first choice, from the position it has reached, that has not been eliminated
+	 *
+	 * @return boolean - true if the group was placed, false if it is exhausted
+	 */
+	private boolean place(int i, int[] groups, int[] counts, int[] positions, BitSet eliminated, long[] added, IntList[] buckets) {
+		int group = groups[i];
+
+		while(positions[i] < ballots.length(group)) {
+			int choice = ballots.choice(group, positions[i]);
+
+			if(!eliminated.get(choice)) {
+				added[choice] += counts[i];
+				buckets[choice].add(i);
+				return true;
+			}
+
+			positions[i]++;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Getter for the latest preliminary result
+	 *
+	 * @return TabulationResult - the result over every ballot that has arrived, or null if none have
+	 */
+	public TabulationResult getResult() {
+		return result;
+	}
+
+	/**
+	 * Getter for the number of ballots that have arrived
+	 *
+	 * @return int - the number of ballots
+	 */
+	public int getBallotCount() {
+		return ballots.ballotCount();
+	}
+
+	/**
+	 * Getter for the number of rounds the latest batch carried over, with their vote counts updated, rather than
+	 * counting them again
+	 *
+	 * @return int - the number of rounds carried over
+	 */
+	public int getReusedRounds() {
+		return reusedRounds;
+	}
+}
@@ -0,0 +1,72 @@
+package voteCounter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A shard whose ballots are held in this process. It stands in for a {@link RemoteShard} when testing a sharded count
+ * on one machine, and it is what a {@link ShardWorker} counts with.
+ */
+public class LocalShard implements BallotShard {
+
+	//The shard's ballots, over every registered candidate
+	private Contest contest;
+	//Counts the shard's ballots. Only its transfers are used, never its rounds
+	private Tabulator tabulator;
+
+	/**
+	 * @param contest - Contest - the shard's ballots, over the same candidates as the rest of the contest
+	 */
+	public LocalShard(Contest contest) {
+		this.contest = contest;
+		this.tabulator = new Tabulator(contest, 1);
+	}
+
+	/**
+	 * Setter for the pool that the shard's transfers are tallied on
+	 *
+	 * @param tallyPool - ForkJoinPool - the pool, or null to tally on the calling thread
+	 */
+	public void setTallyPool(ForkJoinPool tallyPool) {
+		tabulator.setTallyPool(tallyPool);
+	}
+
+	/**
+	 * Getter for the shard's ballots
+	 *
+	 * @return Contest - the contest holding the shard's ballots
+	 */
+	public Contest getContest() {
+		return contest;
+	}
+
+	@Override
+	public ShardTally start(boolean fixedPoint) {
+		tabulator.setFixedPoint(fixedPoint);
+		tabulator.start();
+
+		return tabulator.getTally();
+	}
+
+	@Override
+	public ShardTally transfer(int[] from, double[] redistributeAmounts, long[] fixedRedistributeAmounts) {
+		List<Integer> ids = new ArrayList<>();
+		for(int candidate : from) {
+			ids.add(candidate);
+		}
+		tabulator.transferVotes(ids, redistributeAmounts, fixedRedistributeAmounts);
+
+		return tabulator.getTally();
+	}
+
+	@Override
+	public PairwiseMatrix countPairwise(int[] ids) {
+		return contest.getPairwiseMatrix(ids);
+	}
+
+	@Override
+	public void close() {
+		//the ballots are released with the shard
+	}
+}
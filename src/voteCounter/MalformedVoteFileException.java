@@ -0,0 +1,31 @@
+package voteCounter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thrown when a vote file has rows that cannot be read. Carries a description of each malformed row with its line
+ * number, so no count is run on an incomplete set of votes.
+ */
+public class MalformedVoteFileException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	//The description of each malformed row
+	private ArrayList<String> errors;
+
+	public MalformedVoteFileException(List<String> errors) {
+		super("The vote file contains malformed rows:\n" + String.join("\n", errors));
+		this.errors = new ArrayList<>(errors);
+	}
+
+	/**
+	 * Getter for the malformed rows
+	 *
+	 * @return {@code List<String>} - a description of each malformed row with its line number
+	 */
+	public List<String> getErrors() {
+		return errors;
+	}
+}
@@ -0,0 +1,58 @@
+package voteCounter;
+
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Ballot groups read in place from the memory-mapped sections of a {@link BallotSnapshot}. Nothing is copied onto the
+ * heap, so a contest of any size is ready to count as soon as it is mapped, and the operating system pages the
+ * rankings in as the count reaches them.<br>
+ * <br>
+ * A single mapping holds at most 2GB, but the rankings of a snapshot can take up to 4GB, so they are mapped in
+ * windows of {@link #WINDOW_SIZE} rankings, and a ranking is found by its window and its place in the window.
+ */
+public class MappedBallots implements BallotSource {
+
+	//The number of rankings in each window of the rankings, a power of two of 1GB
+	static final int WINDOW_BITS = 29;
+	static final int WINDOW_SIZE = 1 << WINDOW_BITS;
+	private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+
+	//The number of ballots in each group
+	private IntBuffer counts;
+	//The index in rankings at which each group starts, with one more entry marking the end of the last group
+	private IntBuffer offsets;
+	//The rankings of every ballot group, back to back, as candidate ids, in windows of WINDOW_SIZE rankings. Only the
+	//last window may be shorter
+	private ShortBuffer[] rankings;
+	//The number of ballots, over all groups
+	private int ballotCount;
+
+	MappedBallots(IntBuffer counts, IntBuffer offsets, ShortBuffer[] rankings, int ballotCount) {
+		this.counts = counts;
+		this.offsets = offsets;
+		this.rankings = rankings;
+		this.ballotCount = ballotCount;
+	}
+
+	public int size() {
+		return counts.limit();
+	}
+
+	public int ballotCount() {
+		return ballotCount;
+	}
+
+	public int count(int ballot) {
+		return counts.get(ballot);
+	}
+
+	public int length(int ballot) {
+		return offsets.get(ballot+1) - offsets.get(ballot);
+	}
+
+	public int choice(int ballot, int position) {
+		int index = offsets.get(ballot) + position;
+		return rankings[index >>> WINDOW_BITS].get(index & WINDOW_MASK);
+	}
+}
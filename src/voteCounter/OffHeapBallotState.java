@@ -0,0 +1,286 @@
+package voteCounter;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.BitSet;
+
+/**
+ * A {@link BallotState} holding the group, current choice and weight of every vote outside the heap, in buffers from a
+ * {@link StateMemory}. The state of a contest with a ballot group per ballot takes 16 bytes per ballot, so holding it
+ * here lets a contest far larger than the heap be counted, with the garbage collector never scanning or moving it.<br>
+ * <br>
+ * The buffers are read and written in place by index, in the order the counting loops visit the votes, and copies
+ * share them until either is altered, exactly as the arrays of a BallotState are.
+ */
+public class OffHeapBallotState extends BallotState {
+
+	//The store holding the rankings of the groups
+	private BallotSource store;
+	//Where the state of the votes is held
+	private StateMemory memory;
+	//The number of votes held
+	private int size = 0;
+	//The index in the store of each vote's ballot group
+	private IntBuffer groups;
+	//The index of the rankings that each vote is currently being counted for
+	private IntBuffer cursors;
+	//The weight of each ballot in each vote's group, when counting in double precision, otherwise null
+	private DoubleBuffer weights;
+	//The weight of each ballot in each vote's group, when counting in fixed-point, otherwise null
+	private LongBuffer fixedWeights;
+	//True while groups may be shared with a copy, so it must be copied before it is altered
+	private boolean groupsShared = false;
+	//True while cursors and the weights may be shared with a copy, so they must be copied before they are altered
+	private boolean choicesShared = false;
+
+	/**
+	 * Create the state of every group of a store, each at its first choice with full weight
+	 *
+	 * @param store - BallotSource - the ballots being counted
+	 * @param fixedPoint - boolean - true to hold fixed-point weights, false to hold double precision weights
+	 * @param memory - StateMemory - where to hold the state
+	 */
+	OffHeapBallotState(BallotSource store, boolean fixedPoint, StateMemory memory) {
+		this.store = store;
+		this.memory = memory;
+		size = store.size();
+
+		groups = memory.allocateInts(Math.max(16, size));
+		cursors = memory.allocateInts(groups.capacity());
+		if(fixedPoint) {
+			fixedWeights = memory.allocateLongs(groups.capacity());
+		} else {
+			weights = memory.allocateDoubles(groups.capacity());
+		}
+
+		for(int i=0; i<size; i++) {
+			groups.put(i, i);
+			if(fixedPoint) {
+				fixedWeights.put(i, FixedPoint.ONE);
+			} else {
+				weights.put(i, 1.0);
+			}
+		}
+	}
+
+	/**
+	 * Create a copy of another state. The buffers are shared until either state is altered
+	 */
+	private OffHeapBallotState(OffHeapBallotState other) {
+		this.store = other.store;
+		this.memory = other.memory;
+		this.size = other.size;
+		this.groups = other.groups;
+		this.cursors = other.cursors;
+		this.weights = other.weights;
+		this.fixedWeights = other.fixedWeights;
+		this.groupsShared = true;
+		this.choicesShared = true;
+		other.groupsShared = true;
+		other.choicesShared = true;
+		memory.share(groups);
+		memory.share(cursors);
+		memory.share(weights);
+		memory.share(fixedWeights);
+	}
+
+	@Override
+	BallotState copy() {
+		return new OffHeapBallotState(this);
+	}
+
+	@Override
+	public void own() {
+		if(choicesShared) {
+			IntBuffer oldCursors = cursors;
+			DoubleBuffer oldWeights = weights;
+			LongBuffer oldFixedWeights = fixedWeights;
+
+			cursors = memory.copyOf(oldCursors, size, cursors.capacity());
+			weights = oldWeights == null ? null : memory.copyOf(oldWeights, size, oldWeights.capacity());
+			fixedWeights = oldFixedWeights == null ? null : memory.copyOf(oldFixedWeights, size, oldFixedWeights.capacity());
+			choicesShared = false;
+
+			//the copy keeps its own hold on the shared buffers
+			memory.release(oldCursors);
+			memory.release(oldWeights);
+			memory.release(oldFixedWeights);
+		}
+	}
+
+	/**
+	 * Take a private copy of the groups if they may be shared with a copy of the state
+	 */
+	private void ownGroups() {
+		if(groupsShared) {
+			IntBuffer oldGroups = groups;
+			groups = memory.copyOf(oldGroups, size, oldGroups.capacity());
+			groupsShared = false;
+			memory.release(oldGroups);
+		}
+	}
+
+	@Override
+	public void setStore(BallotSource store) {
+		this.store = store;
+	}
+
+	@Override
+	public int add(int group) {
+		ownGroups();
+		own();
+		if(size == groups.capacity()) {
+			resize(size*2);
+		}
+
+		groups.put(size, group);
+		cursors.put(size, 0);
+		if(weights != null) {
+			weights.put(size, 1.0);
+		} else {
+			fixedWeights.put(size, FixedPoint.ONE);
+		}
+
+		return size++;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int getGroup(int vote) {
+		return groups.get(vote);
+	}
+
+	@Override
+	public int getCount(int vote) {
+		return store.count(groups.get(vote));
+	}
+
+	@Override
+	public int getChoiceCount(int vote) {
+		return store.length(groups.get(vote));
+	}
+
+	@Override
+	public int getChoice(int vote) {
+		return store.choice(groups.get(vote), cursors.get(vote));
+	}
+
+	@Override
+	public boolean moveToNextChoice(int vote, BitSet inactiveCandidates) {
+		int group = groups.get(vote);
+		int length = store.length(group);
+
+		for(int i=cursors.get(vote)+1; i<length; i++) {
+			if(!inactiveCandidates.get(store.choice(group, i))) {
+				cursors.put(vote, i);
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public double getWeight(int vote) {
+		return weights.get(vote);
+	}
+
+	@Override
+	public void alterWeight(int vote, double value) {
+		weights.put(vote, weights.get(vote)*value);
+	}
+
+	@Override
+	public long getFixedWeight(int vote) {
+		return fixedWeights.get(vote);
+	}
+
+	@Override
+	public void alterFixedWeight(int vote, long value) {
+		fixedWeights.put(vote, FixedPoint.multiply(fixedWeights.get(vote), value));
+	}
+
+	@Override
+	void write(DataOutputStream output) throws IOException {
+		output.writeInt(size);
+		output.writeBoolean(fixedWeights != null);
+
+		for(int i=0; i<size; i++) {
+			output.writeInt(groups.get(i));
+			//a ballot may rank a candidate more than once, so its cursor can pass the range of candidate ids
+			output.writeInt(cursors.get(i));
+			if(fixedWeights != null) {
+				output.writeLong(fixedWeights.get(i));
+			} else {
+				output.writeDouble(weights.get(i));
+			}
+		}
+	}
+
+	@Override
+	public void compact(IntList newIndexes, int remaining) {
+		ownGroups();
+		own();
+		for(int i=0; i<size; i++) {
+			int index = newIndexes.get(i);
+
+			if(index != -1) {
+				groups.put(index, groups.get(i));
+				cursors.put(index, cursors.get(i));
+				if(weights != null) {
+					weights.put(index, weights.get(i));
+				} else {
+					fixedWeights.put(index, fixedWeights.get(i));
+				}
+			}
+		}
+
+		size = remaining;
+
+		//release the memory of the removed votes once most of the buffers are unused
+		if(size*2 < groups.capacity() && groups.capacity() > 16) {
+			resize(Math.max(16, size));
+		}
+	}
+
+	/**
+	 * Move the state of the votes into buffers of a new capacity, releasing the old ones. The buffers are never shared
+	 * with a copy by then
+	 */
+	private void resize(int capacity) {
+		IntBuffer oldGroups = groups;
+		IntBuffer oldCursors = cursors;
+		DoubleBuffer oldWeights = weights;
+		LongBuffer oldFixedWeights = fixedWeights;
+
+		groups = memory.copyOf(oldGroups, size, capacity);
+		cursors = memory.copyOf(oldCursors, size, capacity);
+		weights = oldWeights == null ? null : memory.copyOf(oldWeights, size, capacity);
+		fixedWeights = oldFixedWeights == null ? null : memory.copyOf(oldFixedWeights, size, capacity);
+
+		memory.release(oldGroups);
+		memory.release(oldCursors);
+		memory.release(oldWeights);
+		memory.release(oldFixedWeights);
+	}
+
+	@Override
+	void release() {
+		//buffers still shared with a copy of the state are only reused once the copy has released them too
+		memory.release(groups);
+		memory.release(cursors);
+		memory.release(weights);
+		memory.release(fixedWeights);
+		groups = null;
+		cursors = null;
+		weights = null;
+		fixedWeights = null;
+	}
+}
@@ -0,0 +1,110 @@
+package voteCounter;
+
+import java.nio.IntBuffer;
+
+/**
+ * An {@link IntList} holding its values outside the heap, in a buffer from a {@link StateMemory}. Used for the
+ * candidates' buckets of ballot groups and the scratch space of each round when the state of a count is held off the
+ * heap, since each of them can hold an entry for every ballot group.
+ */
+public class OffHeapIntList extends IntList {
+
+	//Where the values are held
+	private StateMemory memory;
+	private IntBuffer values;
+	private int size = 0;
+	//True while values may be shared with a copy, so they must be copied before they are altered
+	private boolean shared = false;
+
+	/**
+	 * @param memory - StateMemory - where to hold the values
+	 */
+	OffHeapIntList(StateMemory memory) {
+		super(0);
+		this.memory = memory;
+		values = memory.allocateInts(16);
+	}
+
+	/**
+	 * Create a list holding the same values as another. The values are shared until either list is altered
+	 */
+	private OffHeapIntList(OffHeapIntList other) {
+		super(0);
+		memory = other.memory;
+		values = other.values;
+		size = other.size;
+		shared = true;
+		other.shared = true;
+		memory.share(values);
+	}
+
+	@Override
+	IntList copy() {
+		return new OffHeapIntList(this);
+	}
+
+	/**
+	 * Take a private copy of the values if they may be shared with a copy of the list, releasing this list's hold on
+	 * the shared ones
+	 */
+	private void own() {
+		if(shared) {
+			IntBuffer old = values;
+			values = memory.copyOf(old, size, Math.max(16, size));
+			memory.release(old);
+			shared = false;
+		}
+	}
+
+	@Override
+	public void add(int value) {
+		own();
+		if(size == values.capacity()) {
+			resize(size*2);
+		}
+
+		values.put(size++, value);
+	}
+
+	@Override
+	public int get(int index) {
+		return values.get(index);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void set(int index, int value) {
+		own();
+		values.put(index, value);
+	}
+
+	@Override
+	public void grow(int newSize) {
+		own();
+		if(newSize > values.capacity()) {
+			resize(Math.max(newSize, values.capacity()*2));
+		}
+
+		size = newSize;
+	}
+
+	@Override
+	void release() {
+		//values still shared with a copy of the list are only reused once the copy has released them too
+		memory.release(values);
+		values = null;
+	}
+
+	/**
+	 * Move the values into a buffer of a new capacity, releasing the old one, which is never shared by then
+	 */
+	private void resize(int capacity) {
+		IntBuffer old = values;
+		values = memory.copyOf(old, size, capacity);
+		memory.release(old);
+	}
+}
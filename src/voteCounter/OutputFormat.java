@@ -0,0 +1,53 @@
+package voteCounter;
+
+import java.util.Locale;
+
+/**
+ * Escaping and formatting shared by the JSON and csv files the counter writes, so every file quotes names and
+ * writes times the same way
+ */
+class OutputFormat {
+
+	/**
+	 * Quote a JSON string, escaping the characters that cannot appear in one as they are
+	 *
+	 * @param value - String - the string
+	 * @return String - the quoted string
+	 */
+	static String jsonString(String value) {
+		StringBuilder quoted = new StringBuilder("\"");
+
+		for(int i=0; i<value.length(); i++) {
+			char c = value.charAt(i);
+			if(c == '"' || c == '\\') {
+				quoted.append('\\').append(c);
+			} else if(c < 0x20) {
+				quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+			} else {
+				quoted.append(c);
+			}
+		}
+
+		return quoted.append('"').toString();
+	}
+
+	/**
+	 * Quote a csv field, doubling any quotes inside it
+	 *
+	 * @param field - String - the field
+	 * @return String - the quoted field
+	 */
+	static String csvField(String field) {
+		return "\"" + field.replace("\"", "\"\"") + "\"";
+	}
+
+	/**
+	 * Format a time in nanoseconds as milliseconds with three decimals
+	 *
+	 * @param nanos - long - the time in nanoseconds
+	 * @return String - the time in milliseconds
+	 */
+	static String formatMillis(long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+	}
+}
@@ -0,0 +1,205 @@
+package voteCounter;
+
+import java.util.Arrays;
+
+/**
+ * Head-to-head counts between a set of candidates, held in one flat matrix. For candidates x and y, entry (x, y) is
+ * the number of ballots on which x beats y: x is ranked and y is either ranked lower or not ranked at all. Alongside
+ * the matrix, each candidate's points are counted, where a ballot gives a candidate one point for every ranking from
+ * their position to the end of the ballot.<br>
+ * <br>
+ * Every ballot group is visited once. Its rankings are walked to find the position of each candidate in the set,
+ * using a lookup from candidate id to matrix index, so a group costs O(ranking length squared) at most and nothing is
+ * allocated per ballot.<br>
+ * <br>
+ * The counts only depend on the original ballots, so a matrix of every candidate can be counted once per contest, and
+ * the matrix of any set of tied candidates sliced from it without visiting the ballots again.
+ */
+public class PairwiseMatrix {
+
+	//The most candidates for which a matrix of every candidate is counted up front, bounding it to 8MB
+	public static final int MAX_PRECOUNTED_CANDIDATES = 1024;
+
+	//The number of candidates in the matrix
+	private int size;
+	//The head to head counts, with entry (x, y) at index x*size + y
+	private long[] beats;
+	//The points of each candidate
+	private long[] points;
+
+	private PairwiseMatrix(int size) {
+		this.size = size;
+		this.beats = new long[size*size];
+		this.points = new long[size];
+	}
+
+	/**
+	 * Count the head to head results and points of a set of candidates over every ballot
+	 *
+	 * @param ballots - BallotSource - the original ballots
+	 * @param candidates - int[] - the ids of the candidates to compare. Matrix index i refers to candidates[i]
+	 * @param candidateCount - int - the number of registered candidates
+	 * @return PairwiseMatrix - the counts
+	 */
+	public static PairwiseMatrix count(BallotSource ballots, int[] candidates, int candidateCount) {
+		int k = candidates.length;
+		PairwiseMatrix matrix = new PairwiseMatrix(k);
+
+		//the matrix index of each candidate id, or -1 if they are not being compared
+		int[] indexOf = new int[candidateCount];
+		Arrays.fill(indexOf, -1);
+		for(int i=0; i<k; i++) {
+			indexOf[candidates[i]] = i;
+		}
+
+		//the group in which each matrix index was last seen, so repeat rankings can be ignored without clearing
+		int[] seenIn = new int[k];
+		Arrays.fill(seenIn, -1);
+		//the matrix indexes found on the current ballot, in ranking order
+		int[] order = new int[k];
+		//the number of ballots ranking each candidate
+		long[] ranked = new long[k];
+		//entry (x, y) counts ballots ranking both candidates with x above y
+		long[] above = new long[k*k];
+
+		for(int group=0; group<ballots.size(); group++) {
+			int count = ballots.count(group);
+			int length = ballots.length(group);
+			int found = 0;
+
+			for(int position=0; position<length && found<k; position++) {
+				int index = indexOf[ballots.choice(group, position)];
+
+				if(index != -1 && seenIn[index] != group) {
+					seenIn[index] = group;
+					matrix.points[index] += (long) count * (length - position);
+					ranked[index] += count;
+
+					//this candidate is ranked below every candidate already found on the ballot
+					for(int i=0; i<found; i++) {
+						above[order[i]*k + index] += count;
+					}
+					order[found++] = index;
+				}
+			}
+		}
+
+		//x beats y on every ballot ranking x, except those that also rank y above x
+		for(int x=0; x<k; x++) {
+			for(int y=0; y<k; y++) {
+				if(x != y) {
+					matrix.beats[x*k + y] = ranked[x] - above[y*k + x];
+				}
+			}
+		}
+
+		return matrix;
+	}
+
+	/**
+	 * Count the head to head results and points of every registered candidate, so that matrix index and candidate id
+	 * are the same
+	 *
+	 * @param ballots - BallotSource - the original ballots
+	 * @param candidateCount - int - the number of registered candidates
+	 * @return PairwiseMatrix - the counts
+	 */
+	public static PairwiseMatrix countAll(BallotSource ballots, int candidateCount) {
+		int[] candidates = new int[candidateCount];
+		for(int i=0; i<candidateCount; i++) {
+			candidates[i] = i;
+		}
+
+		return count(ballots, candidates, candidateCount);
+	}
+
+	/**
+	 * Take the counts of a subset of the candidates in this matrix, in O(k^2) for k candidates
+	 *
+	 * @param indexes - int[] - the indexes in this matrix of the candidates to keep. Index i of the slice refers to indexes[i]
+	 * @return PairwiseMatrix - the counts between the kept candidates
+	 */
+	public PairwiseMatrix slice(int[] indexes) {
+		int k = indexes.length;
+		PairwiseMatrix slice = new PairwiseMatrix(k);
+
+		for(int x=0; x<k; x++) {
+			slice.points[x] = points[indexes[x]];
+
+			for(int y=0; y<k; y++) {
+				slice.beats[x*k + y] = beats[indexes[x]*size + indexes[y]];
+			}
+		}
+
+		return slice;
+	}
+
+	/**
+	 * Add the counts of another matrix of the same candidates, such as one counted over a different set of ballots
+	 *
+	 * @param other - PairwiseMatrix - the counts to add, with the same candidate at each matrix index
+	 * @return PairwiseMatrix - the counts of both matrices added together
+	 * @throws IllegalArgumentException if the matrices are of different sizes
+	 */
+	public PairwiseMatrix add(PairwiseMatrix other) {
+		if(other.size != size) {
+			throw new IllegalArgumentException("Only matrices of the same candidates can be added");
+		}
+
+		PairwiseMatrix sum = new PairwiseMatrix(size);
+		for(int i=0; i<beats.length; i++) {
+			sum.beats[i] = beats[i] + other.beats[i];
+		}
+		for(int i=0; i<size; i++) {
+			sum.points[i] = points[i] + other.points[i];
+		}
+
+		return sum;
+	}
+
+	/**
+	 * Create a matrix from counts made elsewhere, such as by a shard in another process
+	 *
+	 * @param size - int - the number of candidates
+	 * @param beats - long[] - the head to head counts, with entry (x, y) at index x*size + y
+	 * @param points - long[] - the points of each candidate
+	 * @return PairwiseMatrix - the counts
+	 */
+	static PairwiseMatrix of(int size, long[] beats, long[] points) {
+		PairwiseMatrix matrix = new PairwiseMatrix(size);
+		System.arraycopy(beats, 0, matrix.beats, 0, size*size);
+		System.arraycopy(points, 0, matrix.points, 0, size);
+
+		return matrix;
+	}
+
+	/**
+	 * Getter for the number of candidates in the matrix
+	 *
+	 * @return int - the number of candidates compared
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get the number of ballots on which one candidate beats another
+	 *
+	 * @param runner - int - the matrix index of the runner
+	 * @param opponent - int - the matrix index of the opponent
+	 * @return long - the number of ballots on which the runner beats the opponent
+	 */
+	public long get(int runner, int opponent) {
+		return beats[runner*size + opponent];
+	}
+
+	/**
+	 * Get the points of a candidate
+	 *
+	 * @param candidate - int - the matrix index of the candidate
+	 * @return long - the candidate's total points over every ballot
+	 */
+	public long getPoints(int candidate) {
+		return points[candidate];
+	}
+}
@@ -0,0 +1,201 @@
+package voteCounter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A shard whose ballots are held by a {@link ShardWorker} in another process, reached either through the pipes of a
+ * worker process it launched or through a TCP connection to a worker listening on another host.
+ */
+public class RemoteShard implements BallotShard {
+
+	//The registered candidates, sent to the worker so it can check it lists the same ones
+	private CandidateRegistry candidates;
+	//A description of the worker, for messages
+	private String name;
+	//The requests sent to the worker
+	private DataOutputStream output;
+	//The worker's responses
+	private DataInputStream input;
+	//The worker process launched, or null if connected to a listening worker
+	private Process process;
+	//The connection to a listening worker, or null if a worker process was launched
+	private Socket socket;
+
+	private RemoteShard(CandidateRegistry candidates, String name, DataOutputStream output, DataInputStream input) {
+		this.candidates = candidates;
+		this.name = name;
+		this.output = output;
+		this.input = input;
+	}
+
+	/**
+	 * Launch a worker process on this host, running on the same Java installation and class path as this one
+	 *
+	 * @param candidates - CandidateRegistry - the registered candidates
+	 * @param candidateFileName - String - the name of the candidate file, for the worker to read
+	 * @param voteFileNames - {@code List<String>} - the names of the shard's vote files, for the worker to read
+	 * @return RemoteShard - the shard
+	 * @throws IOException if the worker could not be launched
+	 */
+	public static RemoteShard launch(CandidateRegistry candidates, String candidateFileName, List<String> voteFileNames) throws IOException {
+		ArrayList<String> command = new ArrayList<>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+
+		//run the worker the same way this process was run, from a module or from the class path
+		String modulePath = System.getProperty("jdk.module.path");
+		if(modulePath != null && ShardWorker.class.getModule().isNamed()) {
+			command.add("-p");
+			command.add(modulePath);
+			command.add("-m");
+			command.add(ShardWorker.class.getModule().getName() + "/" + ShardWorker.class.getName());
+		} else {
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(ShardWorker.class.getName());
+		}
+		command.add(candidateFileName);
+		command.addAll(voteFileNames);
+
+		//the worker's own messages, such as a vote file it could not read, are shown as they are
+		Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+		RemoteShard shard = new RemoteShard(candidates, String.join(",", voteFileNames),
+				new DataOutputStream(new BufferedOutputStream(process.getOutputStream())),
+				new DataInputStream(new BufferedInputStream(process.getInputStream())));
+		shard.process = process;
+
+		return shard;
+	}
+
+	/**
+	 * Connect to a worker listening on a TCP port
+	 *
+	 * @param candidates - CandidateRegistry - the registered candidates
+	 * @param host - String - the worker's host
+	 * @param port - int - the port the worker listens on
+	 * @return RemoteShard - the shard
+	 * @throws IOException if the worker could not be reached
+	 */
+	public static RemoteShard connect(CandidateRegistry candidates, String host, int port) throws IOException {
+		Socket socket = new Socket(host, port);
+		socket.setTcpNoDelay(true);
+
+		RemoteShard shard = new RemoteShard(candidates, host + ":" + port,
+				new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())),
+				new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+		shard.socket = socket;
+
+		return shard;
+	}
+
+	@Override
+	public ShardTally start(boolean fixedPoint) throws IOException {
+		output.writeByte(ShardWorker.REQUEST_START);
+		output.writeBoolean(fixedPoint);
+		output.writeInt(candidates.size());
+		for(int candidate=0; candidate<candidates.size(); candidate++) {
+			output.writeUTF(candidates.getName(candidate));
+		}
+		output.flush();
+
+		readResponse();
+		return ShardTally.read(input, candidates.size());
+	}
+
+	@Override
+	public ShardTally transfer(int[] from, double[] redistributeAmounts, long[] fixedRedistributeAmounts) throws IOException {
+		output.writeByte(ShardWorker.REQUEST_TRANSFER);
+		output.writeInt(from.length);
+		for(int candidate : from) {
+			output.writeInt(candidate);
+		}
+
+		//only the weights of the candidates transferred from are sent
+		if(fixedRedistributeAmounts != null) {
+			output.writeByte(ShardWorker.WEIGHTS_FIXED);
+			for(int candidate : from) {
+				output.writeLong(fixedRedistributeAmounts[candidate]);
+			}
+		} else if(redistributeAmounts != null) {
+			output.writeByte(ShardWorker.WEIGHTS_DOUBLE);
+			for(int candidate : from) {
+				output.writeDouble(redistributeAmounts[candidate]);
+			}
+		} else {
+			output.writeByte(ShardWorker.WEIGHTS_NONE);
+		}
+		output.flush();
+
+		readResponse();
+		return ShardTally.read(input, candidates.size());
+	}
+
+	@Override
+	public PairwiseMatrix countPairwise(int[] ids) throws IOException {
+		output.writeByte(ShardWorker.REQUEST_PAIRWISE);
+		output.writeInt(ids.length);
+		for(int id : ids) {
+			output.writeInt(id);
+		}
+		output.flush();
+
+		readResponse();
+		long[] beats = new long[ids.length*ids.length];
+		long[] points = new long[ids.length];
+		for(int x=0; x<ids.length; x++) {
+			points[x] = input.readLong();
+			for(int y=0; y<ids.length; y++) {
+				beats[x*ids.length + y] = input.readLong();
+			}
+		}
+
+		return PairwiseMatrix.of(ids.length, beats, points);
+	}
+
+	/**
+	 * Read the status of a response, throwing the worker's error message if it failed
+	 */
+	private void readResponse() throws IOException {
+		int status;
+		try {
+			status = input.readByte();
+		} catch (EOFException e) {
+			throw new IOException("The worker for " + name + " closed the connection.", e);
+		}
+
+		if(status != ShardWorker.RESPONSE_OK) {
+			throw new IOException("The worker for " + name + " failed: " + input.readUTF());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			output.writeByte(ShardWorker.REQUEST_CLOSE);
+			output.close();
+		} catch (IOException e) {
+			//the worker has already gone
+		}
+
+		if(process != null) {
+			input.close();
+			try {
+				process.waitFor();
+			} catch (InterruptedException e) {
+				process.destroy();
+				Thread.currentThread().interrupt();
+			}
+		}
+		if(socket != null) {
+			socket.close();
+		}
+	}
+}
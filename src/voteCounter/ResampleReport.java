@@ -0,0 +1,126 @@
+package voteCounter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of counting a contest on many resamples of its ballots, as made by a {@link Resampler}: how often each
+ * set of winners won, and how close the last seat was in each resample.
+ */
+public class ResampleReport {
+
+	//The registry the candidate ids refer to
+	private CandidateRegistry candidates;
+	//The chance of each ballot being dropped from a resample, or 0 if the resamples were bootstraps
+	private double dropRate;
+	//Each set of winners that won any resample, with its ids in order, and the number of resamples it won
+	private Map<List<Integer>, Integer> winnerSets;
+	//The number of resamples each candidate won, by id
+	private int[] winCounts;
+	//The margin of the last seat in each resample as a share of the resample's ballots, from the smallest up
+	private double[] margins;
+
+	ResampleReport(CandidateRegistry candidates, double dropRate, Map<List<Integer>, Integer> winnerSets, double[] margins) {
+		this.candidates = candidates;
+		this.dropRate = dropRate;
+		this.winnerSets = Collections.unmodifiableMap(winnerSets);
+		this.margins = margins.clone();
+		Arrays.sort(this.margins);
+
+		winCounts = new int[candidates.size()];
+		winnerSets.forEach((winners, count) -> {
+			for(int candidate : winners) {
+				winCounts[candidate] += count;
+			}
+		});
+	}
+
+	/**
+	 * Getter for the candidates
+	 *
+	 * @return CandidateRegistry - the registry the candidate ids refer to
+	 */
+	public CandidateRegistry getCandidates() {
+		return candidates;
+	}
+
+	/**
+	 * Getter for the drop rate
+	 *
+	 * @return double - the chance of each ballot being dropped from a resample, or 0 if the resamples were bootstraps
+	 */
+	public double getDropRate() {
+		return dropRate;
+	}
+
+	/**
+	 * Getter for the number of resamples counted
+	 *
+	 * @return int - the number of resamples
+	 */
+	public int getResamples() {
+		return margins.length;
+	}
+
+	/**
+	 * Getter for the number of resamples a candidate won
+	 *
+	 * @param candidate - int - the id of the candidate
+	 * @return int - the number of resamples in which the candidate was one of the winners
+	 */
+	public int getWinCount(int candidate) {
+		return winCounts[candidate];
+	}
+
+	/**
+	 * Getter for the number of resamples a set of winners won
+	 *
+	 * @param winners - {@code List<Integer>} - the ids of the winners, in any order
+	 * @return int - the number of resamples won by exactly these winners
+	 */
+	public int getWinnerSetCount(List<Integer> winners) {
+		ArrayList<Integer> sorted = new ArrayList<>(winners);
+		Collections.sort(sorted);
+
+		return winnerSets.getOrDefault(sorted, 0);
+	}
+
+	/**
+	 * Getter for the sets of winners
+	 *
+	 * @return {@code List<List<Integer>>} - each set of winners that won any resample, with its ids in order, from the
+	 * 		set that won the most resamples down, and sets that won as many in order of their ids
+	 */
+	public List<List<Integer>> getWinnerSets() {
+		ArrayList<List<Integer>> sets = new ArrayList<>(winnerSets.keySet());
+		sets.sort((a, b) -> {
+			int compared = Integer.compare(winnerSets.get(b), winnerSets.get(a));
+			for(int i=0; compared == 0 && i<a.size(); i++) {
+				compared = Integer.compare(a.get(i), b.get(i));
+			}
+			return compared;
+		});
+
+		return sets;
+	}
+
+	/**
+	 * Get a percentile of the margin of the last seat: the votes of the weakest winner over the strongest loser, in
+	 * the last round a loser was still in, as a share of the resample's ballots
+	 *
+	 * @param percentile - double - the percentile, from 0 for the smallest margin to 100 for the largest
+	 * @return double - the margin at that percentile, by the nearest rank
+	 */
+	public double getMarginPercentile(double percentile) {
+		if(margins.length == 0) {
+			return 0;
+		}
+
+		int rank = (int) Math.ceil(percentile / 100 * margins.length);
+
+		return margins[Math.min(Math.max(rank - 1, 0), margins.length - 1)];
+	}
+}
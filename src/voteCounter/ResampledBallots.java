@@ -0,0 +1,131 @@
+package voteCounter;
+
+import java.util.SplittableRandom;
+
+/**
+ * A resample of the ballots of a contest, read through the rankings of the original ballot groups. Only the number of
+ * ballots drawn from each group is held, along with the indexes of the groups drawn at least once, so a resample of
+ * any size costs a few arrays of ints and the rankings are never copied.<br>
+ * <br>
+ * The arrays are sized to the original groups once and refilled by each resample, so one instance can be reused for
+ * every resample counted on a thread. A resample must not be refilled while a count of it is still in progress.
+ */
+public class ResampledBallots implements BallotSource {
+
+	//The original ballots, which every resample reads the rankings of
+	private BallotSource original;
+	//The number of ballots drawn from each original group, by original group index. Only used while drawing
+	private int[] draws;
+	//The original index of each group drawn at least once, in original order
+	private int[] groups;
+	//The number of ballots drawn from each group in groups
+	private int[] counts;
+	//The number of groups drawn at least once
+	private int size = 0;
+	//The number of ballots drawn, over all groups
+	private int ballotCount = 0;
+
+	/**
+	 * @param original - BallotSource - the ballots to draw resamples from
+	 */
+	public ResampledBallots(BallotSource original) {
+		this.original = original;
+		this.draws = new int[original.size()];
+		this.groups = new int[original.size()];
+		this.counts = new int[original.size()];
+	}
+
+	/**
+	 * Map every original ballot to the index of its group, so a bootstrap can draw a ballot with a single random
+	 * number. The map is only read, so it can be shared by every resample of the same ballots
+	 *
+	 * @param original - BallotSource - the original ballots
+	 * @return int[] - the index of the group of each ballot, with each group's ballots together
+	 */
+	static int[] ballotGroups(BallotSource original) {
+		int[] ballotGroups = new int[original.ballotCount()];
+		int ballot = 0;
+
+		for(int group=0; group<original.size(); group++) {
+			for(int i=original.count(group); i>0; i--) {
+				ballotGroups[ballot++] = group;
+			}
+		}
+
+		return ballotGroups;
+	}
+
+	/**
+	 * Refill the resample with a bootstrap: as many ballots as the original, each drawn at random from every original
+	 * ballot, so some ballots are drawn several times and others not at all
+	 *
+	 * @param random - SplittableRandom - the source of the draws
+	 * @param ballotGroups - int[] - the group of each original ballot, from {@link #ballotGroups(BallotSource)}
+	 */
+	void bootstrap(SplittableRandom random, int[] ballotGroups) {
+		for(int i=0; i<ballotGroups.length; i++) {
+			draws[ballotGroups[random.nextInt(ballotGroups.length)]]++;
+		}
+
+		collectDraws();
+	}
+
+	/**
+	 * Refill the resample by dropping each original ballot independently at random, as though some ballots had been
+	 * lost or never cast
+	 *
+	 * @param random - SplittableRandom - the source of the draws
+	 * @param dropRate - double - the chance of each ballot being dropped, from 0 to 1
+	 */
+	void drop(SplittableRandom random, double dropRate) {
+		for(int group=0; group<original.size(); group++) {
+			int kept = 0;
+			for(int i=original.count(group); i>0; i--) {
+				if(random.nextDouble() >= dropRate) {
+					kept++;
+				}
+			}
+			draws[group] = kept;
+		}
+
+		collectDraws();
+	}
+
+	/**
+	 * Gather the groups drawn at least once into groups and counts, and clear the draws for the next resample
+	 */
+	private void collectDraws() {
+		size = 0;
+		ballotCount = 0;
+
+		for(int group=0; group<draws.length; group++) {
+			if(draws[group] > 0) {
+				groups[size] = group;
+				counts[size] = draws[group];
+				ballotCount += draws[group];
+				size++;
+				draws[group] = 0;
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int ballotCount() {
+		return ballotCount;
+	}
+
+	public int count(int ballot) {
+		return counts[ballot];
+	}
+
+	public int length(int ballot) {
+		return original.length(groups[ballot]);
+	}
+
+	public int choice(int ballot, int position) {
+		return original.choice(groups[ballot], position);
+	}
+}
@@ -0,0 +1,210 @@
+package voteCounter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests how robust the result of a contest is to noise in its ballots, by counting it again on many random resamples
+ * of the ballots and reporting how often each candidate wins and how close the last seat was.<br>
+ * <br>
+ * By default each resample is a bootstrap, drawing as many ballots as were cast at random with replacement. With a
+ * drop rate, each resample instead drops every ballot independently with that chance. Each resample is held as a
+ * {@link ResampledBallots}, which only counts the ballots drawn from each original ballot group, so the rankings are
+ * shared by every resample and each thread reuses the same arrays for all of its resamples.<br>
+ * <br>
+ * The resamples are counted in parallel, one whole count per thread at a time. The random numbers of every resample
+ * are split from one seed before any are counted, so a seeded run gives the same report on any number of threads.
+ */
+public class Resampler {
+
+	//The contest to resample
+	private Contest contest;
+	//The number of candidates that can win
+	private int numberOfWinners;
+	//Option: count each resample in fixed-point rather than double precision
+	private boolean fixedPoint = true;
+	//Option: eliminate every mathematically defeated candidate in one round
+	private boolean batchElimination = false;
+	//Option: elect every candidate over the threshold in one round
+	private boolean simultaneousElection = false;
+	//Option: the chance of each ballot being dropped from a resample, or 0 to bootstrap instead
+	private double dropRate = 0;
+
+	/**
+	 * @param contest - Contest - the contest to resample
+	 * @param numberOfWinners - int - the number of candidates that can win
+	 * @throws IllegalArgumentException if the number of winners is below 1 or above the number of candidates
+	 */
+	public Resampler(Contest contest, int numberOfWinners) {
+		if(numberOfWinners < 1 || numberOfWinners > contest.getCandidates().size()) {
+			throw new IllegalArgumentException("The number of winners must be at least 1 and no more than the number of candidates");
+		}
+
+		this.contest = contest;
+		this.numberOfWinners = numberOfWinners;
+	}
+
+	/**
+	 * Setter for the arithmetic each resample is counted in
+	 *
+	 * @param fixedPoint - boolean - true to count in fixed-point, false to count in double precision
+	 */
+	public void setFixedPoint(boolean fixedPoint) {
+		this.fixedPoint = fixedPoint;
+	}
+
+	/**
+	 * Setter for batch elimination, as for {@link Tabulator#setBatchElimination(boolean)}
+	 *
+	 * @param batchElimination - boolean - true to eliminate every defeated candidate in one round
+	 */
+	public void setBatchElimination(boolean batchElimination) {
+		this.batchElimination = batchElimination;
+	}
+
+	/**
+	 * Setter for simultaneous election, as for {@link Tabulator#setSimultaneousElection(boolean)}
+	 *
+	 * @param simultaneousElection - boolean - true to elect every candidate over the threshold in one round
+	 */
+	public void setSimultaneousElection(boolean simultaneousElection) {
+		this.simultaneousElection = simultaneousElection;
+	}
+
+	/**
+	 * Setter for the drop rate. When above 0, each resample drops every ballot independently with this chance rather
+	 * than being a bootstrap
+	 *
+	 * @param dropRate - double - the chance of each ballot being dropped, from 0 up to but not including 1
+	 * @throws IllegalArgumentException if the rate is below 0 or not below 1
+	 */
+	public void setDropRate(double dropRate) {
+		if(!(dropRate >= 0 && dropRate < 1)) {
+			throw new IllegalArgumentException("The drop rate must be at least 0 and below 1");
+		}
+
+		this.dropRate = dropRate;
+	}
+
+	/**
+	 * Count the resamples
+	 *
+	 * @param resamples - int - the number of resamples to count
+	 * @param random - SplittableRandom - the source every resample's random numbers are split from
+	 * @param pool - ForkJoinPool - the pool the resamples are counted on, one per thread at a time
+	 * @return ResampleReport - how often each candidate won and the margins of the last seat
+	 */
+	public ResampleReport run(int resamples, SplittableRandom random, ForkJoinPool pool) {
+		//the random numbers are split in resample order here, so which thread counts a resample cannot change it
+		SplittableRandom[] randoms = new SplittableRandom[resamples];
+		for(int i=0; i<resamples; i++) {
+			randoms[i] = random.split();
+		}
+
+		int[] ballotGroups = dropRate > 0 ? null : ResampledBallots.ballotGroups(contest.getBallots());
+		double[] margins = new double[resamples];
+		AtomicInteger next = new AtomicInteger();
+
+		//each worker takes the next resample until none are left, reusing its arrays for every one
+		ArrayList<Callable<Map<List<Integer>, Integer>>> workers = new ArrayList<>();
+		for(int i=Math.min(pool.getParallelism(), resamples); i>0; i--) {
+			workers.add(() -> {
+				ResampledBallots ballots = new ResampledBallots(contest.getBallots());
+				HashMap<List<Integer>, Integer> winnerSets = new HashMap<>();
+
+				for(int resample=next.getAndIncrement(); resample<resamples; resample=next.getAndIncrement()) {
+					if(dropRate > 0) {
+						ballots.drop(randoms[resample], dropRate);
+					} else {
+						ballots.bootstrap(randoms[resample], ballotGroups);
+					}
+
+					Tabulator tabulator = new Tabulator(new Contest(contest.getCandidates(), ballots), numberOfWinners);
+					tabulator.setFixedPoint(fixedPoint);
+					tabulator.setBatchElimination(batchElimination);
+					tabulator.setSimultaneousElection(simultaneousElection);
+					tabulator.setRandom(new Random(randoms[resample].nextLong()));
+					TabulationResult result = tabulator.run();
+
+					ArrayList<Integer> winners = new ArrayList<>(result.getWinners());
+					Collections.sort(winners);
+					winnerSets.merge(winners, 1, Integer::sum);
+					margins[resample] = lastSeatMargin(result) / Math.max(ballots.ballotCount(), 1);
+				}
+
+				return winnerSets;
+			});
+		}
+
+		HashMap<List<Integer>, Integer> winnerSets = new HashMap<>();
+		for(Future<Map<List<Integer>, Integer>> worker : pool.invokeAll(workers)) {
+			try {
+				worker.get().forEach((winners, count) -> winnerSets.merge(winners, count, Integer::sum));
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("A resample could not be counted", e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while counting the resamples", e);
+			}
+		}
+
+		return new ResampleReport(contest.getCandidates(), dropRate, winnerSets, margins);
+	}
+
+	/**
+	 * Find how close the last seat was: the votes of the weakest winner over the strongest loser, in the last round
+	 * that a loser was still in. Winners elected in earlier rounds are left out, since their votes were cut to the
+	 * threshold when their surplus was transferred
+	 *
+	 * @param result - TabulationResult - the result of a complete count
+	 * @return double - the margin in votes, or 0 if no loser was in any round
+	 */
+	static double lastSeatMargin(TabulationResult result) {
+		List<Integer> winners = result.getWinners();
+		int candidateCount = result.getCandidates().size();
+		ArrayList<Integer> electedBefore = new ArrayList<>();
+		RoundResult contested = null;
+		List<Integer> electedBeforeContested = null;
+
+		for(RoundResult round : result.getRounds()) {
+			for(int candidate=0; candidate<candidateCount; candidate++) {
+				if(round.isContinuing(candidate) && !winners.contains(candidate)) {
+					contested = round;
+					electedBeforeContested = new ArrayList<>(electedBefore);
+					break;
+				}
+			}
+			electedBefore.addAll(round.getElected());
+		}
+
+		if(contested == null) {
+			return 0;
+		}
+
+		double weakestWinner = Double.MAX_VALUE;
+		double strongestLoser = 0;
+		for(int candidate=0; candidate<candidateCount; candidate++) {
+			if(!contested.isContinuing(candidate)) {
+				continue;
+			}
+
+			if(!winners.contains(candidate)) {
+				strongestLoser = Math.max(strongestLoser, contested.getVoteCount(candidate));
+			} else if(!electedBeforeContested.contains(candidate)) {
+				weakestWinner = Math.min(weakestWinner, contested.getVoteCount(candidate));
+			}
+		}
+
+		return weakestWinner == Double.MAX_VALUE ? 0 : weakestWinner - strongestLoser;
+	}
+}
@@ -0,0 +1,255 @@
+package voteCounter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes the full history of a count, as JSON or as csv: the vote counts and exhausted ballots at the start of every
+ * round, the votes each candidate received in it and the votes it exhausted, the candidates it elected or eliminated,
+ * and how any tie for last place was broken, with the head to head figures of a {@link TieBreakPolicy#CONDORCET} tie
+ * break. The history is read from the {@link TabulationResult}, which already holds every round, and is written once,
+ * through a buffered writer, after the count.<br>
+ * <br>
+ * The votes a round transferred are the difference between its vote counts and those of the next round, or of the
+ * final tally after the last round. Only the candidates still in the count afterwards receive votes, and the
+ * candidates the votes came from are the ones the round elected or eliminated. Votes are written in the arithmetic the
+ * count used, exactly as fixed-point, or as double precision.
+ */
+public class ResultsWriter {
+
+	//The name of the contest, written with the results
+	private String name;
+	//The count to write
+	private TabulationResult result;
+
+	/**
+	 * @param name - String - the name of the contest, such as its vote file
+	 * @param result - TabulationResult - the count to write, which must have started
+	 */
+	public ResultsWriter(String name, TabulationResult result) {
+		this.name = name;
+		this.result = result;
+	}
+
+	/**
+	 * Write the results to a file as JSON
+	 *
+	 * @param file - Path - the file to write
+	 * @throws IOException if the file could not be written
+	 */
+	public void writeJson(Path file) throws IOException {
+		try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writeJson(writer);
+		}
+	}
+
+	/**
+	 * Write the results to a file as csv, with a row for every candidate in each round and a row for the exhausted
+	 * ballots
+	 *
+	 * @param file - Path - the file to write
+	 * @throws IOException if the file could not be written
+	 */
+	public void writeCsv(Path file) throws IOException {
+		try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writeCsv(writer);
+		}
+	}
+
+	/**
+	 * Write the results as one JSON object, with one line for each round
+	 *
+	 * @param writer - Writer - where to write them
+	 * @throws IOException if the results could not be written
+	 */
+	public void writeJson(Writer writer) throws IOException {
+		CandidateRegistry candidates = result.getCandidates();
+		List<RoundResult> rounds = result.getRounds();
+
+		writer.write("{\n");
+		writer.write("  \"name\": " + OutputFormat.jsonString(name) + ",\n");
+		writer.write("  \"arithmetic\": " + (rounds.isEmpty() || rounds.get(0).isFixedPoint() ? "\"fixed\"" : "\"double\"") + ",\n");
+
+		StringBuilder line = new StringBuilder("  \"candidates\": [");
+		for(int candidate=0; candidate<candidates.size(); candidate++) {
+			line.append(candidate == 0 ? "" : ", ").append(OutputFormat.jsonString(candidates.getName(candidate)));
+		}
+		writer.write(line.append("],\n").toString());
+
+		writer.write("  \"rounds\": [");
+		for(int i=0; i<rounds.size(); i++) {
+			RoundResult round = rounds.get(i);
+			RoundResult next = i+1 < rounds.size() ? rounds.get(i+1) : result.getFinalTally();
+
+			line.setLength(0);
+			line.append(i == 0 ? "\n" : ",\n");
+			line.append("    {\"round\": ").append(round.getNumber()).append(", \"tallies\": {");
+			String separator = "";
+			for(int candidate=0; candidate<candidates.size(); candidate++) {
+				if(round.isContinuing(candidate)) {
+					line.append(separator).append(OutputFormat.jsonString(candidates.getName(candidate))).append(": ").append(round.formatVoteCount(candidate));
+					separator = ", ";
+				}
+			}
+			line.append("}, \"exhausted\": {\"ballots\": ").append(round.getExhaustedBallots())
+					.append(", \"votes\": ").append(round.formatExhaustedWeight()).append("}");
+
+			line.append(", \"transfers\": {\"received\": {");
+			separator = "";
+			for(int candidate=0; candidate<candidates.size(); candidate++) {
+				if(next.isContinuing(candidate)) {
+					line.append(separator).append(OutputFormat.jsonString(candidates.getName(candidate))).append(": ").append(formatReceived(round, next, candidate));
+					separator = ", ";
+				}
+			}
+			line.append("}, \"exhaustedBallots\": ").append(next.getExhaustedBallots() - round.getExhaustedBallots())
+					.append(", \"exhaustedVotes\": ").append(formatExhaustedReceived(round, next)).append("}");
+
+			line.append(", \"elected\": ").append(names(candidates, round.getElected()));
+			line.append(", \"lastRound\": ").append(round.isLastRound());
+			line.append(", \"eliminated\": ").append(names(candidates, round.getEliminatedCandidates()));
+			line.append(", \"tieBreak\": ");
+			appendTieBreak(line, candidates, round.getTieBreak());
+			line.append("}");
+
+			writer.write(line.toString());
+		}
+		writer.write(rounds.isEmpty() ? "],\n" : "\n  ],\n");
+
+		writer.write("  \"winners\": " + names(candidates, result.getWinners()) + "\n");
+		writer.write("}\n");
+	}
+
+	/**
+	 * Write the results as csv, with a header row
+	 *
+	 * @param writer - Writer - where to write them
+	 * @throws IOException if the results could not be written
+	 */
+	public void writeCsv(Writer writer) throws IOException {
+		CandidateRegistry candidates = result.getCandidates();
+		List<RoundResult> rounds = result.getRounds();
+
+		writer.write("round,candidate,votes,received,ballots,ballots_received,outcome,tie_break,pairwise_wins,pairwise_margin,ranking_points\n");
+
+		StringBuilder row = new StringBuilder();
+		for(int i=0; i<rounds.size(); i++) {
+			RoundResult round = rounds.get(i);
+			RoundResult next = i+1 < rounds.size() ? rounds.get(i+1) : result.getFinalTally();
+			TieBreak tieBreak = round.getTieBreak();
+
+			row.setLength(0);
+			for(int candidate=0; candidate<candidates.size(); candidate++) {
+				if(!round.isContinuing(candidate)) {
+					continue;
+				}
+
+				row.append(round.getNumber()).append(',').append(OutputFormat.csvField(candidates.getName(candidate))).append(',')
+						.append(round.formatVoteCount(candidate)).append(',')
+						.append(next.isContinuing(candidate) ? formatReceived(round, next, candidate) : "").append(",,,");
+				if(round.getElected().contains(candidate)) {
+					row.append("elected");
+				} else if(round.getEliminatedCandidates().contains(candidate)) {
+					row.append("eliminated");
+				} else {
+					row.append("continuing");
+				}
+
+				int tied = tieBreak == null ? -1 : tieBreak.getTiedCandidates().indexOf(candidate);
+				if(tied == -1) {
+					row.append(",,,,\n");
+				} else if(tieBreak.isPairwise()) {
+					row.append(',').append(formatStep(tieBreak)).append(',').append(tieBreak.getPairwiseWins(tied))
+							.append(',').append(tieBreak.getPairwiseMargin(tied)).append(',')
+							.append(tieBreak.getRankingPoints(tied)).append('\n');
+				} else {
+					row.append(',').append(formatStep(tieBreak)).append(",,,\n");
+				}
+			}
+
+			row.append(round.getNumber()).append(",,").append(round.formatExhaustedWeight()).append(',')
+					.append(formatExhaustedReceived(round, next)).append(',').append(round.getExhaustedBallots()).append(',')
+					.append(next.getExhaustedBallots() - round.getExhaustedBallots()).append(",exhausted,,,,\n");
+
+			writer.write(row.toString());
+		}
+	}
+
+	/**
+	 * Append a tie break as a JSON object, or null if there was none
+	 */
+	private static void appendTieBreak(StringBuilder line, CandidateRegistry candidates, TieBreak tieBreak) {
+		if(tieBreak == null) {
+			line.append("null");
+			return;
+		}
+
+		line.append("{\"policy\": ").append(OutputFormat.jsonString(tieBreak.getPolicy().name().toLowerCase(Locale.ROOT).replace('_', '-')))
+				.append(", \"tied\": ").append(names(candidates, tieBreak.getTiedCandidates()))
+				.append(", \"step\": ").append(OutputFormat.jsonString(formatStep(tieBreak)))
+				.append(", \"decidingRound\": ").append(tieBreak.getDecidingRound())
+				.append(", \"loser\": ").append(OutputFormat.jsonString(candidates.getName(tieBreak.getLoser())));
+
+		if(tieBreak.isPairwise()) {
+			line.append(", \"pairwise\": [");
+			for(int i=0; i<tieBreak.getTiedCandidates().size(); i++) {
+				line.append(i == 0 ? "" : ", ").append("{\"candidate\": ")
+						.append(OutputFormat.jsonString(candidates.getName(tieBreak.getTiedCandidates().get(i))))
+						.append(", \"wins\": ").append(tieBreak.getPairwiseWins(i))
+						.append(", \"margin\": ").append(tieBreak.getPairwiseMargin(i))
+						.append(", \"rankingPoints\": ").append(tieBreak.getRankingPoints(i)).append("}");
+			}
+			line.append("]");
+		}
+
+		line.append("}");
+	}
+
+	/**
+	 * Format the votes a candidate received in a round, in the arithmetic the round was counted with
+	 */
+	private static String formatReceived(RoundResult round, RoundResult next, int candidate) {
+		if(round.isFixedPoint()) {
+			return FixedPoint.toString(next.getFixedVoteCount(candidate) - round.getFixedVoteCount(candidate));
+		}
+
+		return String.valueOf(next.getVoteCount(candidate) - round.getVoteCount(candidate));
+	}
+
+	/**
+	 * Format the votes a round exhausted, in the arithmetic the round was counted with
+	 */
+	private static String formatExhaustedReceived(RoundResult round, RoundResult next) {
+		if(round.isFixedPoint()) {
+			return FixedPoint.toString(next.getFixedExhaustedWeight() - round.getFixedExhaustedWeight());
+		}
+
+		return String.valueOf(next.getExhaustedWeight() - round.getExhaustedWeight());
+	}
+
+	/**
+	 * Format the step that broke a tie, such as pairwise-margin
+	 */
+	private static String formatStep(TieBreak tieBreak) {
+		return tieBreak.getStep().name().toLowerCase(Locale.ROOT).replace('_', '-');
+	}
+
+	/**
+	 * Format the names of some candidates as a JSON array
+	 */
+	private static String names(CandidateRegistry candidates, List<Integer> ids) {
+		StringBuilder names = new StringBuilder("[");
+
+		for(int i=0; i<ids.size(); i++) {
+			names.append(i == 0 ? "" : ", ").append(OutputFormat.jsonString(candidates.getName(ids.get(i))));
+		}
+
+		return names.append(']').toString();
+	}
+}
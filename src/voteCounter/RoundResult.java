@@ -0,0 +1,341 @@
+package voteCounter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of one round of a count: the vote count of every candidate still in the count when the round began, the
+ * ballots exhausted by then, the candidates that won or were eliminated in it, and how any tie for last place was
+ * broken. A RoundResult is never altered once the round has been counted.
+ */
+public class RoundResult {
+
+	//The number of the round, starting at 1
+	private int number;
+	//Marks the candidates, by id, that were still in the count when the round began
+	private boolean[] continuing;
+	//The vote count of each candidate by id when the round began, if counting in double precision
+	private double[] voteCounts;
+	//The fixed-point vote count of each candidate by id when the round began, if counting in fixed-point
+	private long[] fixedVoteCounts;
+	//The number of ballots that counted for no continuing candidate when the round began
+	private long exhaustedBallots;
+	//The weight of the exhausted ballots when the round began, if counting in double precision
+	private double exhaustedWeight;
+	//The fixed-point weight of the exhausted ballots when the round began, if counting in fixed-point
+	private long fixedExhaustedWeight;
+	//The ids of the candidates that won in this round, in the order they won
+	private List<Integer> elected;
+	//True if the candidates won because only as many candidates as there are seats were left
+	private boolean lastRound;
+	//The ids of the candidates tied for last place, or an empty list if there was no tie break
+	private List<Integer> tiedCandidates;
+	//How the tie for last place was broken, or null if there was no tie break
+	private TieBreak tieBreak;
+	//The ids of the candidates eliminated in this round, or an empty list if no one was
+	private List<Integer> eliminated;
+
+	RoundResult(int number, boolean[] continuing, double[] voteCounts, long[] fixedVoteCounts, long exhaustedBallots,
+			double exhaustedWeight, long fixedExhaustedWeight, List<Integer> elected, boolean lastRound,
+			List<Integer> tiedCandidates, TieBreak tieBreak, List<Integer> eliminated) {
+		this.number = number;
+		this.continuing = continuing.clone();
+		this.voteCounts = voteCounts == null ? null : voteCounts.clone();
+		this.fixedVoteCounts = fixedVoteCounts == null ? null : fixedVoteCounts.clone();
+		this.exhaustedBallots = exhaustedBallots;
+		this.exhaustedWeight = exhaustedWeight;
+		this.fixedExhaustedWeight = fixedExhaustedWeight;
+		this.elected = Collections.unmodifiableList(new ArrayList<>(elected));
+		this.lastRound = lastRound;
+		this.tiedCandidates = Collections.unmodifiableList(new ArrayList<>(tiedCandidates));
+		this.tieBreak = tieBreak;
+		this.eliminated = Collections.unmodifiableList(new ArrayList<>(eliminated));
+	}
+
+	/**
+	 * Getter for the round number
+	 *
+	 * @return int - the number of the round, starting at 1
+	 */
+	public int getNumber() {
+		return number;
+	}
+
+	/**
+	 * Check whether a candidate was still in the count when the round began
+	 *
+	 * @param candidate - int - the id of the candidate
+	 * @return boolean - true if the candidate had not been eliminated
+	 */
+	public boolean isContinuing(int candidate) {
+		return continuing[candidate];
+	}
+
+	/**
+	 * Check whether the round was counted in fixed-point
+	 *
+	 * @return boolean - true if counted in fixed-point, false if counted in double precision
+	 */
+	public boolean isFixedPoint() {
+		return fixedVoteCounts != null;
+	}
+
+	/**
+	 * Get a candidate's vote count when the round began
+	 *
+	 * @param candidate - int - the id of the candidate
+	 * @return double - the vote count, converted from fixed-point if counting in fixed-point
+	 */
+	public double getVoteCount(int candidate) {
+		if(fixedVoteCounts != null) {
+			return fixedVoteCounts[candidate] / (double) FixedPoint.ONE;
+		}
+
+		return voteCounts[candidate];
+	}
+
+	/**
+	 * Get a candidate's fixed-point vote count when the round began
+	 *
+	 * @param candidate - int - the id of the candidate
+	 * @return long - the fixed-point vote count
+	 * @throws IllegalStateException if the round was counted in double precision
+	 */
+	public long getFixedVoteCount(int candidate) {
+		if(fixedVoteCounts == null) {
+			throw new IllegalStateException("The round was counted in double precision.");
+		}
+
+		return fixedVoteCounts[candidate];
+	}
+
+	/**
+	 * Format a candidate's vote count when the round began for output, in the arithmetic the round was counted with
+	 *
+	 * @param candidate - int - the id of the candidate
+	 * @return String - the vote count
+	 */
+	public String formatVoteCount(int candidate) {
+		if(fixedVoteCounts != null) {
+			return FixedPoint.toString(fixedVoteCounts[candidate]);
+		}
+
+		return String.valueOf(voteCounts[candidate]);
+	}
+
+	/**
+	 * Getter for the number of ballots exhausted when the round began
+	 *
+	 * @return long - the number of ballots that counted for no continuing candidate
+	 */
+	public long getExhaustedBallots() {
+		return exhaustedBallots;
+	}
+
+	/**
+	 * Get the weight of the exhausted ballots when the round began: the votes that were not transferred to anyone
+	 *
+	 * @return double - the weight, converted from fixed-point if counting in fixed-point
+	 */
+	public double getExhaustedWeight() {
+		if(fixedVoteCounts != null) {
+			return fixedExhaustedWeight / (double) FixedPoint.ONE;
+		}
+
+		return exhaustedWeight;
+	}
+
+	/**
+	 * Get the fixed-point weight of the exhausted ballots when the round began
+	 *
+	 * @return long - the fixed-point weight
+	 * @throws IllegalStateException if the round was counted in double precision
+	 */
+	public long getFixedExhaustedWeight() {
+		if(fixedVoteCounts == null) {
+			throw new IllegalStateException("The round was counted in double precision.");
+		}
+
+		return fixedExhaustedWeight;
+	}
+
+	/**
+	 * Format the weight of the exhausted ballots when the round began for output, in the arithmetic the round was
+	 * counted with
+	 *
+	 * @return String - the weight
+	 */
+	public String formatExhaustedWeight() {
+		if(fixedVoteCounts != null) {
+			return FixedPoint.toString(fixedExhaustedWeight);
+		}
+
+		return String.valueOf(exhaustedWeight);
+	}
+
+	/**
+	 * Getter for the candidates that won in this round
+	 *
+	 * @return {@code List<Integer>} - the ids of the winners, in the order they won
+	 */
+	public List<Integer> getElected() {
+		return elected;
+	}
+
+	/**
+	 * Check whether the candidates in {@link #getElected()} won because only as many candidates as there are seats
+	 * were left, rather than by passing the threshold
+	 *
+	 * @return boolean - true if this was the last round
+	 */
+	public boolean isLastRound() {
+		return lastRound;
+	}
+
+	/**
+	 * Getter for the candidates tied for last place
+	 *
+	 * @return {@code List<Integer>} - the ids of the tied candidates, or an empty list if there was no tie break
+	 */
+	public List<Integer> getTiedCandidates() {
+		return tiedCandidates;
+	}
+
+	/**
+	 * Getter for the tie break
+	 *
+	 * @return TieBreak - how the tie for last place was broken, or null if there was no tie break
+	 */
+	public TieBreak getTieBreak() {
+		return tieBreak;
+	}
+
+	/**
+	 * Getter for the eliminated candidate
+	 *
+	 * @return int - the id of the candidate eliminated in this round, or -1 if no one was. If several were eliminated
+	 * 		together, the one with the fewest votes
+	 */
+	public int getEliminated() {
+		return eliminated.isEmpty() ? -1 : eliminated.get(0);
+	}
+
+	/**
+	 * Getter for the eliminated candidates
+	 *
+	 * @return {@code List<Integer>} - the ids of the candidates eliminated in this round from the fewest votes up, which
+	 * 		holds several candidates when they were eliminated together, or an empty list if no one was eliminated
+	 */
+	public List<Integer> getEliminatedCandidates() {
+		return eliminated;
+	}
+
+	/**
+	 * Write the round to a stream, such as for a {@link TabulationCheckpoint}
+	 *
+	 * @param output - DataOutputStream - the stream
+	 * @throws IOException if the round could not be written
+	 */
+	void write(DataOutputStream output) throws IOException {
+		output.writeInt(number);
+		output.writeBoolean(fixedVoteCounts != null);
+		for(int candidate=0; candidate<continuing.length; candidate++) {
+			output.writeBoolean(continuing[candidate]);
+			if(fixedVoteCounts != null) {
+				output.writeLong(fixedVoteCounts[candidate]);
+			} else {
+				output.writeDouble(voteCounts[candidate]);
+			}
+		}
+		output.writeLong(exhaustedBallots);
+		output.writeDouble(exhaustedWeight);
+		output.writeLong(fixedExhaustedWeight);
+		writeIds(output, elected);
+		output.writeBoolean(lastRound);
+		writeIds(output, tiedCandidates);
+		output.writeBoolean(tieBreak != null);
+		if(tieBreak != null) {
+			tieBreak.write(output);
+		}
+		writeIds(output, eliminated);
+	}
+
+	/**
+	 * Read a round written by {@link #write(DataOutputStream)}
+	 *
+	 * @param input - DataInputStream - the stream
+	 * @param candidateCount - int - the number of registered candidates
+	 * @return RoundResult - the round
+	 * @throws IOException if the round could not be read
+	 */
+	static RoundResult read(DataInputStream input, int candidateCount) throws IOException {
+		int number = input.readInt();
+		boolean fixedPoint = input.readBoolean();
+		boolean[] continuing = new boolean[candidateCount];
+		double[] voteCounts = fixedPoint ? null : new double[candidateCount];
+		long[] fixedVoteCounts = fixedPoint ? new long[candidateCount] : null;
+		for(int candidate=0; candidate<candidateCount; candidate++) {
+			continuing[candidate] = input.readBoolean();
+			if(fixedPoint) {
+				fixedVoteCounts[candidate] = input.readLong();
+			} else {
+				voteCounts[candidate] = input.readDouble();
+			}
+		}
+		long exhaustedBallots = input.readLong();
+		double exhaustedWeight = input.readDouble();
+		long fixedExhaustedWeight = input.readLong();
+		List<Integer> elected = readIds(input, candidateCount);
+		boolean lastRound = input.readBoolean();
+		List<Integer> tiedCandidates = readIds(input, candidateCount);
+		TieBreak tieBreak = input.readBoolean() ? TieBreak.read(input, candidateCount) : null;
+		List<Integer> eliminated = readIds(input, candidateCount);
+
+		return new RoundResult(number, continuing, voteCounts, fixedVoteCounts, exhaustedBallots, exhaustedWeight,
+				fixedExhaustedWeight, elected, lastRound, tiedCandidates, tieBreak, eliminated);
+	}
+
+	/**
+	 * Write a list of candidate ids as its length followed by the ids
+	 *
+	 * @param output - DataOutputStream - the stream
+	 * @param ids - {@code List<Integer>} - the candidate ids
+	 * @throws IOException if the ids could not be written
+	 */
+	static void writeIds(DataOutputStream output, List<Integer> ids) throws IOException {
+		output.writeInt(ids.size());
+		for(int id : ids) {
+			output.writeShort(id);
+		}
+	}
+
+	/**
+	 * Read a list of candidate ids written by {@link #writeIds(DataOutputStream, List)}
+	 *
+	 * @param input - DataInputStream - the stream
+	 * @param candidateCount - int - the number of registered candidates
+	 * @return {@code List<Integer>} - the candidate ids
+	 * @throws IOException if the ids could not be read or are not registered candidates
+	 */
+	static List<Integer> readIds(DataInputStream input, int candidateCount) throws IOException {
+		int size = input.readInt();
+		if(size < 0 || size > candidateCount) {
+			throw new IOException("A list of candidates is longer than the number of candidates.");
+		}
+
+		ArrayList<Integer> ids = new ArrayList<>();
+		for(int i=0; i<size; i++) {
+			int id = input.readShort();
+			if(id < 0 || id >= candidateCount) {
+				throw new IOException("A candidate id is not a registered candidate.");
+			}
+			ids.add(id);
+		}
+
+		return ids;
+	}
+}
@@ -0,0 +1,130 @@
+package voteCounter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One variation of a contest to count, as listed in a scenario file: the number of winners, the candidates who have
+ * withdrawn and how ties for last place are broken. Once {@link ScenarioRunner} has run, it also holds the result and
+ * how long it took to count, or the reason it could not be counted.
+ */
+public class Scenario {
+
+	//The line of the scenario file that listed the scenario
+	private int line;
+	//The name of the scenario, for the comparison
+	private String label;
+	//The number of candidates that can win
+	private int numberOfWinners;
+	//The ids of the candidates who have withdrawn
+	private List<Integer> withdrawn;
+	//How ties for last place are broken
+	private TieBreakPolicy tieBreakPolicy;
+	//The result of the count, or null if it could not be counted
+	private TabulationResult result;
+	//The reason the scenario could not be counted, or null if it was counted
+	private String error;
+	//The time taken to count the scenario from the shared initial count, in nanoseconds
+	private long countNanos;
+
+	public Scenario(int line, String label, int numberOfWinners, List<Integer> withdrawn, TieBreakPolicy tieBreakPolicy) {
+		this.line = line;
+		this.label = label;
+		this.numberOfWinners = numberOfWinners;
+		this.withdrawn = Collections.unmodifiableList(new ArrayList<>(withdrawn));
+		this.tieBreakPolicy = tieBreakPolicy;
+	}
+
+	/**
+	 * Record the result of counting the scenario
+	 *
+	 * @param result - TabulationResult - the result
+	 * @param countNanos - long - the time taken to count the scenario, in nanoseconds
+	 */
+	void setResult(TabulationResult result, long countNanos) {
+		this.result = result;
+		this.countNanos = countNanos;
+	}
+
+	/**
+	 * Record why the scenario could not be counted
+	 *
+	 * @param error - String - the reason
+	 */
+	void setError(String error) {
+		this.error = error;
+	}
+
+	/**
+	 * Getter for line
+	 *
+	 * @return int - the line of the scenario file that listed the scenario
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * Getter for label
+	 *
+	 * @return String - the name of the scenario
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * Getter for numberOfWinners
+	 *
+	 * @return int - the number of candidates that can win
+	 */
+	public int getNumberOfWinners() {
+		return numberOfWinners;
+	}
+
+	/**
+	 * Getter for withdrawn
+	 *
+	 * @return {@code List<Integer>} - the ids of the candidates who have withdrawn
+	 */
+	public List<Integer> getWithdrawn() {
+		return withdrawn;
+	}
+
+	/**
+	 * Getter for tieBreakPolicy
+	 *
+	 * @return TieBreakPolicy - how ties for last place are broken
+	 */
+	public TieBreakPolicy getTieBreakPolicy() {
+		return tieBreakPolicy;
+	}
+
+	/**
+	 * Getter for the result
+	 *
+	 * @return TabulationResult - the result of the count, or null if it could not be counted
+	 */
+	public TabulationResult getResult() {
+		return result;
+	}
+
+	/**
+	 * Getter for the error
+	 *
+	 * @return String - the reason the scenario could not be counted, or null if it was counted
+	 */
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * Getter for countNanos
+	 *
+	 * @return long - the time taken to count the scenario from the shared initial count, in nanoseconds
+	 */
+	public long getCountNanos() {
+		return countNanos;
+	}
+}
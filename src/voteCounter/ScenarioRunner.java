@@ -0,0 +1,339 @@
+package voteCounter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Counts many variations of one contest from a single reading of its ballots, and prints their round histories side
+ * by side. Each variation, or scenario, can have a different number of winners, withdrawn candidates or tie break
+ * policy.<br>
+ * <br>
+ * The ballots are read and given their initial count once. Every scenario is then a fork of that count which shares
+ * the ballots, and only copies the state of the ballot groups when it first transfers votes, so a scenario costs
+ * little more than its own rounds. The scenarios are counted at the same time on one work-stealing pool, which the
+ * tally blocks of their rounds also run on.<br>
+ * <br>
+ * Arguments:<br>
+ * 	candidateFileName - String - The name of the file listing each candidate<br>
+ * 	voteFileName - String - The name of the vote file<br>
+ * 	scenarioFileName - String - The name of the scenario file. Each line lists a scenario as its label, its number of
+ * 		winners, the names of any withdrawn candidates separated by semicolons, and optionally its tie break policy:
+ * 		condorcet, previous-rounds or random. The fields are separated by commas. Blank lines and lines starting with
+ * 		# are ignored.<br>
+ * <br>
+ * Options:<br>
+ * 	--threads=N - the number of scenarios and tally blocks counted at once. Defaults to the number of processors<br>
+ * 	--seed=N - seed the random choice made when every other tie breaker fails, the same for every scenario, so the
+ * 		comparison can be repeated exactly<br>
+ * 	--arithmetic=fixed|double, --batch-elimination, --elect-all-over-quota, --from-snapshot - as for
+ * 		{@link VoteCounter}
+ */
+public class ScenarioRunner {
+
+	/**
+	 * The main method. See class docs for description on required arguments
+	 *
+	 * @param args - String[]
+	 */
+	public static void main(String[] args) {
+		//Quit if the three arguments were not supplied
+		if(args.length < 3) {
+			System.out.println("Please provide a candidate file, a vote file and a scenario file.");
+			return;
+		}
+
+		CommandLine options = new CommandLine(Runtime.getRuntime().availableProcessors(), CommandLine.Option.values());
+
+		//Read any options that follow the three arguments
+		for(int i=3; i<args.length; i++) {
+			if(!options.read(args[i])) {
+				return;
+			}
+		}
+
+		Contest contest = VoteCounter.readContest(args[0], args[1], options.fromSnapshot, false, options.threads);
+		if(contest == null) {
+			return;
+		}
+
+		List<Scenario> scenarios = readScenarios(args[2], contest.getCandidates());
+		if(scenarios == null) {
+			return;
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(options.threads);
+		try {
+			Tabulator base = new Tabulator(contest, 1);
+			base.setFixedPoint(options.fixedPoint);
+			base.setBatchElimination(options.batchElimination);
+			base.setSimultaneousElection(options.simultaneousElection);
+			base.setTallyPool(pool);
+
+			run(base, scenarios, pool, options.seed);
+		} finally {
+			pool.shutdown();
+		}
+
+		printComparison(contest.getCandidates(), scenarios);
+	}
+
+	/**
+	 * Read a scenario file, with one scenario on each line
+	 *
+	 * @param scenarioFileName - String - the name of the scenario file
+	 * @param candidates - CandidateRegistry - the registered candidates, which withdrawn candidates are looked up in
+	 * @return {@code List<Scenario>} - the scenarios, in file order, or null if the file could not be read
+	 */
+	public static List<Scenario> readScenarios(String scenarioFileName, CandidateRegistry candidates) {
+		ArrayList<Scenario> scenarios = new ArrayList<>();
+
+		boolean read = CommandLine.readListedLines(scenarioFileName, "scenario file", (lineNumber, line) -> {
+			String[] fields = line.split(",", -1);
+			if(fields.length < 2 || fields.length > 4) {
+				System.out.println("Line " + lineNumber + " of the scenario file must list a label, a number of winners, any withdrawn candidates and optionally a tie break policy.");
+				return false;
+			}
+
+			int numberOfWinners;
+			try {
+				numberOfWinners = Integer.parseInt(fields[1].trim());
+			} catch (NumberFormatException e) {
+				System.out.println("Line " + lineNumber + " of the scenario file has an invalid winner count.");
+				return false;
+			}
+
+			ArrayList<Integer> withdrawn = new ArrayList<>();
+			for(String name : fields.length > 2 ? fields[2].split(";") : new String[0]) {
+				if(name.trim().isEmpty()) {
+					continue;
+				}
+
+				int id = candidates.getId(name.trim());
+				if(id == -1) {
+					System.out.println("Line " + lineNumber + " of the scenario file withdraws " + name.trim() + ", who is not a candidate.");
+					return false;
+				}
+				if(!withdrawn.contains(id)) {
+					withdrawn.add(id);
+				}
+			}
+
+			TieBreakPolicy tieBreakPolicy = TieBreakPolicy.CONDORCET;
+			if(fields.length > 3 && !fields[3].trim().isEmpty()) {
+				tieBreakPolicy = TieBreakPolicy.forName(fields[3]);
+				if(tieBreakPolicy == null) {
+					System.out.println("Line " + lineNumber + " of the scenario file has an unknown tie break policy.");
+					return false;
+				}
+			}
+
+			scenarios.add(new Scenario(lineNumber, fields[0].trim(), numberOfWinners, withdrawn, tieBreakPolicy));
+			return true;
+		});
+		if(!read) {
+			return null;
+		}
+
+		if(scenarios.isEmpty()) {
+			System.out.println("The scenario file does not list any scenarios.");
+			return null;
+		}
+
+		return scenarios;
+	}
+
+	/**
+	 * Give a count its initial count, then fork and count every scenario from it on a pool, recording the result or
+	 * error of each on the scenario
+	 *
+	 * @param base - Tabulator - the count every scenario is forked from, with the options they share, not yet started
+	 * @param scenarios - {@code List<Scenario>} - the scenarios to count
+	 * @param pool - ForkJoinPool - the pool the scenarios, and the tally blocks of their rounds, run on
+	 * @param seed - Long - the seed of every scenario's random tie breaks, or null to not seed them
+	 */
+	public static void run(Tabulator base, List<Scenario> scenarios, ForkJoinPool pool, Long seed) {
+		base.start();
+
+		//the forks are taken here, since each one marks the base's state as shared, and then counted at once
+		ArrayList<Callable<Void>> tasks = new ArrayList<>();
+		for(Scenario scenario : scenarios) {
+			Tabulator fork;
+			try {
+				fork = base.fork(scenario.getNumberOfWinners());
+			} catch (IllegalArgumentException e) {
+				scenario.setError(e.getMessage());
+				continue;
+			}
+			fork.setTieBreakPolicy(scenario.getTieBreakPolicy());
+			fork.setRandom(seed == null ? new Random() : new Random(seed));
+
+			tasks.add(() -> {
+				count(scenario, fork);
+				return null;
+			});
+		}
+
+		//each fork records its own failure on its scenario
+		CommandLine.runAll(pool, tasks);
+	}
+
+	/**
+	 * Withdraw a scenario's candidates from its fork and count it, recording its result or the reason it could not
+	 * be counted
+	 */
+	private static void count(Scenario scenario, Tabulator fork) {
+		long start = System.nanoTime();
+
+		try {
+			fork.withdraw(scenario.getWithdrawn());
+		} catch (IllegalArgumentException e) {
+			scenario.setError(e.getMessage());
+			return;
+		}
+
+		//the fork carries on from the shared initial count, so it is not started again
+		while(!fork.isComplete()) {
+			fork.nextRound();
+		}
+
+		scenario.setResult(fork.getResult(), System.nanoTime() - start);
+	}
+
+	/**
+	 * Print the scenarios side by side, one column each, with what happened in every round and who won
+	 *
+	 * @param candidates - CandidateRegistry - the registry the candidate ids refer to
+	 * @param scenarios - {@code List<Scenario>} - the counted scenarios
+	 */
+	public static void printComparison(CandidateRegistry candidates, List<Scenario> scenarios) {
+		ArrayList<String[]> rows = new ArrayList<>();
+		int columns = scenarios.size() + 1;
+		int roundCount = 0;
+		for(Scenario scenario : scenarios) {
+			if(scenario.getResult() != null) {
+				roundCount = Math.max(roundCount, scenario.getResult().getRounds().size());
+			}
+		}
+
+		String[] labels = new String[columns];
+		String[] seats = new String[columns];
+		String[] withdrawn = new String[columns];
+		String[] tieBreaks = new String[columns];
+		labels[0] = "Scenario";
+		seats[0] = "Winners";
+		withdrawn[0] = "Withdrawn";
+		tieBreaks[0] = "Tie break";
+		for(int i=0; i<scenarios.size(); i++) {
+			Scenario scenario = scenarios.get(i);
+			labels[i+1] = scenario.getLabel();
+			seats[i+1] = Integer.toString(scenario.getNumberOfWinners());
+			withdrawn[i+1] = names(candidates, scenario.getWithdrawn(), "", " ");
+			tieBreaks[i+1] = scenario.getTieBreakPolicy().name().toLowerCase(Locale.ROOT).replace('_', '-');
+		}
+		rows.add(labels);
+		rows.add(seats);
+		rows.add(withdrawn);
+		rows.add(tieBreaks);
+		rows.add(null);
+
+		//what each round did: + for each candidate elected, - for each eliminated, and * after a tie break
+		for(int round=0; round<roundCount; round++) {
+			String[] row = new String[columns];
+			row[0] = "Round " + (round+1);
+			for(int i=0; i<scenarios.size(); i++) {
+				TabulationResult result = scenarios.get(i).getResult();
+				row[i+1] = result == null || round >= result.getRounds().size() ? "" : describe(candidates, result.getRounds().get(round));
+			}
+			rows.add(row);
+		}
+		rows.add(null);
+
+		String[] winners = new String[columns];
+		String[] same = new String[columns];
+		String[] times = new String[columns];
+		winners[0] = "Elected";
+		same[0] = "Same as first";
+		times[0] = "Count ms";
+		List<String> firstWinners = null;
+		for(int i=0; i<scenarios.size(); i++) {
+			TabulationResult result = scenarios.get(i).getResult();
+			if(result == null) {
+				winners[i+1] = "not counted";
+				same[i+1] = "";
+				times[i+1] = "";
+				continue;
+			}
+
+			//winners are compared regardless of the order they won in
+			ArrayList<String> sorted = new ArrayList<>(result.getWinnerNames());
+			sorted.sort(null);
+			if(firstWinners == null) {
+				firstWinners = sorted;
+			}
+			winners[i+1] = String.join(" ", result.getWinnerNames());
+			same[i+1] = sorted.equals(firstWinners) ? "yes" : "no";
+			times[i+1] = String.format(Locale.ROOT, "%.3f", scenarios.get(i).getCountNanos() / 1e6);
+		}
+		rows.add(winners);
+		rows.add(same);
+		rows.add(times);
+
+		int[] widths = new int[columns];
+		for(String[] row : rows) {
+			for(int column=0; row != null && column<columns; column++) {
+				widths[column] = Math.max(widths[column], row[column].length());
+			}
+		}
+
+		for(String[] row : rows) {
+			StringBuilder printed = new StringBuilder();
+			for(int column=0; column<columns; column++) {
+				if(column > 0) {
+					printed.append(row == null ? "-+-" : " | ");
+				}
+				printed.append(row == null ? "-".repeat(widths[column]) : pad(row[column], widths[column]));
+			}
+			System.out.println(printed.toString().stripTrailing());
+		}
+		System.out.println("+ elected, - eliminated, * after a tie break");
+
+		for(Scenario scenario : scenarios) {
+			if(scenario.getError() != null) {
+				System.out.println("Scenario " + scenario.getLabel() + " on line " + scenario.getLine() + " could not be counted: " + scenario.getError());
+			}
+		}
+	}
+
+	/**
+	 * Describe what a round did in a few characters, for the comparison
+	 */
+	private static String describe(CandidateRegistry candidates, RoundResult round) {
+		String described = (names(candidates, round.getElected(), "+", " ") + " "
+				+ names(candidates, round.getEliminatedCandidates(), "-", " ")).trim();
+
+		return round.getTiedCandidates().isEmpty() ? described : described + "*";
+	}
+
+	/**
+	 * Join the names of some candidates, each after a prefix
+	 */
+	private static String names(CandidateRegistry candidates, List<Integer> ids, String prefix, String separator) {
+		ArrayList<String> names = new ArrayList<>();
+		for(int id : ids) {
+			names.add(prefix + candidates.getName(id));
+		}
+
+		return String.join(separator, names);
+	}
+
+	/**
+	 * Pad a cell with spaces to the width of its column
+	 */
+	private static String pad(String cell, int width) {
+		return cell + " ".repeat(width - cell.length());
+	}
+}
@@ -0,0 +1,204 @@
+package voteCounter;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Counts a contest whose ballots are split into shards, such as by precinct, so that no one process holds every
+ * ballot. Each shard is counted by a {@link ShardWorker}, and this coordinator merges their tallies, decides every
+ * round with the usual rules, including the Condorcet tie break over the shards' merged head to head counts, and
+ * tells every shard which candidates' ballots to transfer. The rounds are printed as by {@link VoteCounter}.<br>
+ * <br>
+ * In fixed-point, the default, the merged tallies are exact, so the rounds are identical to counting every ballot in
+ * one process. In double precision they can differ in the last digits.<br>
+ * <br>
+ * Arguments:<br>
+ * 	candidateFileName - String - The name of the file listing each candidate<br>
+ * 	shardFileName - String - The name of the shard list. Each line lists one shard, either as the vote files of its
+ * 		precincts separated by commas, relative to the shard list, for which a worker process is launched on this
+ * 		host, or as @host:port for a worker already listening on another host. Blank lines and lines starting with #
+ * 		are ignored.<br>
+ * 	numberOfWinners - int - The number of candidates that can win<br>
+ * <br>
+ * Options:<br>
+ * 	--local - count each shard of vote files in this process rather than launching a worker for it, to test a
+ * 		sharded count on one machine<br>
+ * 	--arithmetic=fixed|double, --batch-elimination, --elect-all-over-quota - as for {@link VoteCounter}
+ */
+public class ShardCoordinator {
+
+	/**
+	 * The main method. See class docs for description on required arguments
+	 *
+	 * @param args - String[]
+	 */
+	public static void main(String[] args) {
+		//Quit if the three arguments were not supplied
+		if(args.length < 3) {
+			System.out.println("Please provide a candidate file, a shard list and the number of winners.");
+			return;
+		}
+
+		boolean local = false;
+		CommandLine options = new CommandLine(1, CommandLine.Option.ARITHMETIC, CommandLine.Option.RULES);
+
+		//Read any options that follow the three arguments
+		for(int i=3; i<args.length; i++) {
+			if(args[i].equals("--local")) {
+				local = true;
+			} else if(!options.read(args[i])) {
+				return;
+			}
+		}
+
+		CandidateRegistry candidates = VoteCounter.readCandidates(args[0], System.out);
+		if(candidates == null) {
+			return;
+		}
+
+		int numberOfWinners;
+		try {
+			numberOfWinners = Integer.parseInt(args[2]);
+		} catch (NumberFormatException e) {
+			System.out.println("Invalid winner count argument. ");
+			return;
+		}
+		if(numberOfWinners < 1 || numberOfWinners > candidates.size()) {
+			System.out.println("The number of winners must be at least 1 and no more than the number of candidates");
+			return;
+		}
+
+		List<BallotShard> shards = openShards(args[1], args[0], candidates, local);
+		if(shards == null) {
+			return;
+		}
+
+		//the shards are asked at the same time, so workers in other processes count their shares at once
+		ForkJoinPool pool = new ForkJoinPool(shards.size());
+		try {
+			//the coordinator holds the candidates and the merged vote counts, but no ballots
+			Tabulator tabulator = new Tabulator(new Contest(candidates, new BallotStore()), numberOfWinners);
+			tabulator.setFixedPoint(options.fixedPoint);
+			tabulator.setBatchElimination(options.batchElimination);
+			tabulator.setSimultaneousElection(options.simultaneousElection);
+			tabulator.setShards(shards);
+			tabulator.setTallyPool(pool);
+
+			tabulator.start();
+			do {
+				VoteCounter.printRound(candidates, tabulator.nextRound());
+			} while(!tabulator.isComplete());
+
+			System.out.println();
+			System.out.println("Winners:");
+			System.out.println(String.join(", ", tabulator.getResult().getWinnerNames()));
+		} catch (UncheckedIOException e) {
+			System.out.println("The count was stopped because a shard failed. " + e.getMessage());
+		} finally {
+			pool.shutdown();
+			closeShards(shards);
+		}
+	}
+
+	/**
+	 * Read the shard list and open every shard, printing the reason if any cannot be opened
+	 *
+	 * @param shardFileName - String - the name of the shard list
+	 * @param candidateFileName - String - the name of the candidate file, for launched workers to read
+	 * @param candidates - CandidateRegistry - the registered candidates
+	 * @param local - boolean - true to count shards of vote files in this process rather than launching workers
+	 * @return {@code List<BallotShard>} - the shards, in list order, or null if not successful
+	 */
+	static List<BallotShard> openShards(String shardFileName, String candidateFileName, CandidateRegistry candidates, boolean local) {
+		ArrayList<BallotShard> shards = new ArrayList<>();
+		Path directory = Paths.get(shardFileName).toAbsolutePath().getParent();
+		String candidatePath = Paths.get(candidateFileName).toAbsolutePath().toString();
+
+		try(BufferedReader shardReader = new BufferedReader(new FileReader(shardFileName))) {
+			String line = null;
+			int lineNumber = 0;
+
+			while((line=shardReader.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if(line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+
+				if(line.startsWith("@")) {
+					//a worker already listening on another host
+					int colon = line.lastIndexOf(':');
+					int port = -1;
+					try {
+						port = colon == -1 ? -1 : Integer.parseInt(line.substring(colon + 1));
+					} catch (NumberFormatException e) {
+						port = -1;
+					}
+					if(port < 1) {
+						System.out.println("Line " + lineNumber + " of the shard list must give a worker as @host:port.");
+						closeShards(shards);
+						return null;
+					}
+
+					shards.add(RemoteShard.connect(candidates, line.substring(1, colon), port));
+					continue;
+				}
+
+				ArrayList<String> voteFileNames = new ArrayList<>();
+				for(String voteFileName : line.split(",")) {
+					voteFileNames.add(directory.resolve(voteFileName.trim()).toString());
+				}
+
+				if(!local) {
+					shards.add(RemoteShard.launch(candidates, candidatePath, voteFileNames));
+					continue;
+				}
+
+				Contest shard = ShardWorker.readShard(candidates, voteFileNames, System.out);
+				if(shard == null) {
+					closeShards(shards);
+					return null;
+				}
+				shards.add(new LocalShard(shard));
+			}
+		} catch(FileNotFoundException e) {
+			System.out.println("Unable to open the shard list. Please ensure the provided file path is correct.");
+			closeShards(shards);
+			return null;
+		} catch(IOException e) {
+			System.out.println("An error occured while opening the shards:" + e.getMessage());
+			closeShards(shards);
+			return null;
+		}
+
+		if(shards.isEmpty()) {
+			System.out.println("The shard list does not list any shards.");
+			return null;
+		}
+
+		return shards;
+	}
+
+	/**
+	 * Close every shard, stopping any worker processes launched for them
+	 *
+	 * @param shards - {@code List<BallotShard>} - the shards
+	 */
+	static void closeShards(List<BallotShard> shards) {
+		for(BallotShard shard : shards) {
+			try {
+				shard.close();
+			} catch (IOException e) {
+				//the shard's worker has already gone, which is all closing it would do
+			}
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package voteCounter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The vote counts of the ballots held by one {@link BallotShard}: how many ballots it holds, how many votes each
+ * candidate has from them, and how many of them are exhausted. The tallies of every shard add up to the tally of the
+ * whole contest, exactly when counting in fixed-point.
+ */
+public class ShardTally {
+
+	//The number of ballots held by the shard
+	private int ballotCount;
+	//The vote count of each candidate by id, if counting in double precision
+	private double[] voteCounts;
+	//The fixed-point vote count of each candidate by id, if counting in fixed-point
+	private long[] fixedVoteCounts;
+	//The number of the shard's ballots that count for no continuing candidate
+	private long exhaustedBallots;
+	//The weight of the exhausted ballots, if counting in double precision
+	private double exhaustedWeight;
+	//The fixed-point weight of the exhausted ballots, if counting in fixed-point
+	private long fixedExhaustedWeight;
+
+	ShardTally(int ballotCount, double[] voteCounts, long[] fixedVoteCounts, long exhaustedBallots, double exhaustedWeight,
+			long fixedExhaustedWeight) {
+		this.ballotCount = ballotCount;
+		this.voteCounts = voteCounts;
+		this.fixedVoteCounts = fixedVoteCounts;
+		this.exhaustedBallots = exhaustedBallots;
+		this.exhaustedWeight = exhaustedWeight;
+		this.fixedExhaustedWeight = fixedExhaustedWeight;
+	}
+
+	/**
+	 * Getter for the number of ballots held by the shard
+	 *
+	 * @return int - the number of ballots
+	 */
+	public int getBallotCount() {
+		return ballotCount;
+	}
+
+	/**
+	 * Get a candidate's vote count, when counting in double precision
+	 *
+	 * @param candidate - int - the id of the candidate
+	 * @return double - the vote count
+	 */
+	public double getVoteCount(int candidate) {
+		return voteCounts[candidate];
+	}
+
+	/**
+	 * Get a candidate's fixed-point vote count, when counting in fixed-point
+	 *
+	 * @param candidate - int - the id of the candidate
+	 * @return long - the fixed-point vote count
+	 */
+	public long getFixedVoteCount(int candidate) {
+		return fixedVoteCounts[candidate];
+	}
+
+	/**
+	 * Getter for the number of exhausted ballots
+	 *
+	 * @return long - the number of the shard's ballots that count for no continuing candidate
+	 */
+	public long getExhaustedBallots() {
+		return exhaustedBallots;
+	}
+
+	/**
+	 * Getter for the weight of the exhausted ballots, when counting in double precision
+	 *
+	 * @return double - the weight
+	 */
+	public double getExhaustedWeight() {
+		return exhaustedWeight;
+	}
+
+	/**
+	 * Getter for the fixed-point weight of the exhausted ballots, when counting in fixed-point
+	 *
+	 * @return long - the fixed-point weight
+	 */
+	public long getFixedExhaustedWeight() {
+		return fixedExhaustedWeight;
+	}
+
+	/**
+	 * Write the tally to a stream, as a shard worker answers a request
+	 *
+	 * @param output - DataOutputStream - the stream
+	 * @throws IOException if the tally could not be written
+	 */
+	void write(DataOutputStream output) throws IOException {
+		output.writeInt(ballotCount);
+		output.writeLong(exhaustedBallots);
+		output.writeBoolean(fixedVoteCounts != null);
+
+		if(fixedVoteCounts != null) {
+			output.writeLong(fixedExhaustedWeight);
+			for(long count : fixedVoteCounts) {
+				output.writeLong(count);
+			}
+		} else {
+			output.writeDouble(exhaustedWeight);
+			for(double count : voteCounts) {
+				output.writeDouble(count);
+			}
+		}
+	}
+
+	/**
+	 * Read a tally written by {@link #write(DataOutputStream)}
+	 *
+	 * @param input - DataInputStream - the stream
+	 * @param candidateCount - int - the number of registered candidates
+	 * @return ShardTally - the tally
+	 * @throws IOException if the tally could not be read
+	 */
+	static ShardTally read(DataInputStream input, int candidateCount) throws IOException {
+		int ballotCount = input.readInt();
+		long exhaustedBallots = input.readLong();
+
+		if(input.readBoolean()) {
+			long fixedExhaustedWeight = input.readLong();
+			long[] fixedVoteCounts = new long[candidateCount];
+			for(int candidate=0; candidate<candidateCount; candidate++) {
+				fixedVoteCounts[candidate] = input.readLong();
+			}
+
+			return new ShardTally(ballotCount, null, fixedVoteCounts, exhaustedBallots, 0.0, fixedExhaustedWeight);
+		}
+
+		double exhaustedWeight = input.readDouble();
+		double[] voteCounts = new double[candidateCount];
+		for(int candidate=0; candidate<candidateCount; candidate++) {
+			voteCounts[candidate] = input.readDouble();
+		}
+
+		return new ShardTally(ballotCount, voteCounts, null, exhaustedBallots, exhaustedWeight, 0);
+	}
+}
@@ -0,0 +1,332 @@
+package voteCounter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Holds one shard of a contest's ballots, such as the ballots of some precincts, and counts them on behalf of a
+ * {@link ShardCoordinator} in another process. The worker reads its vote files once, then answers requests until the
+ * coordinator closes the connection.<br>
+ * <br>
+ * By default the worker answers on standard input and output, as when a coordinator launches it. With
+ * {@code --listen=PORT} it instead accepts coordinators on a TCP port, one after another, so it can run on another
+ * host. Messages about the worker itself are printed to standard error, since standard output may carry requests.<br>
+ * <br>
+ * Arguments:<br>
+ * 	candidateFileName - String - The name of the candidate file, listing the same candidates as the coordinator's<br>
+ * 	voteFileNames - String... - The names of the shard's vote files<br>
+ * <br>
+ * Options:<br>
+ * 	--listen=PORT - accept coordinators on a TCP port rather than answering on standard input and output<br>
+ * 	--threads=N - the number of threads each transfer is tallied with. Defaults to 1
+ */
+public class ShardWorker {
+
+	//Requests, each sent as one byte followed by its arguments
+	static final int REQUEST_START = 1;
+	static final int REQUEST_TRANSFER = 2;
+	static final int REQUEST_PAIRWISE = 3;
+	static final int REQUEST_CLOSE = 4;
+	//The weights sent with a transfer: none for a weight of 1.0, double precision or fixed-point
+	static final int WEIGHTS_NONE = 0;
+	static final int WEIGHTS_DOUBLE = 1;
+	static final int WEIGHTS_FIXED = 2;
+	//Responses, each sent as one byte followed by the answer or an error message
+	static final int RESPONSE_OK = 0;
+	static final int RESPONSE_ERROR = 1;
+
+	/**
+	 * The main method. See class docs for description on required arguments
+	 *
+	 * @param args - String[]
+	 */
+	public static void main(String[] args) {
+		ArrayList<String> voteFileNames = new ArrayList<>();
+		int port = -1;
+		int threads = 1;
+
+		for(int i=1; i<args.length; i++) {
+			if(args[i].startsWith("--listen=") || args[i].startsWith("--threads=")) {
+				int value;
+				try {
+					value = Integer.parseInt(args[i].substring(args[i].indexOf('=') + 1));
+				} catch (NumberFormatException e) {
+					value = 0;
+				}
+
+				if(value < 1) {
+					System.err.println("The port and thread count must be whole numbers of at least 1.");
+					System.exit(1);
+				}
+				if(args[i].startsWith("--listen=")) {
+					port = value;
+				} else {
+					threads = value;
+				}
+			} else {
+				voteFileNames.add(args[i]);
+			}
+		}
+
+		//Quit if there is no candidate file or vote file
+		if(voteFileNames.isEmpty()) {
+			System.err.println("Please provide a candidate file and at least one vote file.");
+			System.exit(1);
+		}
+
+		CandidateRegistry candidates = VoteCounter.readCandidates(args[0], System.err);
+		Contest contest = candidates == null ? null : readShard(candidates, voteFileNames, System.err);
+		if(contest == null) {
+			System.exit(1);
+		}
+
+		LocalShard shard = new LocalShard(contest);
+		if(threads > 1) {
+			shard.setTallyPool(new ForkJoinPool(threads));
+		}
+
+		try {
+			if(port == -1) {
+				serve(shard, candidates, new DataInputStream(new BufferedInputStream(System.in)),
+						new DataOutputStream(new BufferedOutputStream(System.out)));
+			} else {
+				try(ServerSocket server = new ServerSocket(port)) {
+					System.err.println("Shard of " + contest.getBallots().ballotCount() + " ballots listening on port " + port + ".");
+
+					while(true) {
+						try(Socket socket = server.accept()) {
+							socket.setTcpNoDelay(true);
+							serve(shard, candidates, new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+									new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+						} catch (IOException e) {
+							System.err.println("A coordinator's connection failed: " + e.getMessage());
+						} catch (RuntimeException e) {
+							//the shard starts afresh for the next coordinator, so one bad coordinator cannot stop it
+							System.err.println("A coordinator's request could not be answered: " + e);
+						}
+					}
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("An error occured while serving the shard: " + e.getMessage());
+			System.exit(1);
+		}
+
+		System.exit(0);
+	}
+
+	/**
+	 * Answer the requests of one coordinator until it closes the connection. Requests are checked before they reach
+	 * the shard: a transfer or head to head count before the count has started, or one naming candidates that are not
+	 * registered, repeated or already transferred, is answered with an error. A request listing more candidates than
+	 * are registered cannot be read to its end, so it is answered with an error and the connection is closed
+	 *
+	 * @param shard - LocalShard - the shard counted
+	 * @param candidates - CandidateRegistry - the registered candidates
+	 * @param input - DataInputStream - the requests
+	 * @param output - DataOutputStream - the responses
+	 * @throws IOException if the connection fails
+	 */
+	static void serve(LocalShard shard, CandidateRegistry candidates, DataInputStream input, DataOutputStream output) throws IOException {
+		int request;
+		boolean started = false;
+		//The candidates transferred since the count started, whose ballots the shard no longer holds
+		BitSet transferred = new BitSet(candidates.size());
+
+		while((request = input.read()) != -1 && request != REQUEST_CLOSE) {
+			if(request == REQUEST_START) {
+				boolean fixedPoint = input.readBoolean();
+
+				//the candidate ids sent later only mean the same thing if both sides list the same candidates
+				int candidateCount = input.readInt();
+				boolean matches = candidateCount == candidates.size();
+				for(int candidate=0; candidate<candidateCount; candidate++) {
+					String name = input.readUTF();
+					matches = matches && candidate < candidates.size() && name.equals(candidates.getName(candidate));
+				}
+
+				if(!matches) {
+					reject(output, "The shard's candidate file does not list the coordinator's candidates.");
+				} else {
+					output.writeByte(RESPONSE_OK);
+					shard.start(fixedPoint).write(output);
+					started = true;
+					transferred.clear();
+				}
+			} else if(request == REQUEST_TRANSFER) {
+				int[] from = readIds(input, candidates.size());
+				if(from == null) {
+					reject(output, "The transfer lists more candidates than are registered.");
+					output.flush();
+					return;
+				}
+
+				//only the weights of the candidates transferred from are sent
+				double[] weightsSent = null;
+				long[] fixedWeightsSent = null;
+				int weights = input.read();
+				if(weights == WEIGHTS_DOUBLE) {
+					weightsSent = new double[from.length];
+					for(int i=0; i<from.length; i++) {
+						weightsSent[i] = input.readDouble();
+					}
+				} else if(weights == WEIGHTS_FIXED) {
+					fixedWeightsSent = new long[from.length];
+					for(int i=0; i<from.length; i++) {
+						fixedWeightsSent[i] = input.readLong();
+					}
+				} else if(weights != WEIGHTS_NONE) {
+					reject(output, "The transfer's weights are not in a known format.");
+					output.flush();
+					return;
+				}
+
+				String error = checkIds(from, candidates.size());
+				for(int i=0; error == null && i<from.length; i++) {
+					if(transferred.get(from[i])) {
+						error = "Candidate " + from[i] + " has already been transferred.";
+					}
+				}
+				if(!started) {
+					reject(output, "The count has not been started.");
+				} else if(from.length == 0) {
+					reject(output, "The transfer does not list any candidates.");
+				} else if(error != null) {
+					reject(output, error);
+				} else {
+					double[] redistributeAmounts = weightsSent == null ? null : new double[candidates.size()];
+					long[] fixedRedistributeAmounts = fixedWeightsSent == null ? null : new long[candidates.size()];
+					for(int i=0; i<from.length; i++) {
+						if(weightsSent != null) {
+							redistributeAmounts[from[i]] = weightsSent[i];
+						} else if(fixedWeightsSent != null) {
+							fixedRedistributeAmounts[from[i]] = fixedWeightsSent[i];
+						}
+						transferred.set(from[i]);
+					}
+
+					output.writeByte(RESPONSE_OK);
+					shard.transfer(from, redistributeAmounts, fixedRedistributeAmounts).write(output);
+				}
+			} else if(request == REQUEST_PAIRWISE) {
+				int[] ids = readIds(input, candidates.size());
+				if(ids == null) {
+					reject(output, "The head to head count lists more candidates than are registered.");
+					output.flush();
+					return;
+				}
+
+				String error = checkIds(ids, candidates.size());
+				if(!started) {
+					reject(output, "The count has not been started.");
+				} else if(error != null) {
+					reject(output, error);
+				} else {
+					PairwiseMatrix matrix = shard.countPairwise(ids);
+					output.writeByte(RESPONSE_OK);
+					for(int x=0; x<ids.length; x++) {
+						output.writeLong(matrix.getPoints(x));
+						for(int y=0; y<ids.length; y++) {
+							output.writeLong(matrix.get(x, y));
+						}
+					}
+				}
+			} else {
+				reject(output, "Unknown request " + request + ".");
+			}
+
+			output.flush();
+		}
+	}
+
+	/**
+	 * Read the candidate ids sent with a request, preceded by their number
+	 *
+	 * @param input - DataInputStream - the request
+	 * @param candidateCount - int - the number of registered candidates
+	 * @return int[] - the ids, which are not checked yet, or null if there are more of them than registered candidates
+	 * @throws IOException if the connection fails
+	 */
+	private static int[] readIds(DataInputStream input, int candidateCount) throws IOException {
+		int count = input.readInt();
+		if(count < 0 || count > candidateCount) {
+			return null;
+		}
+
+		int[] ids = new int[count];
+		for(int i=0; i<count; i++) {
+			ids[i] = input.readInt();
+		}
+
+		return ids;
+	}
+
+	/**
+	 * Check that candidate ids sent with a request are registered and not repeated
+	 *
+	 * @param ids - int[] - the ids
+	 * @param candidateCount - int - the number of registered candidates
+	 * @return String - why the ids cannot be used, or null if they can
+	 */
+	private static String checkIds(int[] ids, int candidateCount) {
+		BitSet seen = new BitSet(candidateCount);
+
+		for(int id : ids) {
+			if(id < 0 || id >= candidateCount) {
+				return "Candidate " + id + " is not registered.";
+			}
+			if(seen.get(id)) {
+				return "Candidate " + id + " is listed more than once.";
+			}
+			seen.set(id);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Answer a request with an error
+	 */
+	private static void reject(DataOutputStream output, String message) throws IOException {
+		output.writeByte(RESPONSE_ERROR);
+		output.writeUTF(message);
+	}
+
+	/**
+	 * Read the vote files of a shard into one set of ballots, printing the reason if any cannot be read
+	 *
+	 * @param candidates - CandidateRegistry - the registered candidates
+	 * @param voteFileNames - {@code List<String>} - the names of the shard's vote files
+	 * @param messages - PrintStream - where to print the reason
+	 * @return Contest - the shard's ballots, or null if not successful
+	 */
+	static Contest readShard(CandidateRegistry candidates, List<String> voteFileNames, PrintStream messages) {
+		BallotStore ballots = null;
+
+		for(String voteFileName : voteFileNames) {
+			BallotStore read = VoteCounter.readVotes(voteFileName, candidates, false, 1, messages);
+			if(read == null) {
+				return null;
+			}
+
+			//the ballots of every file after the first are merged into the first
+			if(ballots == null) {
+				ballots = read;
+			} else {
+				ballots.addAll(read);
+			}
+		}
+
+		return new Contest(candidates, ballots);
+	}
+}
@@ -0,0 +1,294 @@
+package voteCounter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * Where the working state of a count is held: the current choice and weight of every ballot group, each candidate's
+ * bucket of groups, and the scratch space of each round. Every one of these grows with the number of ballot groups, so
+ * for a very large contest they can be moved off the heap, into an {@link OffHeapBallotState} and
+ * {@link OffHeapIntList}s, leaving the heap a small fraction of their size and keeping them out of the way of the
+ * garbage collector.<br>
+ * <br>
+ * {@link #HEAP} holds the state in arrays on the heap, and is the default. {@link #direct()} holds it in direct buffers
+ * outside the heap, which the JVM limits to {@code -XX:MaxDirectMemorySize}, by default the same as the heap.
+ * {@link #spill(Path)} holds it in regions of a memory-mapped spill file, which is not limited by the JVM at all, and
+ * which the operating system pages to disk if it runs short of memory.<br>
+ * <br>
+ * Each region of the spill file is a power of two bytes long, and is kept for reuse by a later buffer of the same size
+ * once its buffer is released, so the file and the number of regions mapped stay close to the most state alive at
+ * once, rather than growing with every round. A buffer shared by copies of a count, such as the copy a checkpoint
+ * writes, counts the lists and states holding it, and its region is only reused once every one of them has released
+ * it. Direct buffers are freed by the garbage collector instead. The file is
+ * deleted as soon as it is created where the platform allows it, and otherwise when the JVM exits.
+ */
+public class StateMemory {
+
+	/**
+	 * Holds the state in arrays on the heap
+	 */
+	public static final StateMemory HEAP = new StateMemory(null);
+
+	//The smallest region of the spill file, in bytes. Every region is a power of two bytes long, so is aligned for
+	//every value
+	private static final int MIN_REGION_SIZE = 64;
+
+	//The spill file that buffers are mapped from, or null to allocate direct buffers
+	private FileChannel spill;
+	//The end of the last region of the spill file that was mapped
+	private long spillEnd = 0;
+	//The released regions of the spill file, by the power of two of their size, ready to be reused
+	private HashMap<Integer, ArrayDeque<ByteBuffer>> freeRegions = new HashMap<>();
+	//The region of the spill file behind each buffer in use, so it can be reused once the buffer is released
+	private IdentityHashMap<Buffer, Region> regions = new IdentityHashMap<>();
+
+	/**
+	 * A region of the spill file behind a buffer in use, and the number of lists and states holding the buffer
+	 */
+	private static class Region {
+		ByteBuffer bytes;
+		int holders = 1;
+
+		Region(ByteBuffer bytes) {
+			this.bytes = bytes;
+		}
+	}
+
+	private StateMemory(FileChannel spill) {
+		this.spill = spill;
+	}
+
+	/**
+	 * Hold the state in direct buffers outside the heap
+	 *
+	 * @return StateMemory - the memory
+	 */
+	public static StateMemory direct() {
+		return new StateMemory(null);
+	}
+
+	/**
+	 * Hold the state in a new memory-mapped spill file
+	 *
+	 * @param directory - Path - the directory to create the spill file in
+	 * @return StateMemory - the memory
+	 * @throws IOException if the spill file could not be created
+	 */
+	public static StateMemory spill(Path directory) throws IOException {
+		Path file = Files.createTempFile(directory, "ballot-state", ".spill");
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		//the mappings outlive the file's name, so it is removed at once where the platform allows it
+		try {
+			Files.delete(file);
+		} catch (IOException e) {
+			file.toFile().deleteOnExit();
+		}
+
+		return new StateMemory(channel);
+	}
+
+	/**
+	 * Create the state of every group of a store in this memory, each at its first choice with full weight
+	 *
+	 * @param store - BallotSource - the ballots being counted
+	 * @param fixedPoint - boolean - true to hold fixed-point weights, false to hold double precision weights
+	 * @return BallotState - the state
+	 */
+	BallotState newBallotState(BallotSource store, boolean fixedPoint) {
+		return this == HEAP ? new BallotState(store, fixedPoint) : new OffHeapBallotState(store, fixedPoint, this);
+	}
+
+	/**
+	 * Create an empty list in this memory
+	 *
+	 * @return IntList - the list
+	 */
+	IntList newIntList() {
+		return this == HEAP ? new IntList() : new OffHeapIntList(this);
+	}
+
+	/**
+	 * Allocate a buffer of ints outside the heap, filled with 0
+	 *
+	 * @param length - int - the number of ints
+	 * @return IntBuffer - the buffer
+	 */
+	IntBuffer allocateInts(int length) {
+		ByteBuffer region = allocateBytes(4L*length);
+		return track(region, region.asIntBuffer());
+	}
+
+	/**
+	 * Allocate a buffer of longs outside the heap, filled with 0
+	 *
+	 * @param length - int - the number of longs
+	 * @return LongBuffer - the buffer
+	 */
+	LongBuffer allocateLongs(int length) {
+		ByteBuffer region = allocateBytes(8L*length);
+		return track(region, region.asLongBuffer());
+	}
+
+	/**
+	 * Allocate a buffer of doubles outside the heap, filled with 0
+	 *
+	 * @param length - int - the number of doubles
+	 * @return DoubleBuffer - the buffer
+	 */
+	DoubleBuffer allocateDoubles(int length) {
+		ByteBuffer region = allocateBytes(8L*length);
+		return track(region, region.asDoubleBuffer());
+	}
+
+	/**
+	 * Allocate a buffer holding the first values of another
+	 *
+	 * @param values - IntBuffer - the buffer to copy
+	 * @param length - int - the number of values to copy
+	 * @param capacity - int - the capacity of the new buffer, at least length
+	 * @return IntBuffer - the new buffer
+	 */
+	IntBuffer copyOf(IntBuffer values, int length, int capacity) {
+		IntBuffer copy = allocateInts(capacity);
+		IntBuffer source = values.duplicate();
+		source.position(0).limit(length);
+		copy.duplicate().put(source);
+
+		return copy;
+	}
+
+	/**
+	 * Allocate a buffer holding the first values of another
+	 *
+	 * @param values - LongBuffer - the buffer to copy
+	 * @param length - int - the number of values to copy
+	 * @param capacity - int - the capacity of the new buffer, at least length
+	 * @return LongBuffer - the new buffer
+	 */
+	LongBuffer copyOf(LongBuffer values, int length, int capacity) {
+		LongBuffer copy = allocateLongs(capacity);
+		LongBuffer source = values.duplicate();
+		source.position(0).limit(length);
+		copy.duplicate().put(source);
+
+		return copy;
+	}
+
+	/**
+	 * Allocate a buffer holding the first values of another
+	 *
+	 * @param values - DoubleBuffer - the buffer to copy
+	 * @param length - int - the number of values to copy
+	 * @param capacity - int - the capacity of the new buffer, at least length
+	 * @return DoubleBuffer - the new buffer
+	 */
+	DoubleBuffer copyOf(DoubleBuffer values, int length, int capacity) {
+		DoubleBuffer copy = allocateDoubles(capacity);
+		DoubleBuffer source = values.duplicate();
+		source.position(0).limit(length);
+		copy.duplicate().put(source);
+
+		return copy;
+	}
+
+	/**
+	 * Record that another list or state holds a buffer allocated by this memory, so it is not reused until that one
+	 * has released it as well
+	 *
+	 * @param buffer - Buffer - the buffer, or null to do nothing
+	 */
+	synchronized void share(Buffer buffer) {
+		Region region = regions.get(buffer);
+
+		if(region != null) {
+			region.holders++;
+		}
+	}
+
+	/**
+	 * Release a buffer allocated by this memory, on behalf of one of the lists or states holding it. Once the last of
+	 * them has released it, its region of the spill file can be reused, so the holder must not use the buffer again.
+	 * Buffers that are not from the spill file are left to the garbage collector
+	 *
+	 * @param buffer - Buffer - the buffer, or null to do nothing
+	 */
+	synchronized void release(Buffer buffer) {
+		Region region = regions.get(buffer);
+		if(region == null || --region.holders > 0) {
+			return;
+		}
+
+		regions.remove(buffer);
+		if(Integer.bitCount(region.bytes.capacity()) == 1) {
+			freeRegions.computeIfAbsent(Integer.numberOfTrailingZeros(region.bytes.capacity()), size -> new ArrayDeque<>()).push(region.bytes);
+		}
+	}
+
+	/**
+	 * Remember the region of the spill file behind a buffer, if there is one, until the buffer is released
+	 */
+	private synchronized <T extends Buffer> T track(ByteBuffer region, T buffer) {
+		if(spill != null) {
+			regions.put(buffer, new Region(region));
+		}
+
+		return buffer;
+	}
+
+	/**
+	 * Allocate bytes outside the heap, in native byte order. A region of the spill file holds the next power of two
+	 * bytes, and a released region of that size is reused before the file is grown. Counts forked from one another
+	 * share their memory, so they may allocate from several threads at once
+	 *
+	 * @throws IllegalArgumentException if more bytes are asked for than a single buffer can hold
+	 * @throws UncheckedIOException if the spill file could not be grown
+	 */
+	private synchronized ByteBuffer allocateBytes(long bytes) {
+		if(bytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("There are too many ballot groups to hold their state off the heap.");
+		}
+
+		if(spill == null) {
+			return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+		}
+
+		int sizeClass = 64 - Long.numberOfLeadingZeros(Math.max(bytes, MIN_REGION_SIZE) - 1);
+		//a power of two above the largest buffer is not possible, so the largest regions are mapped as they are
+		long regionSize = sizeClass < 31 ? 1L << sizeClass : (bytes + MIN_REGION_SIZE - 1) / MIN_REGION_SIZE * MIN_REGION_SIZE;
+
+		ArrayDeque<ByteBuffer> free = freeRegions.get(sizeClass);
+		if(free != null && !free.isEmpty()) {
+			//a reused region still holds the values of its last buffer
+			ByteBuffer region = free.pop();
+			for(int i=0; i<region.capacity(); i+=8) {
+				region.putLong(i, 0);
+			}
+
+			return region;
+		}
+
+		try {
+			//a mapping past the end of the file grows it, and the new bytes read as 0
+			ByteBuffer region = spill.map(FileChannel.MapMode.READ_WRITE, spillEnd, Math.min(regionSize, Integer.MAX_VALUE));
+			spillEnd += regionSize;
+
+			return region.order(ByteOrder.nativeOrder());
+		} catch (IOException e) {
+			throw new UncheckedIOException("The spill file could not be grown: " + e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,322 @@
+package voteCounter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Saves the working state of a count between rounds, so a count that is stopped part way, by a crash or by an
+ * operator, can carry on from its last checkpoint rather than from the first round, with exactly the same result.<br>
+ * <br>
+ * Saving only copies the count's state, as cheaply as {@link Tabulator}'s copy constructor. The copy is written by a
+ * background thread, so the next round starts at once. If checkpoints are saved faster than they can be written,
+ * only the latest waiting one is written. Each checkpoint is written to a temporary file, synced, and then moved over
+ * the last one, so a crash while writing leaves the last complete checkpoint in place.<br>
+ * <br>
+ * The file is big-endian and laid out as:<br>
+ * 	header - the magic number and the format version, as ints<br>
+ * 	contest - each candidate name in id order, the number of ballot groups and ballots, and a CRC-32 of every
+ * 		group's count and rankings, to check the checkpoint is resumed with the same ballots<br>
+ * 	random - the serialized source of the random choice made when every other tie breaker fails<br>
+ * 	state - the count's working state, as written by the Tabulator<br>
+ * 	checksum - the CRC-32 of everything after the header, as a long<br>
+ * <br>
+ * The ballots are not saved, so they are read again when resuming, from the vote file or a {@link BallotSnapshot}.
+ */
+public class TabulationCheckpoint implements Closeable {
+
+	//The first 4 bytes of every checkpoint, "RCVC"
+	static final int MAGIC = 0x52435643;
+	//The version of the layout written, increased whenever the layout changes
+	static final int VERSION = 4;
+	//The size of the buffer the ballots are checksummed through
+	private static final int FINGERPRINT_BUFFER_SIZE = 1 << 16;
+	//The most bytes a serialized source of random numbers is read from
+	private static final int MAX_RANDOM_SIZE = 1 << 16;
+
+	//The file the checkpoints are written to
+	private Path file;
+	//The thread the checkpoints are written on
+	private ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+		Thread thread = new Thread(task, "checkpoint writer");
+		thread.setDaemon(true);
+		return thread;
+	});
+	//The latest checkpoint saved that has not been written yet, or null if there is none
+	private AtomicReference<Saved> pending = new AtomicReference<>();
+	//The first failure to write a checkpoint, or null if every one has been written
+	private volatile IOException error;
+	//The CRC-32 of the ballots, worked out on the first write, or null until then
+	private Long fingerprint;
+
+	/**
+	 * A copy of a count taken between rounds, along with its source of random numbers as it was at the time
+	 */
+	private static class Saved {
+		Tabulator tabulator;
+		byte[] random;
+	}
+
+	/**
+	 * @param file - Path - the file to write the checkpoints to, replacing it if it exists
+	 */
+	public TabulationCheckpoint(Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * Save a checkpoint of a count, to be written in the background
+	 *
+	 * @param tabulator - Tabulator - the count, which must have been started and count its own ballots
+	 * @throws IOException if the last checkpoint could not be written, or the count's source of random numbers
+	 * 		cannot be saved
+	 * @throws IllegalStateException if the count has not been started or its ballots are held by shards
+	 */
+	public void save(Tabulator tabulator) throws IOException {
+		if(error != null) {
+			throw error;
+		}
+
+		//the source of random numbers may be shared with other counts, so it is saved before they can draw from it again
+		Saved saved = new Saved();
+		saved.random = serialize(tabulator.getRandom());
+		saved.tabulator = new Tabulator(tabulator);
+
+		Saved replaced = pending.getAndSet(saved);
+		if(replaced == null) {
+			writer.execute(this::writePending);
+		} else {
+			//a checkpoint that was never written is replaced by the newer one
+			replaced.tabulator.release();
+		}
+	}
+
+	/**
+	 * Write the latest checkpoint saved, if it has not been written yet
+	 */
+	private void writePending() {
+		Saved saved = pending.getAndSet(null);
+		if(saved == null) {
+			return;
+		}
+
+		try {
+			if(error == null) {
+				if(fingerprint == null) {
+					fingerprint = fingerprint(saved.tabulator.getContest().getBallots());
+				}
+				write(file, saved.tabulator, saved.random, fingerprint);
+			}
+		} catch (IOException e) {
+			error = e;
+		} finally {
+			//the copy's state is held until every copy sharing it has released it, which may be off the heap
+			saved.tabulator.release();
+		}
+	}
+
+	/**
+	 * Wait for the last checkpoint saved to be written, and stop the background thread
+	 *
+	 * @throws IOException if any checkpoint could not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		writer.shutdown();
+		try {
+			writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the last checkpoint to be written.", e);
+		}
+
+		if(error != null) {
+			throw error;
+		}
+	}
+
+	/**
+	 * Write a checkpoint of a count on the calling thread
+	 *
+	 * @param file - Path - the file to write, replacing it if it exists
+	 * @param tabulator - Tabulator - the count, which must have been started and count its own ballots
+	 * @throws IOException if the file could not be written
+	 * @throws IllegalStateException if the count has not been started or its ballots are held by shards
+	 */
+	public static void write(Path file, Tabulator tabulator) throws IOException {
+		write(file, tabulator, serialize(tabulator.getRandom()), fingerprint(tabulator.getContest().getBallots()));
+	}
+
+	/**
+	 * Write a checkpoint to a temporary file and move it over the file once it is complete
+	 */
+	private static void write(Path file, Tabulator tabulator, byte[] random, long fingerprint) throws IOException {
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		CandidateRegistry candidates = tabulator.getContest().getCandidates();
+		BallotSource ballots = tabulator.getContest().getBallots();
+
+		try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			BufferedOutputStream buffered = new BufferedOutputStream(Channels.newOutputStream(channel));
+			DataOutputStream header = new DataOutputStream(buffered);
+			header.writeInt(MAGIC);
+			header.writeInt(VERSION);
+
+			CRC32 checksum = new CRC32();
+			DataOutputStream output = new DataOutputStream(new CheckedOutputStream(buffered, checksum));
+			output.writeInt(candidates.size());
+			for(int candidate=0; candidate<candidates.size(); candidate++) {
+				output.writeUTF(candidates.getName(candidate));
+			}
+			output.writeInt(ballots.size());
+			output.writeInt(ballots.ballotCount());
+			output.writeLong(fingerprint);
+			output.writeInt(random.length);
+			output.write(random);
+			tabulator.writeState(output);
+			output.flush();
+
+			header.writeLong(checksum.getValue());
+			header.flush();
+			channel.force(true);
+		}
+
+		try {
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Read a checkpoint, checking that it was saved for the same candidates and ballots as the contest
+	 *
+	 * @param file - Path - the checkpoint file
+	 * @param contest - Contest - the contest the checkpoint was saved for, read again from its vote file or snapshot
+	 * @return Tabulator - the count, ready to count the round after the checkpoint
+	 * @throws IOException if the file could not be read, is damaged, or was saved for a different contest
+	 */
+	public static Tabulator read(Path file, Contest contest) throws IOException {
+		CandidateRegistry candidates = contest.getCandidates();
+		BallotSource ballots = contest.getBallots();
+
+		try(InputStream buffered = new BufferedInputStream(Files.newInputStream(file))) {
+			DataInputStream header = new DataInputStream(buffered);
+			if(header.readInt() != MAGIC) {
+				throw new IOException("The file is not a checkpoint.");
+			}
+			int version = header.readInt();
+			if(version != VERSION) {
+				throw new IOException("The checkpoint is version " + version + ", but only version " + VERSION + " can be read.");
+			}
+
+			CRC32 checksum = new CRC32();
+			DataInputStream input = new DataInputStream(new CheckedInputStream(buffered, checksum));
+
+			boolean matches = input.readInt() == candidates.size();
+			for(int candidate=0; matches && candidate<candidates.size(); candidate++) {
+				matches = input.readUTF().equals(candidates.getName(candidate));
+			}
+			if(!matches) {
+				throw new IOException("The checkpoint was saved for different candidates.");
+			}
+			if(input.readInt() != ballots.size() || input.readInt() != ballots.ballotCount() || input.readLong() != fingerprint(ballots)) {
+				throw new IOException("The checkpoint was saved for different ballots.");
+			}
+
+			int randomLength = input.readInt();
+			if(randomLength < 0 || randomLength > MAX_RANDOM_SIZE) {
+				throw new IOException("The checkpoint is damaged.");
+			}
+			byte[] random = new byte[randomLength];
+			input.readFully(random);
+			Tabulator tabulator = Tabulator.readState(contest, input);
+
+			long expected = checksum.getValue();
+			if(header.readLong() != expected) {
+				throw new IOException("The checkpoint is damaged: its checksum does not match.");
+			}
+
+			tabulator.setRandom(deserialize(random));
+			return tabulator;
+		}
+	}
+
+	/**
+	 * Work out the CRC-32 of every ballot group's count and rankings
+	 *
+	 * @param ballots - BallotSource - the ballots
+	 * @return long - the CRC-32
+	 */
+	static long fingerprint(BallotSource ballots) {
+		CRC32 checksum = new CRC32();
+		ByteBuffer buffer = ByteBuffer.allocate(FINGERPRINT_BUFFER_SIZE);
+
+		for(int group=0; group<ballots.size(); group++) {
+			int length = ballots.length(group);
+			for(int position=-2; position<length; position++) {
+				if(buffer.remaining() < 4) {
+					checksum.update(buffer.array(), 0, buffer.position());
+					buffer.clear();
+				}
+
+				//each group is its count and its length followed by its rankings
+				buffer.putInt(position == -2 ? ballots.count(group) : position == -1 ? length : ballots.choice(group, position));
+			}
+		}
+		checksum.update(buffer.array(), 0, buffer.position());
+
+		return checksum.getValue();
+	}
+
+	/**
+	 * Serialize a source of random numbers, keeping its place in the sequence
+	 */
+	private static byte[] serialize(Random random) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+			output.writeObject(random);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Deserialize a source of random numbers, refusing any object that is not one
+	 */
+	private static Random deserialize(byte[] random) throws IOException {
+		try(ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(random))) {
+			input.setObjectInputFilter(info -> info.serialClass() == null || Random.class.isAssignableFrom(info.serialClass())
+					? ObjectInputFilter.Status.UNDECIDED : ObjectInputFilter.Status.REJECTED);
+
+			return (Random) input.readObject();
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException("The checkpoint's tie breaker random numbers cannot be restored.", e);
+		}
+	}
+}
@@ -0,0 +1,395 @@
+package voteCounter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Records how long each phase of a count takes and how much work it does: reading the ballots, the initial count,
+ * every round and every tie break, the ballots each round scans and transfers, and the memory each phase allocates,
+ * both on the counting thread and on the threads its tally blocks run on. A {@link Tabulator} given the metrics
+ * records its phases as it counts. While a count runs the metrics can be watched over JMX once registered, and once it
+ * is done they can be written out as JSON.<br>
+ * <br>
+ * The heap is shared by every contest counted in the process, so the heap in use after each round and the high-water
+ * mark of the heap are those of the whole process, and are labelled as such. When several contests are counted at
+ * once, only the memory each one allocated is its own.<br>
+ * <br>
+ * Ballots held by {@link BallotShard}s are scanned by the shards, so a count over shards records their timings but
+ * not their scans.
+ */
+public class TabulationMetrics implements TabulationMetricsMBean {
+
+	//The name of the contest, used to register the metrics and in the JSON
+	private String name;
+	//The name the metrics are registered with, or null if they are not registered
+	private ObjectName objectName;
+	//The number of ballots read
+	private long ballotsRead = 0;
+	//The time taken to read the ballots, in nanoseconds
+	private long ingestNanos = 0;
+	//The bytes allocated while reading the ballots
+	private long ingestAllocatedBytes = 0;
+	//The time taken by the initial count, in nanoseconds
+	private long initialCountNanos = 0;
+	//The number of ballot groups and ballots placed by the initial count
+	private long initialGroupsScanned = 0;
+	private long initialBallotsScanned = 0;
+	//The bytes allocated by the initial count
+	private long initialAllocatedBytes = 0;
+	//The metrics of every round counted, in order
+	private ArrayList<Round> rounds = new ArrayList<>();
+	//The number and time of the tie breaks run since the last round was recorded
+	private int pendingTieBreaks = 0;
+	private long pendingTieBreakNanos = 0;
+	//The bytes allocated by tally blocks run on threads other than the one counting
+	private LongAdder workerAllocatedBytes = new LongAdder();
+
+	/**
+	 * The metrics of one round
+	 */
+	private static class Round {
+		int number;
+		long nanos;
+		long groupsScanned;
+		long ballotsScanned;
+		long ballotsTransferred;
+		int tieBreaks;
+		long tieBreakNanos;
+		long allocatedBytes;
+		long processHeapUsedBytes;
+	}
+
+	/**
+	 * Create metrics for one contest
+	 *
+	 * @param name - String - the name of the contest
+	 */
+	public TabulationMetrics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Register the metrics with the platform MBean server, under
+	 * {@code voteCounter:type=TabulationMetrics,name="<name>"}, so they can be watched while the count runs
+	 *
+	 * @throws JMException if the metrics could not be registered, such as when metrics of the same name already are
+	 */
+	public synchronized void register() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName registered = new ObjectName("voteCounter:type=TabulationMetrics,name=" + ObjectName.quote(name));
+
+		server.registerMBean(this, registered);
+		objectName = registered;
+	}
+
+	/**
+	 * Remove the metrics from the platform MBean server, if they are registered
+	 */
+	public synchronized void unregister() {
+		if(objectName == null) {
+			return;
+		}
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (JMException e) {
+			//the metrics were already removed
+		}
+		objectName = null;
+	}
+
+	/**
+	 * Get the bytes allocated so far by the calling thread and by the tally blocks recorded with
+	 * {@link #recordWorkerAllocation(long)}, to measure what a phase allocates
+	 *
+	 * @return long - the bytes allocated, or 0 if the JVM cannot measure them
+	 */
+	long allocatedBytes() {
+		return threadAllocatedBytes() + workerAllocatedBytes.sum();
+	}
+
+	/**
+	 * Get the bytes allocated by the calling thread so far
+	 *
+	 * @return long - the bytes allocated, or 0 if the JVM cannot measure them
+	 */
+	static long threadAllocatedBytes() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if(!(threads instanceof com.sun.management.ThreadMXBean)) {
+			return 0;
+		}
+
+		long allocated = ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return Math.max(allocated, 0);
+	}
+
+	/**
+	 * Record the bytes a tally block allocated on a thread other than the one counting, which that thread's own count
+	 * does not see. Blocks may record from several threads at once
+	 *
+	 * @param bytes - long - the bytes allocated
+	 */
+	void recordWorkerAllocation(long bytes) {
+		workerAllocatedBytes.add(bytes);
+	}
+
+	/**
+	 * Record the reading of the ballots
+	 *
+	 * @param ballots - long - the number of ballots read
+	 * @param nanos - long - the time taken, in nanoseconds
+	 * @param allocatedBytes - long - the bytes allocated
+	 */
+	synchronized void recordIngest(long ballots, long nanos, long allocatedBytes) {
+		ballotsRead = ballots;
+		ingestNanos = nanos;
+		ingestAllocatedBytes = allocatedBytes;
+	}
+
+	/**
+	 * Record the initial count. Counting again from the start replaces it and the rounds already recorded
+	 *
+	 * @param nanos - long - the time taken, in nanoseconds
+	 * @param groupsScanned - long - the number of ballot groups placed
+	 * @param ballotsScanned - long - the number of ballots placed
+	 * @param allocatedBytes - long - the bytes allocated
+	 */
+	synchronized void recordInitialCount(long nanos, long groupsScanned, long ballotsScanned, long allocatedBytes) {
+		initialCountNanos = nanos;
+		initialGroupsScanned = groupsScanned;
+		initialBallotsScanned = ballotsScanned;
+		initialAllocatedBytes = allocatedBytes;
+		rounds.clear();
+		pendingTieBreaks = 0;
+		pendingTieBreakNanos = 0;
+	}
+
+	/**
+	 * Record a tie break, which is counted towards the next round recorded
+	 *
+	 * @param nanos - long - the time taken, in nanoseconds
+	 */
+	synchronized void recordTieBreak(long nanos) {
+		pendingTieBreaks++;
+		pendingTieBreakNanos += nanos;
+	}
+
+	/**
+	 * Record a round, along with the tie breaks it ran
+	 *
+	 * @param number - int - the number of the round
+	 * @param nanos - long - the time taken, including any tie break, in nanoseconds
+	 * @param groupsScanned - long - the number of ballot groups the round's transfers scanned
+	 * @param ballotsScanned - long - the number of ballots the round's transfers scanned
+	 * @param ballotsTransferred - long - the number of those ballots that went on to count for a candidate
+	 * @param allocatedBytes - long - the bytes allocated
+	 */
+	synchronized void recordRound(int number, long nanos, long groupsScanned, long ballotsScanned, long ballotsTransferred, long allocatedBytes) {
+		Round round = new Round();
+		round.number = number;
+		round.nanos = nanos;
+		round.groupsScanned = groupsScanned;
+		round.ballotsScanned = ballotsScanned;
+		round.ballotsTransferred = ballotsTransferred;
+		round.tieBreaks = pendingTieBreaks;
+		round.tieBreakNanos = pendingTieBreakNanos;
+		round.allocatedBytes = allocatedBytes;
+		round.processHeapUsedBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		rounds.add(round);
+
+		pendingTieBreaks = 0;
+		pendingTieBreakNanos = 0;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public synchronized long getBallotsRead() {
+		return ballotsRead;
+	}
+
+	@Override
+	public synchronized double getIngestMillis() {
+		return ingestNanos / 1e6;
+	}
+
+	@Override
+	public synchronized double getInitialCountMillis() {
+		return initialCountNanos / 1e6;
+	}
+
+	@Override
+	public synchronized int getRoundsCounted() {
+		return rounds.size();
+	}
+
+	@Override
+	public synchronized double getRoundMillis() {
+		long nanos = 0;
+		for(Round round : rounds) {
+			nanos += round.nanos;
+		}
+
+		return nanos / 1e6;
+	}
+
+	@Override
+	public synchronized int getSlowestRound() {
+		Round slowest = slowestRound();
+		return slowest == null ? 0 : slowest.number;
+	}
+
+	@Override
+	public synchronized double getSlowestRoundMillis() {
+		Round slowest = slowestRound();
+		return slowest == null ? 0.0 : slowest.nanos / 1e6;
+	}
+
+	/**
+	 * Find the round that took the longest, or null if none have been counted
+	 */
+	private Round slowestRound() {
+		Round slowest = null;
+		for(Round round : rounds) {
+			if(slowest == null || round.nanos > slowest.nanos) {
+				slowest = round;
+			}
+		}
+
+		return slowest;
+	}
+
+	@Override
+	public synchronized int getTieBreaks() {
+		int tieBreaks = pendingTieBreaks;
+		for(Round round : rounds) {
+			tieBreaks += round.tieBreaks;
+		}
+
+		return tieBreaks;
+	}
+
+	@Override
+	public synchronized double getTieBreakMillis() {
+		long nanos = pendingTieBreakNanos;
+		for(Round round : rounds) {
+			nanos += round.tieBreakNanos;
+		}
+
+		return nanos / 1e6;
+	}
+
+	@Override
+	public synchronized long getBallotsScanned() {
+		long scanned = initialBallotsScanned;
+		for(Round round : rounds) {
+			scanned += round.ballotsScanned;
+		}
+
+		return scanned;
+	}
+
+	@Override
+	public synchronized long getBallotsTransferred() {
+		long transferred = 0;
+		for(Round round : rounds) {
+			transferred += round.ballotsTransferred;
+		}
+
+		return transferred;
+	}
+
+	@Override
+	public synchronized long getAllocatedBytes() {
+		long allocated = ingestAllocatedBytes + initialAllocatedBytes;
+		for(Round round : rounds) {
+			allocated += round.allocatedBytes;
+		}
+
+		return allocated;
+	}
+
+	@Override
+	public long getProcessHeapHighWaterBytes() {
+		//the peak usage of each of the heap's pools since the JVM started, which catches peaks between samples
+		long peak = 0;
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+
+		return peak;
+	}
+
+	/**
+	 * Write the metrics of several contests to a file as a JSON array, with one object per contest
+	 *
+	 * @param file - Path - the file to write
+	 * @param metrics - {@code List<TabulationMetrics>} - the metrics of each contest, in the order to write them
+	 * @throws IOException if the file could not be written
+	 */
+	public static void write(Path file, List<TabulationMetrics> metrics) throws IOException {
+		try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("[");
+			for(int i=0; i<metrics.size(); i++) {
+				writer.write(i == 0 ? "\n" : ",\n");
+				metrics.get(i).writeJson(writer);
+			}
+			writer.write("\n]\n");
+		}
+	}
+
+	/**
+	 * Write the metrics as one JSON object
+	 *
+	 * @param writer - Writer - where to write them
+	 * @throws IOException if the metrics could not be written
+	 */
+	public synchronized void writeJson(Writer writer) throws IOException {
+		writer.write("  {\n");
+		writer.write("    \"name\": " + OutputFormat.jsonString(name) + ",\n");
+		writer.write("    \"ballotsRead\": " + ballotsRead + ",\n");
+		writer.write("    \"ingest\": {\"millis\": " + OutputFormat.formatMillis(ingestNanos) + ", \"allocatedBytes\": " + ingestAllocatedBytes + "},\n");
+		writer.write("    \"initialCount\": {\"millis\": " + OutputFormat.formatMillis(initialCountNanos) + ", \"groupsScanned\": "
+				+ initialGroupsScanned + ", \"ballotsScanned\": " + initialBallotsScanned + ", \"allocatedBytes\": "
+				+ initialAllocatedBytes + "},\n");
+
+		writer.write("    \"rounds\": [");
+		for(int i=0; i<rounds.size(); i++) {
+			Round round = rounds.get(i);
+			writer.write(i == 0 ? "\n" : ",\n");
+			writer.write("      {\"round\": " + round.number + ", \"millis\": " + OutputFormat.formatMillis(round.nanos)
+					+ ", \"groupsScanned\": " + round.groupsScanned + ", \"ballotsScanned\": " + round.ballotsScanned
+					+ ", \"ballotsTransferred\": " + round.ballotsTransferred + ", \"tieBreaks\": " + round.tieBreaks
+					+ ", \"tieBreakMillis\": " + OutputFormat.formatMillis(round.tieBreakNanos) + ", \"allocatedBytes\": "
+					+ round.allocatedBytes + ", \"processHeapUsedBytes\": " + round.processHeapUsedBytes + "}");
+		}
+		writer.write(rounds.isEmpty() ? "],\n" : "\n    ],\n");
+
+		writer.write("    \"totals\": {\"roundMillis\": " + String.format(Locale.ROOT, "%.3f", getRoundMillis())
+				+ ", \"slowestRound\": " + getSlowestRound() + ", \"tieBreaks\": " + getTieBreaks()
+				+ ", \"tieBreakMillis\": " + String.format(Locale.ROOT, "%.3f", getTieBreakMillis())
+				+ ", \"ballotsScanned\": " + getBallotsScanned() + ", \"ballotsTransferred\": " + getBallotsTransferred()
+				+ ", \"allocatedBytes\": " + getAllocatedBytes() + ", \"processHeapHighWaterBytes\": " + getProcessHeapHighWaterBytes() + "}\n");
+		writer.write("  }");
+	}
+}
@@ -0,0 +1,107 @@
+package voteCounter;
+
+/**
+ * The management interface of {@link TabulationMetrics}, through which a count in progress can be watched over JMX,
+ * such as with jconsole. Times are in milliseconds.
+ */
+public interface TabulationMetricsMBean {
+
+	/**
+	 * Getter for the name
+	 *
+	 * @return String - the name of the contest the metrics are recorded for
+	 */
+	String getName();
+
+	/**
+	 * Getter for the number of ballots read
+	 *
+	 * @return long - the number of ballots read, or 0 if the reading was not recorded
+	 */
+	long getBallotsRead();
+
+	/**
+	 * Getter for the time taken to read the ballots
+	 *
+	 * @return double - the time, in milliseconds
+	 */
+	double getIngestMillis();
+
+	/**
+	 * Getter for the time taken by the initial count
+	 *
+	 * @return double - the time, in milliseconds
+	 */
+	double getInitialCountMillis();
+
+	/**
+	 * Getter for the number of rounds counted
+	 *
+	 * @return int - the number of rounds
+	 */
+	int getRoundsCounted();
+
+	/**
+	 * Getter for the time taken by every round counted
+	 *
+	 * @return double - the total time, in milliseconds
+	 */
+	double getRoundMillis();
+
+	/**
+	 * Getter for the round that took the longest
+	 *
+	 * @return int - the number of the slowest round, or 0 if none have been counted
+	 */
+	int getSlowestRound();
+
+	/**
+	 * Getter for the time taken by the round that took the longest
+	 *
+	 * @return double - the time, in milliseconds
+	 */
+	double getSlowestRoundMillis();
+
+	/**
+	 * Getter for the number of tie breaks run
+	 *
+	 * @return int - the number of tie breaks
+	 */
+	int getTieBreaks();
+
+	/**
+	 * Getter for the time taken by every tie break
+	 *
+	 * @return double - the total time, in milliseconds
+	 */
+	double getTieBreakMillis();
+
+	/**
+	 * Getter for the number of ballots scanned by the initial count and every transfer
+	 *
+	 * @return long - the number of ballots
+	 */
+	long getBallotsScanned();
+
+	/**
+	 * Getter for the number of ballots scanned that went on to count for a candidate
+	 *
+	 * @return long - the number of ballots
+	 */
+	long getBallotsTransferred();
+
+	/**
+	 * Getter for the bytes allocated by the count, on the counting thread and on the threads its tally blocks run on
+	 *
+	 * @return long - the bytes allocated while reading and counting, or 0 if the JVM cannot measure them
+	 */
+	long getAllocatedBytes();
+
+	/**
+	 * Getter for the most heap in use at once by the whole process, which is shared with any other contest counted at
+	 * the same time
+	 *
+	 * @return long - the high-water mark of the heap, in bytes, since the JVM started
+	 */
+	long getProcessHeapHighWaterBytes();
+}
@@ -0,0 +1,81 @@
+package voteCounter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a complete count: the winners, in the order they won, and the result of every round. A
+ * TabulationResult is never altered once the count has finished.
+ */
+public class TabulationResult {
+
+	//The registry the candidate ids refer to
+	private CandidateRegistry candidates;
+	//The ids of the winners, in the order they won
+	private List<Integer> winners;
+	//The result of every round, in order
+	private List<RoundResult> rounds;
+	//The vote counts after the last round, or null if the count had not started
+	private RoundResult finalTally;
+
+	TabulationResult(CandidateRegistry candidates, List<Integer> winners, List<RoundResult> rounds, RoundResult finalTally) {
+		this.candidates = candidates;
+		this.winners = Collections.unmodifiableList(new ArrayList<>(winners));
+		this.rounds = Collections.unmodifiableList(new ArrayList<>(rounds));
+		this.finalTally = finalTally;
+	}
+
+	/**
+	 * Getter for the candidates
+	 *
+	 * @return CandidateRegistry - the registry the candidate ids refer to
+	 */
+	public CandidateRegistry getCandidates() {
+		return candidates;
+	}
+
+	/**
+	 * Getter for the winners
+	 *
+	 * @return {@code List<Integer>} - the ids of the winners, in the order they won
+	 */
+	public List<Integer> getWinners() {
+		return winners;
+	}
+
+	/**
+	 * Get the names of the winners
+	 *
+	 * @return {@code List<String>} - the names of the winners, in the order they won
+	 */
+	public List<String> getWinnerNames() {
+		ArrayList<String> names = new ArrayList<>();
+
+		for(Integer winner : winners) {
+			names.add(candidates.getName(winner));
+		}
+
+		return names;
+	}
+
+	/**
+	 * Getter for the rounds
+	 *
+	 * @return {@code List<RoundResult>} - the result of every round, in order
+	 */
+	public List<RoundResult> getRounds() {
+		return rounds;
+	}
+
+	/**
+	 * Getter for the final tally: the vote counts and exhausted ballots after the last round, held as the start of the
+	 * round that would have followed it, with no outcome. Comparing it with the last round shows the votes that round
+	 * transferred, as comparing any round with the next does
+	 *
+	 * @return RoundResult - the vote counts after the last round, or null if the count had not started
+	 */
+	public RoundResult getFinalTally() {
+		return finalTally;
+	}
+}
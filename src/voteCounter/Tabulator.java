@@ -0,0 +1,1629 @@
+package voteCounter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Counts a {@link Contest} in rounds. Every round either elects the first candidate over the threshold, in id order,
+ * and redistributes their surplus, or eliminates the candidate with the fewest votes and redistributes all of their
+ * votes, until enough winners have been found.<br>
+ * <br>
+ * All of the working state of a count belongs to the Tabulator, and the Contest is only read, so any number of
+ * Tabulators can count the same or different contests at the same time. A single Tabulator must only be used from one
+ * thread at a time.<br>
+ * <br>
+ * The ballots can instead be held by {@link BallotShard}s, such as one per precinct in separate worker processes. The
+ * Tabulator then only holds the merged vote counts: it decides every round as usual and tells each shard which
+ * candidates' ballots to transfer, and with what weight.
+ */
+public class Tabulator {
+	
+	//The number of ballot groups tallied as one block. Each block sums its own partial tally, and the partial tallies
+	//are added in block order, so the counts are bit-identical whatever the number of threads
+	static final int TALLY_BLOCK_SIZE = 8192;
+	//The fewest votes worth compacting. The votes are compacted once at least half of them are exhausted
+	static final int MIN_COMPACTION_SIZE = TALLY_BLOCK_SIZE;
+	
+	//The contest being counted
+	private Contest contest;
+	//The registry mapping candidate names to the ids used throughout the count
+	private CandidateRegistry candidates;
+	//The original, unaltered ballots, grouped by identical rankings
+	private BallotSource originalBallots;
+	//The number of candidates that can win
+	private int numberOfWinners;
+	//the total number of votes being counted
+	private int numberOfVotes;
+	//the number of votes needed to guarantee a win
+	private double voteThreshold;
+	//the fixed-point number of votes needed to guarantee a win, rounded down
+	private long fixedVoteThreshold;
+	//Option: count in fixed-point rather than double precision. Fixed-point is exact and deterministic, and is the
+	//default for certified counts. Double precision is only kept for comparison
+	private boolean fixedPoint = true;
+	//The pool that tally blocks run on, or null when tallying on the calling thread
+	private ForkJoinPool tallyPool;
+	//The source of the random choice made when every other tie breaker fails
+	private Random random = new Random();
+	//The shards holding the ballots, or null when the contest's own ballots are counted
+	private List<BallotShard> shards;
+	//Option: eliminate every mathematically defeated candidate in one round, rather than one candidate per round
+	private boolean batchElimination = false;
+	//Option: elect every candidate over the threshold in one round, rather than one candidate per round
+	private boolean simultaneousElection = false;
+	//The metrics each phase of the count is recorded in, or null to not record any
+	private TabulationMetrics metrics;
+	//Option: how a tie for last place is broken
+	private TieBreakPolicy tieBreakPolicy = TieBreakPolicy.CONDORCET;
+	//Option: where the state of the ballot groups and the buckets are held
+	private StateMemory memory = StateMemory.HEAP;
+	//A list of the ids of the candidates which have won
+	private ArrayList<Integer> winningCandidates = new ArrayList<>();
+	//A list of the ids of the candidates which have been eliminated
+	private ArrayList<Integer> eliminatedCandidates = new ArrayList<>();
+	//The current choice and weight of every ballot group being counted, or null until the count starts
+	private BallotState votes;
+	//The working vote counts, indexed by candidate id, when counting in double precision
+	private double[] currentVoteCounts;
+	//The working fixed-point vote counts, indexed by candidate id, when counting in fixed-point
+	private long[] fixedVoteCounts;
+	//Marks the candidates, by id, that have not been eliminated
+	private boolean[] remainingCandidates;
+	//The number of candidates that have not been eliminated
+	private int remainingCount;
+	//Marks the candidates, by id, that can no longer receive votes because they have been eliminated or have won
+	private BitSet inactiveCandidates = new BitSet();
+	//For each candidate id, the indexes in votes of the ballot groups currently counting for that candidate
+	private IntList[] candidateBallots;
+	//The result of every round counted so far
+	private ArrayList<RoundResult> rounds = new ArrayList<>();
+	//True once the initial count has been performed
+	private boolean started = false;
+	//The number of ballots with no continuing candidate left to count for
+	private long exhaustedBallots = 0;
+	//The weight of the exhausted ballots, when counting in double precision
+	private double exhaustedWeight = 0.0;
+	//The fixed-point weight of the exhausted ballots, when counting in fixed-point
+	private long fixedExhaustedWeight = 0;
+	//The number of votes that are exhausted but still in votes, until the votes are next compacted
+	private int exhaustedVotes = 0;
+	//The number of ballot groups of the contest that have been counted. Once the votes have been compacted, the
+	//groups no longer line up with the indexes of votes
+	private int countedGroups = 0;
+	//The number of ballot groups and ballots scanned by every tally since the count started, and the number of those
+	//ballots that went on to count for a candidate rather than being exhausted
+	private long scannedGroups = 0;
+	private long scannedBallots = 0;
+	private long transferredBallots = 0;
+	
+	/**
+	 * @param contest - Contest - the contest to count
+	 * @param numberOfWinners - int - the number of candidates that can win
+	 * @throws IllegalArgumentException if the number of winners is below 1 or above the number of candidates
+	 */
+	public Tabulator(Contest contest, int numberOfWinners) {
+		if(numberOfWinners < 1 || numberOfWinners > contest.getCandidates().size()) {
+			throw new IllegalArgumentException("The number of winners must be at least 1 and no more than the number of candidates");
+		}
+		
+		this.contest = contest;
+		this.candidates = contest.getCandidates();
+		this.originalBallots = contest.getBallots();
+		this.numberOfWinners = numberOfWinners;
+		this.numberOfVotes = originalBallots.ballotCount();
+		
+		//every registered candidate starts with no votes and has not been eliminated
+		currentVoteCounts = new double[candidates.size()];
+		fixedVoteCounts = new long[candidates.size()];
+		candidateBallots = new IntList[candidates.size()];
+		remainingCandidates = new boolean[candidates.size()];
+	}
+	
+	/**
+	 * Create a copy of another Tabulator, counting the same contest from exactly the point the other has reached. The
+	 * two can then be counted on independently
+	 *
+	 * @param other - Tabulator - the Tabulator to copy
+	 */
+	Tabulator(Tabulator other) {
+		this.contest = other.contest;
+		this.candidates = other.candidates;
+		this.originalBallots = other.originalBallots;
+		this.numberOfWinners = other.numberOfWinners;
+		this.numberOfVotes = other.numberOfVotes;
+		this.voteThreshold = other.voteThreshold;
+		this.fixedVoteThreshold = other.fixedVoteThreshold;
+		this.fixedPoint = other.fixedPoint;
+		this.tallyPool = other.tallyPool;
+		this.random = other.random;
+		if(other.shards != null) {
+			throw new IllegalStateException("A count over shards cannot be copied, since the shards hold its ballots.");
+		}
+		this.batchElimination = other.batchElimination;
+		this.simultaneousElection = other.simultaneousElection;
+		this.tieBreakPolicy = other.tieBreakPolicy;
+		this.memory = other.memory;
+		this.winningCandidates = new ArrayList<>(other.winningCandidates);
+		this.eliminatedCandidates = new ArrayList<>(other.eliminatedCandidates);
+		this.currentVoteCounts = other.currentVoteCounts.clone();
+		this.fixedVoteCounts = other.fixedVoteCounts.clone();
+		this.remainingCandidates = other.remainingCandidates.clone();
+		this.remainingCount = other.remainingCount;
+		this.inactiveCandidates = (BitSet) other.inactiveCandidates.clone();
+		this.rounds = new ArrayList<>(other.rounds);
+		this.started = other.started;
+		this.exhaustedBallots = other.exhaustedBallots;
+		this.exhaustedWeight = other.exhaustedWeight;
+		this.fixedExhaustedWeight = other.fixedExhaustedWeight;
+		this.exhaustedVotes = other.exhaustedVotes;
+		this.countedGroups = other.countedGroups;
+		this.scannedGroups = other.scannedGroups;
+		this.scannedBallots = other.scannedBallots;
+		this.transferredBallots = other.transferredBallots;
+		
+		this.votes = other.votes == null ? null : other.votes.copy();
+		
+		this.candidateBallots = new IntList[other.candidateBallots.length];
+		for(int candidate=0; candidate<candidateBallots.length; candidate++) {
+			if(other.candidateBallots[candidate] != null) {
+				candidateBallots[candidate] = other.candidateBallots[candidate].copy();
+			}
+		}
+	}
+	
+	/**
+	 * Give the working state of the count back to its memory, once the Tabulator will not be counted or written again.
+	 * State still shared with a copy is kept until the copy releases it too, so a copy of a count held off the heap,
+	 * such as a checkpoint, must be released once it is done with
+	 */
+	void release() {
+		if(votes != null) {
+			votes.release();
+			votes = null;
+		}
+		
+		for(int candidate=0; candidate<candidateBallots.length; candidate++) {
+			if(candidateBallots[candidate] != null) {
+				candidateBallots[candidate].release();
+				candidateBallots[candidate] = null;
+			}
+		}
+	}
+	
+	/**
+	 * Setter for the arithmetic counted with. Takes effect from the next call to {@link #start()}
+	 *
+	 * @param fixedPoint - boolean - true to count in fixed-point, false to count in double precision
+	 */
+	public void setFixedPoint(boolean fixedPoint) {
+		this.fixedPoint = fixedPoint;
+	}
+	
+	/**
+	 * Setter for the pool that each round's tally is shared across. The pool only runs tasks that finish within the
+	 * call that submitted them, so it can be shared by many Tabulators
+	 *
+	 * @param tallyPool - ForkJoinPool - the pool, or null to tally on the calling thread
+	 */
+	public void setTallyPool(ForkJoinPool tallyPool) {
+		this.tallyPool = tallyPool;
+	}
+	
+	/**
+	 * Setter for the source of the random choice made when every other tie breaker fails, so that a count can be
+	 * repeated exactly
+	 *
+	 * @param random - Random - the source of random numbers
+	 */
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+	
+	/**
+	 * Setter for the shards holding the ballots. The contest then only provides the candidates, and its own ballots
+	 * are not counted. Takes effect from the next call to {@link #start()}. A shard failing during the count is thrown
+	 * as an {@link UncheckedIOException}
+	 *
+	 * @param shards - {@code List<BallotShard>} - the shards, whose tallies are merged in list order, or null to count
+	 * 		the contest's own ballots
+	 */
+	public void setShards(List<BallotShard> shards) {
+		this.shards = shards == null ? null : new ArrayList<>(shards);
+	}
+	
+	/**
+	 * Setter for batch elimination. When on, a round that elects no one eliminates at once every candidate who is
+	 * mathematically defeated, as found by {@link #findDefeatedCandidates()}, and transfers their ballots together.
+	 * The winners are the same as eliminating them one at a time, except where a tie break would have been reached
+	 *
+	 * @param batchElimination - boolean - true to eliminate every defeated candidate in one round
+	 */
+	public void setBatchElimination(boolean batchElimination) {
+		this.batchElimination = batchElimination;
+	}
+	
+	/**
+	 * Setter for simultaneous election. When on, a round elects every candidate over the threshold at once, from the
+	 * most votes down, and transfers all of their surpluses together in a single pass. A surplus is then never passed
+	 * to another candidate elected in the same round, so the winners can differ from electing them one at a time
+	 *
+	 * @param simultaneousElection - boolean - true to elect every candidate over the threshold in one round
+	 */
+	public void setSimultaneousElection(boolean simultaneousElection) {
+		this.simultaneousElection = simultaneousElection;
+	}
+	
+	/**
+	 * Setter for how a tie for last place is broken
+	 *
+	 * @param tieBreakPolicy - TieBreakPolicy - the policy
+	 */
+	public void setTieBreakPolicy(TieBreakPolicy tieBreakPolicy) {
+		this.tieBreakPolicy = tieBreakPolicy;
+	}
+	
+	/**
+	 * Setter for where the state of the ballot groups, the candidates' buckets of groups and the scratch space of each
+	 * round are held. Takes effect from the next call to {@link #start()}
+	 *
+	 * @param memory - StateMemory - the memory, such as {@link StateMemory#HEAP}
+	 */
+	public void setStateMemory(StateMemory memory) {
+		this.memory = memory;
+	}
+	
+	/**
+	 * Setter for the metrics that the initial count, every round and every tie break are recorded in. A copy of the
+	 * Tabulator records no metrics unless it is given its own
+	 *
+	 * @param metrics - TabulationMetrics - the metrics, or null to not record any
+	 */
+	public void setMetrics(TabulationMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	/**
+	 * Count the contest from the beginning until enough winners have been found
+	 *
+	 * @return TabulationResult - the winners and the result of every round
+	 */
+	public TabulationResult run() {
+		start();
+		
+		//Analyze the votes, redistributing as needed, until enough winners have been found
+		while(!isComplete()) {
+			nextRound();
+		}
+		
+		return getResult();
+	}
+	
+	/**
+	 * Return every candidate to the running and every ballot to its first choice with full weight, calculate the
+	 * vote thresholds and perform the initial count of the votes
+	 */
+	public void start() {
+		winningCandidates.clear();
+		eliminatedCandidates.clear();
+		inactiveCandidates.clear();
+		rounds.clear();
+		Arrays.fill(currentVoteCounts, 0.0);
+		Arrays.fill(fixedVoteCounts, 0);
+		Arrays.fill(remainingCandidates, true);
+		remainingCount = candidates.size();
+		exhaustedBallots = 0;
+		exhaustedWeight = 0.0;
+		fixedExhaustedWeight = 0;
+		exhaustedVotes = 0;
+		countedGroups = originalBallots.size();
+		scannedGroups = 0;
+		scannedBallots = 0;
+		transferredBallots = 0;
+		long startTime = System.nanoTime();
+		long allocated = metrics == null ? 0 : metrics.allocatedBytes();
+		
+		//perform the initial count of the votes
+		if(shards == null) {
+			//the rankings are never altered, so the votes that are redistributed share the original ballots
+			votes = memory.newBallotState(originalBallots, fixedPoint);
+			countVotes();
+		} else {
+			votes = null;
+			ShardTally[] tallies = new ShardTally[shards.size()];
+			callShards(shard -> tallies[shard] = shards.get(shard).start(fixedPoint));
+			mergeTallies(tallies);
+		}
+		
+		calculateThresholds();
+		started = true;
+		
+		if(metrics != null) {
+			metrics.recordInitialCount(System.nanoTime() - startTime, scannedGroups, scannedBallots, metrics.allocatedBytes() - allocated);
+		}
+	}
+	
+	/**
+	 * Getter for the number of winners
+	 *
+	 * @return int - the number of candidates that can win
+	 */
+	public int getNumberOfWinners() {
+		return numberOfWinners;
+	}
+	
+	/**
+	 * Check whether enough winners have been found
+	 *
+	 * @return boolean - true if the count is complete
+	 */
+	public boolean isComplete() {
+		return winningCandidates.size() >= numberOfWinners;
+	}
+	
+	/**
+	 * Get the result of the count so far
+	 *
+	 * @return TabulationResult - the winners found and the result of every round counted so far
+	 */
+	public TabulationResult getResult() {
+		RoundResult finalTally = null;
+		if(started) {
+			//the vote counts after the last round are held as the start of a round that is never counted
+			finalTally = new RoundResult(rounds.size()+1, remainingCandidates, fixedPoint ? null : currentVoteCounts,
+					fixedPoint ? fixedVoteCounts : null, exhaustedBallots, exhaustedWeight, fixedExhaustedWeight,
+					new ArrayList<>(), false, new ArrayList<>(), null, new ArrayList<>());
+		}
+		
+		return new TabulationResult(candidates, winningCandidates, rounds, finalTally);
+	}
+	
+	/**
+	 * Analyzes the current vote counts, determining a winner or loser for the round, and the redistributes votes as needed
+	 *
+	 * @return RoundResult - the vote counts at the start of the round and its outcome
+	 * @throws IllegalStateException if the count has not been started or is already complete
+	 */
+	public RoundResult nextRound() {
+		if(metrics == null) {
+			return countRound();
+		}
+		
+		long startTime = System.nanoTime();
+		long allocated = metrics.allocatedBytes();
+		long roundScannedGroups = scannedGroups;
+		long roundScannedBallots = scannedBallots;
+		long roundTransferredBallots = transferredBallots;
+		
+		RoundResult round = countRound();
+		
+		metrics.recordRound(round.getNumber(), System.nanoTime() - startTime, scannedGroups - roundScannedGroups,
+				scannedBallots - roundScannedBallots, transferredBallots - roundTransferredBallots, metrics.allocatedBytes() - allocated);
+		return round;
+	}
+	
+	/**
+	 * Count the next round, as in {@link #nextRound()}
+	 */
+	private RoundResult countRound() {
+		if(!started || isComplete()) {
+			throw new IllegalStateException("The count has not been started or is already complete.");
+		}
+		
+		//Take the vote counts before any are redistributed
+		double[] roundVoteCounts = fixedPoint ? null : currentVoteCounts.clone();
+		long[] roundFixedVoteCounts = fixedPoint ? fixedVoteCounts.clone() : null;
+		boolean[] roundCandidates = remainingCandidates.clone();
+		long roundExhaustedBallots = exhaustedBallots;
+		double roundExhaustedWeight = exhaustedWeight;
+		long roundFixedExhaustedWeight = fixedExhaustedWeight;
+		ArrayList<Integer> elected = new ArrayList<>();
+		
+		//If the number of candidates left equals the number of winners, mark them all winners and end
+		if(remainingCount == numberOfWinners) {
+			for(int candidate=0; candidate<currentVoteCounts.length; candidate++) {
+				if(remainingCandidates[candidate] && !winningCandidates.contains(candidate)) {
+					winningCandidates.add(candidate);
+					elected.add(candidate);
+				}
+			}
+			
+			return addRound(roundCandidates, roundVoteCounts, roundFixedVoteCounts, roundExhaustedBallots, roundExhaustedWeight, roundFixedExhaustedWeight, elected, true, new ArrayList<>(), null, new ArrayList<>());
+		}
+		
+		//If simultaneous election is on, elect every candidate over the threshold and transfer their surpluses together
+		if(simultaneousElection) {
+			List<Integer> overThreshold = findOverThresholdCandidates();
+			
+			if(!overThreshold.isEmpty()) {
+				transferSurpluses(overThreshold);
+				winningCandidates.addAll(overThreshold);
+				elected.addAll(overThreshold);
+				return addRound(roundCandidates, roundVoteCounts, roundFixedVoteCounts, roundExhaustedBallots, roundExhaustedWeight, roundFixedExhaustedWeight, elected, false, new ArrayList<>(), null, new ArrayList<>());
+			}
+		}
+		
+		//create an arrayList that holds the factions with the least number of votes and track the current minimum vote total
+		ArrayList<Integer> minCandidatess = new ArrayList<>();
+		
+		//Loop through the candidate ids that are still in the count
+		for(int candidate=0; candidate<currentVoteCounts.length; candidate++) {
+			if(!remainingCandidates[candidate]) {
+				continue;
+			}
+			
+			//If the candidate has already won, do not count their votes
+			if(!winningCandidates.contains(candidate)) {
+				//Check if the vote count for this candidate has exceeded the winning threshold
+				if(isOverThreshold(candidate)) {
+					//subtract the threshold from the number of votes over
+					//Then divide that by the total number of votes. This results in a percentage which acts as
+					//a weight for all votes from this winner as they are redistributed.
+					double redistributeAmount = Double.sum(currentVoteCounts[candidate], voteThreshold*-1.0)/numberOfVotes;
+					//In fixed-point the percentage is itself fixed-point, rounded down
+					long fixedRedistributeAmount = (fixedVoteCounts[candidate] - fixedVoteThreshold)/numberOfVotes;
+					
+					//redistribute the votes of the winner using the calculated redistribution amount
+					redistributeVotes(candidate, redistributeAmount, fixedRedistributeAmount);
+					
+					//Add the winner to the list of winners
+					winningCandidates.add(candidate);
+					elected.add(candidate);
+					
+					return addRound(roundCandidates, roundVoteCounts, roundFixedVoteCounts, roundExhaustedBallots, roundExhaustedWeight, roundFixedExhaustedWeight, elected, false, new ArrayList<>(), null, new ArrayList<>());
+				}
+			}
+			
+			if(minCandidatess.isEmpty() || compareVoteCounts(candidate, minCandidatess.get(0)) < 0) {
+				//If this candidate has a lower vote count than the current lowest
+				//remove all current candidates from the minimum count list
+				minCandidatess.clear();
+				//and add this candidate to the list
+				minCandidatess.add(candidate);
+			} else if(compareVoteCounts(candidate, minCandidatess.get(0)) == 0) {
+				minCandidatess.add(candidate);
+			}
+		}
+		
+		//Since no one won, a loser must be eliminated
+		//If batch elimination is on and several candidates cannot catch up, eliminate them all at once
+		if(batchElimination) {
+			List<Integer> defeated = findDefeatedCandidates();
+			
+			if(defeated.size() > 1) {
+				eliminateCandidates(defeated);
+				return addRound(roundCandidates, roundVoteCounts, roundFixedVoteCounts, roundExhaustedBallots, roundExhaustedWeight, roundFixedExhaustedWeight, elected, false, new ArrayList<>(), null, defeated);
+			}
+		}
+		
+		//If only one candidate has the lowest vote count, eliminate them
+		//If 2 or more are tied for the lowest, run a tie breaker and eliminate the loser
+		if(minCandidatess.size() == 1) {
+			int eliminated = minCandidatess.get(0);
+			eliminateCandidate(eliminated);
+			return addRound(roundCandidates, roundVoteCounts, roundFixedVoteCounts, roundExhaustedBallots, roundExhaustedWeight, roundFixedExhaustedWeight, elected, false, new ArrayList<>(), null, List.of(eliminated));
+		}
+		
+		long tieBreakStart = System.nanoTime();
+		TieBreak tieBreak = breakTie(minCandidatess);
+		if(metrics != null) {
+			metrics.recordTieBreak(System.nanoTime() - tieBreakStart);
+		}
+		eliminateCandidate(tieBreak.getLoser());
+		return addRound(roundCandidates, roundVoteCounts, roundFixedVoteCounts, roundExhaustedBallots, roundExhaustedWeight, roundFixedExhaustedWeight, elected, false, minCandidatess, tieBreak, List.of(tieBreak.getLoser()));
+	}
+	
+	/**
+	 * Check whether the next round would eliminate a candidate, rather than elect one or end the count
+	 *
+	 * @return boolean - true if the next round is an elimination
+	 */
+	boolean nextRoundEliminates() {
+		if(!started || isComplete() || remainingCount == numberOfWinners) {
+			return false;
+		}
+		
+		for(int candidate=0; candidate<currentVoteCounts.length; candidate++) {
+			if(remainingCandidates[candidate] && !winningCandidates.contains(candidate) && isOverThreshold(candidate)) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Count ballots that have been added to the contest's ballots since the count started, as if they had been there
+	 * from the start. This is only possible while no one has won, since until then every ballot counts at full weight
+	 * for its first choice that has not been eliminated, whatever the other ballots are. Whether the rounds already
+	 * counted would still have gone the same way is up to the caller to check.
+	 *
+	 * @param grown - Contest - the contest with the added ballots, over the same candidates and the same ballot store
+	 * @param groups - int[] - the ballot group each added ballot or set of ballots joined, which may be new or existing
+	 * @param counts - int[] - the number of ballots added to each of those groups
+	 * @param added - int - the number of entries of groups and counts to count
+	 * @throws IllegalStateException if the count has not been started or someone has already won
+	 */
+	void addBallots(Contest grown, int[] groups, int[] counts, int added) {
+		if(!started || !winningCandidates.isEmpty() || shards != null) {
+			throw new IllegalStateException("Ballots can only be added before anyone has won, and not to shards.");
+		}
+		
+		contest = grown;
+		originalBallots = grown.getBallots();
+		
+		//find the vote of each group still counting for a candidate. Groups without one are exhausted
+		int[] groupVotes = new int[originalBallots.size()];
+		Arrays.fill(groupVotes, -1);
+		for(IntList bucket : candidateBallots) {
+			if(bucket != null) {
+				for(int i=0; i<bucket.size(); i++) {
+					groupVotes[votes.getGroup(bucket.get(i))] = bucket.get(i);
+				}
+			}
+		}
+		
+		//start a vote for each new group, at its first choice that has not been eliminated
+		votes.setStore(originalBallots);
+		for(int group=countedGroups; group<originalBallots.size(); group++) {
+			int index = votes.add(group);
+			
+			if(votes.getChoiceCount(index) > 0 && (!inactiveCandidates.get(votes.getChoice(index)) || votes.moveToNextChoice(index, inactiveCandidates))) {
+				groupVotes[group] = index;
+				candidateBallots[votes.getChoice(index)].add(index);
+			} else {
+				exhaustedVotes++;
+			}
+		}
+		countedGroups = originalBallots.size();
+		
+		for(int i=0; i<added; i++) {
+			int index = groupVotes[groups[i]];
+			
+			if(index == -1) {
+				exhaustedBallots += counts[i];
+				exhaustedWeight += counts[i];
+				fixedExhaustedWeight += FixedPoint.fromVotes(counts[i]);
+			} else {
+				int choice = votes.getChoice(index);
+				currentVoteCounts[choice] += counts[i];
+				fixedVoteCounts[choice] += FixedPoint.fromVotes(counts[i]);
+			}
+			numberOfVotes += counts[i];
+		}
+		
+		//the thresholds grow with the number of votes
+		calculateThresholds();
+	}
+	
+	/**
+	 * Calculate the vote thresholds from the number of votes and the number of winners
+	 */
+	private void calculateThresholds() {
+		voteThreshold = numberOfVotes*(1.0/(numberOfWinners+1));
+		//A count is over the exact threshold exactly when it is over the rounded down fixed-point threshold
+		fixedVoteThreshold = FixedPoint.fromVotes(numberOfVotes)/(numberOfWinners+1);
+	}
+	
+	/**
+	 * Fork a started count, before any round has been counted, into an independent count of the same contest for a
+	 * different number of winners. The fork shares the ballots and the initial count, and the state of every ballot
+	 * group is only copied once the fork first transfers votes, so many variations can be counted from one reading of
+	 * the ballots. Every option, including the tie break policy, is the same as this count's until changed on the fork
+	 *
+	 * @param numberOfWinners - int - the number of candidates that can win in the fork
+	 * @return Tabulator - the fork, ready to count its first round
+	 * @throws IllegalStateException if this count has not been started, has counted a round or is over shards
+	 * @throws IllegalArgumentException if the number of winners is below 1 or above the number of candidates left
+	 */
+	public Tabulator fork(int numberOfWinners) {
+		if(!started || !rounds.isEmpty() || shards != null) {
+			throw new IllegalStateException("Only a started count of this process's own ballots can be forked, before its first round.");
+		}
+		if(numberOfWinners < 1 || numberOfWinners > remainingCount) {
+			throw new IllegalArgumentException("The number of winners must be at least 1 and no more than the number of candidates left");
+		}
+		
+		Tabulator fork = new Tabulator(this);
+		fork.numberOfWinners = numberOfWinners;
+		fork.calculateThresholds();
+		
+		return fork;
+	}
+	
+	/**
+	 * Withdraw candidates from a started count before any round has been counted. Their ballots are transferred to
+	 * their next choices, as though the candidates had never been on them, and still count towards the threshold if
+	 * they have no next choice. The withdrawn candidates are not listed as continuing in any round
+	 *
+	 * @param withdrawn - {@code List<Integer>} - the ids of the candidates who have withdrawn, without repeats
+	 * @throws IllegalStateException if the count has not been started or has counted a round
+	 * @throws IllegalArgumentException if fewer candidates than the number of winners would be left
+	 */
+	public void withdraw(List<Integer> withdrawn) {
+		if(!started || !rounds.isEmpty()) {
+			throw new IllegalStateException("Candidates can only withdraw from a started count, before its first round.");
+		}
+		if(remainingCount - withdrawn.size() < numberOfWinners) {
+			throw new IllegalArgumentException("Fewer candidates than the number of winners would be left.");
+		}
+		if(withdrawn.isEmpty()) {
+			return;
+		}
+		
+		transferVotes(withdrawn, null, null);
+		for(int candidate : withdrawn) {
+			remainingCandidates[candidate] = false;
+			remainingCount--;
+		}
+	}
+	
+	/**
+	 * Replace the results of the rounds counted so far, such as with their vote counts updated for added ballots
+	 *
+	 * @param updated - {@code List<RoundResult>} - the results, one for every round counted so far
+	 */
+	void replaceRounds(List<RoundResult> updated) {
+		rounds = new ArrayList<>(updated);
+	}
+	
+	/**
+	 * Check whether a vote count exceeds the winning threshold, in the arithmetic being counted with
+	 *
+	 * @param fixedCount - long - the count in fixed-point, used when counting in fixed-point
+	 * @param count - double - the count in double precision, used when counting in double precision
+	 * @return boolean - true if the count is more than the threshold
+	 */
+	boolean isOverThreshold(long fixedCount, double count) {
+		if(fixedPoint) {
+			return fixedCount > fixedVoteThreshold;
+		}
+		
+		return Double.compare(count, voteThreshold) > 0;
+	}
+	
+	/**
+	 * Getter for the arithmetic counted with
+	 *
+	 * @return boolean - true if counting in fixed-point, false if counting in double precision
+	 */
+	boolean isFixedPoint() {
+		return fixedPoint;
+	}
+	
+	/**
+	 * Getter for batch elimination
+	 *
+	 * @return boolean - true if every defeated candidate is eliminated in one round
+	 */
+	boolean isBatchElimination() {
+		return batchElimination;
+	}
+	
+	/**
+	 * Getter for simultaneous election
+	 *
+	 * @return boolean - true if every candidate over the threshold is elected in one round
+	 */
+	boolean isSimultaneousElection() {
+		return simultaneousElection;
+	}
+	
+	/**
+	 * Record the result of the round just counted
+	 */
+	private RoundResult addRound(boolean[] roundCandidates, double[] roundVoteCounts, long[] roundFixedVoteCounts,
+			long roundExhaustedBallots, double roundExhaustedWeight, long roundFixedExhaustedWeight, List<Integer> elected, boolean lastRound, List<Integer> tiedCandidates, TieBreak tieBreak, List<Integer> eliminated) {
+		RoundResult round = new RoundResult(rounds.size()+1, roundCandidates, roundVoteCounts, roundFixedVoteCounts,
+				roundExhaustedBallots, roundExhaustedWeight, roundFixedExhaustedWeight, elected, lastRound, tiedCandidates, tieBreak, eliminated);
+		rounds.add(round);
+		return round;
+	}
+	
+	/**
+	 * Break a tie for last place with the tie break policy
+	 *
+	 * @param tiedCandidates - {@code List<Integer>} - the ids of the tied candidates, in id order
+	 * @return TieBreak - how the tie was broken, and the id of the candidate that lost it
+	 */
+	TieBreak breakTie(List<Integer> tiedCandidates) {
+		if(tieBreakPolicy == TieBreakPolicy.PREVIOUS_ROUNDS) {
+			return previousRoundsTieBreak(tiedCandidates);
+		} else if(tieBreakPolicy == TieBreakPolicy.RANDOM) {
+			return new TieBreak(TieBreakPolicy.RANDOM, tiedCandidates, null, null, null, TieBreak.Step.RANDOM, 0,
+					tiedCandidates.get(random.nextInt(tiedCandidates.size())));
+		}
+		
+		return condorcetTieBreakDetails(tiedCandidates);
+	}
+	
+	/**
+	 * Break a tie by looking back through the rounds counted, from the latest, for one in which the tied candidates'
+	 * votes differed. The candidates with the fewest votes in that round stay tied and the others are safe, until only
+	 * one is left or there are no rounds left to look back through, when the tie is broken randomly
+	 *
+	 * @param tiedCandidates - {@code List<Integer>} - the ids of the tied candidates
+	 * @return TieBreak - how the tie was broken, and the id of the candidate that lost it
+	 */
+	private TieBreak previousRoundsTieBreak(List<Integer> tiedCandidates) {
+		ArrayList<Integer> lowest = new ArrayList<>(tiedCandidates);
+		//the number of the round that left only one candidate with the fewest votes, if any did
+		int decidingRound = 0;
+		
+		for(int i=rounds.size()-1; i>=0 && lowest.size() > 1; i--) {
+			RoundResult round = rounds.get(i);
+			ArrayList<Integer> fewest = new ArrayList<>();
+			
+			for(int candidate : lowest) {
+				int compared = fewest.isEmpty() ? -1 : round.isFixedPoint()
+						? Long.compare(round.getFixedVoteCount(candidate), round.getFixedVoteCount(fewest.get(0)))
+						: Double.compare(round.getVoteCount(candidate), round.getVoteCount(fewest.get(0)));
+				if(compared < 0) {
+					fewest.clear();
+					fewest.add(candidate);
+				} else if(compared == 0) {
+					fewest.add(candidate);
+				}
+			}
+			lowest = fewest;
+			if(lowest.size() == 1) {
+				decidingRound = round.getNumber();
+			}
+		}
+		
+		if(lowest.size() == 1) {
+			return new TieBreak(TieBreakPolicy.PREVIOUS_ROUNDS, tiedCandidates, null, null, null,
+					TieBreak.Step.PREVIOUS_ROUND, decidingRound, lowest.get(0));
+		}
+		
+		return new TieBreak(TieBreakPolicy.PREVIOUS_ROUNDS, tiedCandidates, null, null, null, TieBreak.Step.RANDOM, 0,
+				lowest.get(random.nextInt(lowest.size())));
+	}
+	
+	/**
+	 * Perform a condorcet tie break for all factions in the factions list
+	 * @param tiedCandidates - {@code List<Integer>} - The ids of the candidates to check in the tie breaker
+	 *
+	 * @return - int - the id of the candidate that lost the tie breaker
+	 */
+	int condorcetTieBreak(List<Integer> tiedCandidates) {
+		return condorcetTieBreakDetails(tiedCandidates).getLoser();
+	}
+	
+	/**
+	 * Perform a condorcet tie break as {@link #condorcetTieBreak(List)} does, keeping the head to head wins, margins
+	 * and ranking points of every tied candidate and the step that broke the tie
+	 *
+	 * @param tiedCandidates - {@code List<Integer>} - The ids of the candidates to check in the tie breaker
+	 * @return TieBreak - how the tie was broken, and the id of the candidate that lost it
+	 */
+	TieBreak condorcetTieBreakDetails(List<Integer> tiedCandidates) {
+		int[] ids = new int[tiedCandidates.size()];
+		for(int i=0; i<ids.length; i++) {
+			ids[i] = tiedCandidates.get(i);
+		}
+		
+		//get the number of times one candidate beats another candidate, and their points, from the counts made when
+		//the votes were read, or count them in one pass over the ballots if there are too many candidates to keep them
+		PairwiseMatrix masterMatrix = shards == null ? contest.getPairwiseMatrix(ids) : countShardPairwise(ids);
+		
+		// Create a win matrix which marks if one candidate beats another candidate more in the master matrix
+		long[][] winMatrix = new long[ids.length][ids.length];
+		// Create a matrix that stores the magnitude of victories in the win matrix
+		long[][] magnitudeMatrix = new long[ids.length][ids.length];
+		
+		//loop through the master matrix
+		for(int x=0; x<masterMatrix.size(); x++) {
+			for(int y=0; y<masterMatrix.size(); y++) {
+				// Only 1 half of the matrix is cared about, so skip it if x < y
+				if(y>x) {
+					if(masterMatrix.get(x, y) > masterMatrix.get(y, x)) {
+						//If x beat y more than y beat x, mark that x beats y overall in the win matrix
+						winMatrix[x][y] = 1;
+						//calculate difference of counts in the master and store it as the magnitude
+						//The winner will have a positive value while the lose will have a negative value
+						magnitudeMatrix[x][y] = masterMatrix.get(x, y) - masterMatrix.get(y, x);
+						magnitudeMatrix[y][x] = masterMatrix.get(y, x) - masterMatrix.get(x, y);
+					} else if (masterMatrix.get(x, y) < masterMatrix.get(y, x)) {
+						//The same thing as above but if Y won
+						winMatrix[y][x] = 1;
+						magnitudeMatrix[y][x] = masterMatrix.get(y, x) - masterMatrix.get(x, y);
+						magnitudeMatrix[x][y] = masterMatrix.get(x, y) - masterMatrix.get(y, x);
+					}
+				}
+			}
+		}
+		
+		//determine each candidate's win number, and the magnitude of their wins, by summing their rows in the matrices,
+		//and take the points for each candidate that were counted alongside the master matrix
+		long[] wins = new long[ids.length];
+		long[] magnitudes = new long[ids.length];
+		long[] points = new long[ids.length];
+		for(int i=0; i<ids.length; i++) {
+			wins[i] = matrixRowSum(winMatrix, i);
+			magnitudes[i] = matrixRowSum(magnitudeMatrix, i);
+			points[i] = masterMatrix.getPoints(i);
+		}
+		
+		//Create a variable to store the currently lowest win count
+		long minWins = Long.MAX_VALUE;
+		//and a list to store the people with the lowest win count
+		ArrayList<Integer> winIndecies = new ArrayList<>();
+		
+		//Loop through each candidate
+		for(int i=0; i<ids.length; i++) {
+			long currWins = wins[i];
+			
+			if(currWins < minWins) {
+				//If this candidate has less wins than the current lowest, reset the list and mark this candidate the loser
+				minWins = currWins;
+				winIndecies.clear();
+				winIndecies.add(i);
+			} else if (currWins == minWins) {
+				//If this candidate has the same number of wins as the lowest, add their index to the list
+				winIndecies.add(i);
+			}
+		}
+		
+		//If there is someone worse than everyone else, then they lose
+		if(winIndecies.size() == 1) {
+			return new TieBreak(TieBreakPolicy.CONDORCET, tiedCandidates, wins, magnitudes, points,
+					TieBreak.Step.PAIRWISE_WINS, 0, ids[winIndecies.get(0)]);
+		} else {
+			//If multiple people share the worst win number, magnitude is taken into account
+			long minMagnitude = Long.MAX_VALUE;
+			ArrayList<Integer> worstIndecies = new ArrayList<>();
+			
+			//Sum the row of the magnitude matrix for each of the worst candidates
+			for(Integer rowNum : winIndecies) {
+				long currMag = magnitudes[rowNum];
+				
+				//Keep track of those candidate with the worst magnitude of wins against all opponents in the tie breaker
+				if(currMag < minMagnitude) {
+					minMagnitude = currMag;
+					worstIndecies.clear();
+					worstIndecies.add(rowNum);
+				} else if(currMag == minMagnitude) {
+					worstIndecies.add(rowNum);
+				}
+			}
+			
+			//If one is the worst by magnitue, eliminate them
+			if(worstIndecies.size() == 1) {
+				return new TieBreak(TieBreakPolicy.CONDORCET, tiedCandidates, wins, magnitudes, points,
+						TieBreak.Step.PAIRWISE_MARGIN, 0, ids[worstIndecies.get(0)]);
+			} else {
+				//If win number and magnitude did not break the tie, then we look at the original votes for each candidate
+				ArrayList<Integer> lowPointIndecies = new ArrayList<>();
+				//Points are given for the ranking of a candidate on a ballot, with a higher ranked choice getting more points
+				long lowPoint = Long.MAX_VALUE;
+				
+				//Loop through the candidates that are stilled tied
+				for(Integer i : worstIndecies) {
+					long totalPoints = points[i];
+					
+					//Keep track of the candidates with the worst votes
+					if(totalPoints < lowPoint) {
+						lowPoint = totalPoints;
+						lowPointIndecies.clear();
+						lowPointIndecies.add(i);
+					} else if (totalPoints == lowPoint) {
+						lowPointIndecies.add(i);
+					}
+				}
+				
+				//If there is one that is worst, eliminate them
+				if(lowPointIndecies.size() == 1) {
+					return new TieBreak(TieBreakPolicy.CONDORCET, tiedCandidates, wins, magnitudes, points,
+							TieBreak.Step.RANKING_POINTS, 0, ids[lowPointIndecies.get(0)]);
+				} else {
+					//If there is still a tie, it is broken randomly
+					int returnIndex = random.nextInt(lowPointIndecies.size());
+					
+					return new TieBreak(TieBreakPolicy.CONDORCET, tiedCandidates, wins, magnitudes, points,
+							TieBreak.Step.RANDOM, 0, ids[lowPointIndecies.get(returnIndex)]);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Calculate the sum of a row (1st index) in a matrix
+	 *
+	 * @param matrix The matrix to operate on
+	 * @param row the index of the row to sum
+	 * @return long the sum of the row
+	 */
+	private static long matrixRowSum(long[][] matrix, int row) {
+		long sum = 0;
+		
+		for(int y=0; y<matrix[0].length; y++) {
+			sum += matrix[row][y];
+		}
+		
+		return sum;
+	}
+	
+	/**
+	 * Perform the initial count of the votes, placing every ballot group in the bucket of its first choice
+	 */
+	private void countVotes() {
+		for(int candidate=0; candidate<candidateBallots.length; candidate++) {
+			candidateBallots[candidate] = memory.newIntList();
+		}
+		
+		tallyTransfers(null, index -> {
+			if(votes.getChoiceCount(index) == 0) {
+				return -1;
+			}
+			
+			return votes.getChoice(index);
+		});
+	}
+	
+	/**
+	 * Find the candidates who are mathematically defeated: the largest group of the lowest candidates who have not
+	 * won whose combined votes are still fewer than the votes of the next lowest candidate. No transfer between them
+	 * can lift any of them past that candidate, so each would be eliminated in turn. At least as many candidates as
+	 * there are seats are always left in the count.
+	 *
+	 * @return {@code List<Integer>} - the ids of the defeated candidates from the fewest votes up, or an empty list if no
+	 * 		candidate can be eliminated this way
+	 */
+	List<Integer> findDefeatedCandidates() {
+		ArrayList<Integer> trailing = new ArrayList<>();
+		for(int candidate=0; candidate<currentVoteCounts.length; candidate++) {
+			if(remainingCandidates[candidate] && !winningCandidates.contains(candidate)) {
+				trailing.add(candidate);
+			}
+		}
+		trailing.sort(this::compareVoteCounts);
+		
+		//add up the trailing candidates from the lowest, remembering the most that fall short of the next candidate
+		int defeated = 0;
+		double total = 0.0;
+		long fixedTotal = 0;
+		for(int i=0; i+1<trailing.size() && remainingCount-(i+1) >= numberOfWinners; i++) {
+			int candidate = trailing.get(i);
+			int next = trailing.get(i+1);
+			total = Double.sum(total, currentVoteCounts[candidate]);
+			fixedTotal += fixedVoteCounts[candidate];
+			
+			if(fixedPoint ? fixedTotal < fixedVoteCounts[next] : total < currentVoteCounts[next]) {
+				defeated = i+1;
+			}
+		}
+		
+		return new ArrayList<>(trailing.subList(0, defeated));
+	}
+	
+	/**
+	 * Find the candidates, who have not yet won, whose votes exceed the threshold. As the candidates who have won keep
+	 * their votes in the count, more can pass the threshold than there are seats left, so only the ones with the most
+	 * votes that fill the remaining seats are returned
+	 *
+	 * @return {@code List<Integer>} - the ids of the candidates over the threshold, from the most votes down with equal
+	 * 		counts in id order, or an empty list if there are none
+	 */
+	List<Integer> findOverThresholdCandidates() {
+		ArrayList<Integer> overThreshold = new ArrayList<>();
+		for(int candidate=0; candidate<currentVoteCounts.length; candidate++) {
+			if(remainingCandidates[candidate] && !winningCandidates.contains(candidate) && isOverThreshold(candidate)) {
+				overThreshold.add(candidate);
+			}
+		}
+		overThreshold.sort((a, b) -> compareVoteCounts(b, a));
+		
+		int seats = numberOfWinners - winningCandidates.size();
+		return new ArrayList<>(overThreshold.subList(0, Math.min(seats, overThreshold.size())));
+	}
+	
+	/**
+	 * Transfer the surpluses of several winners at once. Each vote counting for one of them is weighted by that
+	 * winner's surplus, as in {@link #redistributeVotes(int, double, long)}, and they are all moved in a single pass
+	 *
+	 * @param winners - {@code List<Integer>} - the ids of the winners, in the order their transfers are tallied
+	 */
+	private void transferSurpluses(List<Integer> winners) {
+		double[] redistributeAmounts = new double[currentVoteCounts.length];
+		long[] fixedRedistributeAmounts = new long[currentVoteCounts.length];
+		
+		for(int winner : winners) {
+			//the surplus of each winner is weighted as if they had been elected alone
+			redistributeAmounts[winner] = Double.sum(currentVoteCounts[winner], voteThreshold*-1.0)/numberOfVotes;
+			fixedRedistributeAmounts[winner] = (fixedVoteCounts[winner] - fixedVoteThreshold)/numberOfVotes;
+		}
+		
+		transferVotes(winners, redistributeAmounts, fixedRedistributeAmounts);
+	}
+	
+	/**
+	 * Eliminates several candidates at once, transferring every vote counting for any of them in a single pass to its
+	 * next choice that is still in the running, with a weight of 1.0
+	 *
+	 * @param defeated - {@code List<Integer>} - the ids of the candidates to eliminate
+	 */
+	private void eliminateCandidates(List<Integer> defeated) {
+		transferVotes(defeated, null, null);
+		
+		for(int candidate : defeated) {
+			remainingCandidates[candidate] = false;
+			remainingCount--;
+			eliminatedCandidates.add(candidate);
+		}
+	}
+	
+	/**
+	 * Eliminates the specified candidate and redistributes every vote that currently is counting for that candidate with a weight of 1.0
+	 *
+	 * @param candidate The id of the candidate to eliminate
+	 */
+	private void eliminateCandidate(int candidate) {
+		eliminateCandidates(List.of(candidate));
+	}
+	
+	/**
+	 * Redistribute votes from a candidate to that vote's next candidate with a specified weight. Only the ballots in
+	 * the candidate's bucket are visited, and the candidate is marked inactive so later transfers skip past them.
+	 *
+	 * @param candidate The id of the candidate to redistribute votes from
+	 * @param redistributeAmount The weight of the redistributed votes, when counting in double precision
+	 * @param fixedRedistributeAmount The fixed-point weight of the redistributed votes, when counting in fixed-point
+	 */
+	void redistributeVotes(int candidate, double redistributeAmount, long fixedRedistributeAmount) {
+		double[] redistributeAmounts = new double[currentVoteCounts.length];
+		long[] fixedRedistributeAmounts = new long[currentVoteCounts.length];
+		redistributeAmounts[candidate] = redistributeAmount;
+		fixedRedistributeAmounts[candidate] = fixedRedistributeAmount;
+		
+		transferVotes(List.of(candidate), redistributeAmounts, fixedRedistributeAmounts);
+	}
+	
+	/**
+	 * Transfer every vote counting for some candidates to its next choice that is still in the running. Every one of
+	 * the candidates is marked inactive first, so no vote is moved to another of them, and only the ballots in their
+	 * buckets are visited, in the order the candidates are given. Each vote's weight is first multiplied by the amount
+	 * of the candidate it leaves, so the weight is lost with the vote if it is exhausted. When counting over shards,
+	 * each shard transfers its own ballots and the vote counts are merged from their tallies.
+	 *
+	 * @param from - {@code List<Integer>} - the ids of the candidates to transfer from
+	 * @param redistributeAmounts - double[] - the weight each candidate's votes are transferred with, by candidate id,
+	 * 		when counting in double precision, or null to transfer them with a weight of 1.0
+	 * @param fixedRedistributeAmounts - long[] - the fixed-point weight each candidate's votes are transferred with, by
+	 * 		candidate id, when counting in fixed-point, or null to transfer them with a weight of 1.0
+	 */
+	void transferVotes(List<Integer> from, double[] redistributeAmounts, long[] fixedRedistributeAmounts) {
+		for(int candidate : from) {
+			inactiveCandidates.set(candidate);
+		}
+		
+		if(shards != null) {
+			int[] ids = new int[from.size()];
+			for(int i=0; i<ids.length; i++) {
+				ids[i] = from.get(i);
+			}
+			
+			ShardTally[] tallies = new ShardTally[shards.size()];
+			callShards(shard -> tallies[shard] = shards.get(shard).transfer(ids, redistributeAmounts, fixedRedistributeAmounts));
+			mergeTallies(tallies);
+			return;
+		}
+		
+		//a single bucket is moved as it is, and several are joined in the order of the candidates
+		IntList transfers = from.size() == 1 ? candidateBallots[from.get(0)] : memory.newIntList();
+		for(int candidate : from) {
+			IntList bucket = candidateBallots[candidate];
+			for(int i=0; from.size() > 1 && i<bucket.size(); i++) {
+				transfers.add(bucket.get(i));
+			}
+			//release the bucket, since no ballot can count for this candidate again
+			candidateBallots[candidate] = null;
+			if(from.size() > 1) {
+				bucket.release();
+			}
+		}
+		
+		tallyTransfers(transfers, index -> {
+			//the vote still counts for the candidate it is transferred from, so that candidate's weight applies
+			if(fixedPoint && fixedRedistributeAmounts != null) {
+				votes.alterFixedWeight(index, fixedRedistributeAmounts[votes.getChoice(index)]);
+			} else if(!fixedPoint && redistributeAmounts != null) {
+				votes.alterWeight(index, redistributeAmounts[votes.getChoice(index)]);
+			}
+			
+			//If the vote has another valid choice, set the vote to that candidate so it is counted for them
+			if(votes.moveToNextChoice(index, inactiveCandidates)) {
+				return votes.getChoice(index);
+			}
+			
+			return -1;
+		});
+		transfers.release();
+	}
+	
+	/**
+	 * Write the working state of the count to a stream, such as for a {@link TabulationCheckpoint}: the options, the
+	 * vote counts, the winners and eliminated candidates, the rounds counted, and the current choice and weight of
+	 * every ballot group along with the order of every candidate's bucket, so the count can carry on exactly where it
+	 * left off. The ballots themselves are not written. The random choice of the last tie breaker is written by the
+	 * caller, since it may be shared with other Tabulators
+	 *
+	 * @param output - DataOutputStream - the stream
+	 * @throws IOException if the state could not be written
+	 * @throws IllegalStateException if the count has not been started or its ballots are held by shards
+	 */
+	void writeState(DataOutputStream output) throws IOException {
+		if(!started || shards != null) {
+			throw new IllegalStateException("Only a started count of this process's own ballots can be saved.");
+		}
+		
+		output.writeInt(numberOfWinners);
+		output.writeInt(numberOfVotes);
+		output.writeDouble(voteThreshold);
+		output.writeLong(fixedVoteThreshold);
+		output.writeBoolean(fixedPoint);
+		output.writeBoolean(batchElimination);
+		output.writeBoolean(simultaneousElection);
+		output.writeByte(tieBreakPolicy.ordinal());
+		RoundResult.writeIds(output, winningCandidates);
+		RoundResult.writeIds(output, eliminatedCandidates);
+		
+		for(int candidate=0; candidate<candidates.size(); candidate++) {
+			output.writeDouble(currentVoteCounts[candidate]);
+			output.writeLong(fixedVoteCounts[candidate]);
+			output.writeBoolean(remainingCandidates[candidate]);
+			output.writeBoolean(inactiveCandidates.get(candidate));
+		}
+		
+		output.writeLong(exhaustedBallots);
+		output.writeDouble(exhaustedWeight);
+		output.writeLong(fixedExhaustedWeight);
+		output.writeInt(exhaustedVotes);
+		output.writeInt(countedGroups);
+		output.writeLong(scannedGroups);
+		output.writeLong(scannedBallots);
+		output.writeLong(transferredBallots);
+		
+		output.writeInt(rounds.size());
+		for(RoundResult round : rounds) {
+			round.write(output);
+		}
+		
+		votes.write(output);
+		
+		//the buckets are written in order, since the order votes are tallied in decides how double precision sums round
+		for(IntList bucket : candidateBallots) {
+			output.writeInt(bucket == null ? -1 : bucket.size());
+			for(int i=0; bucket != null && i<bucket.size(); i++) {
+				output.writeInt(bucket.get(i));
+			}
+		}
+	}
+	
+	/**
+	 * Read the working state of a count written by {@link #writeState(DataOutputStream)}, ready to count its next
+	 * round
+	 *
+	 * @param contest - Contest - the contest the state was written for, with the same candidates and ballots
+	 * @param input - DataInputStream - the stream
+	 * @return Tabulator - the count, at the point it was written
+	 * @throws IOException if the state could not be read or does not fit the contest
+	 */
+	static Tabulator readState(Contest contest, DataInputStream input) throws IOException {
+		int candidateCount = contest.getCandidates().size();
+		int numberOfWinners = input.readInt();
+		if(numberOfWinners < 1 || numberOfWinners > candidateCount) {
+			throw new IOException("The number of winners does not fit the candidates.");
+		}
+		
+		Tabulator tabulator = new Tabulator(contest, numberOfWinners);
+		tabulator.numberOfVotes = input.readInt();
+		tabulator.voteThreshold = input.readDouble();
+		tabulator.fixedVoteThreshold = input.readLong();
+		tabulator.fixedPoint = input.readBoolean();
+		tabulator.batchElimination = input.readBoolean();
+		tabulator.simultaneousElection = input.readBoolean();
+		int policy = input.readByte();
+		if(policy < 0 || policy >= TieBreakPolicy.values().length) {
+			throw new IOException("The tie break policy is not known.");
+		}
+		tabulator.tieBreakPolicy = TieBreakPolicy.values()[policy];
+		tabulator.winningCandidates.addAll(RoundResult.readIds(input, candidateCount));
+		tabulator.eliminatedCandidates.addAll(RoundResult.readIds(input, candidateCount));
+		
+		tabulator.remainingCount = 0;
+		for(int candidate=0; candidate<candidateCount; candidate++) {
+			tabulator.currentVoteCounts[candidate] = input.readDouble();
+			tabulator.fixedVoteCounts[candidate] = input.readLong();
+			tabulator.remainingCandidates[candidate] = input.readBoolean();
+			tabulator.inactiveCandidates.set(candidate, input.readBoolean());
+			if(tabulator.remainingCandidates[candidate]) {
+				tabulator.remainingCount++;
+			}
+		}
+		
+		tabulator.exhaustedBallots = input.readLong();
+		tabulator.exhaustedWeight = input.readDouble();
+		tabulator.fixedExhaustedWeight = input.readLong();
+		tabulator.exhaustedVotes = input.readInt();
+		tabulator.countedGroups = input.readInt();
+		tabulator.scannedGroups = input.readLong();
+		tabulator.scannedBallots = input.readLong();
+		tabulator.transferredBallots = input.readLong();
+		
+		int roundCount = input.readInt();
+		if(roundCount < 0) {
+			throw new IOException("The number of rounds is negative.");
+		}
+		for(int round=0; round<roundCount; round++) {
+			tabulator.rounds.add(RoundResult.read(input, candidateCount));
+		}
+		
+		tabulator.votes = BallotState.read(input, tabulator.originalBallots);
+		
+		for(int candidate=0; candidate<candidateCount; candidate++) {
+			int size = input.readInt();
+			if(size == -1) {
+				continue;
+			}
+			if(size < 0 || size > tabulator.votes.size()) {
+				throw new IOException("A candidate's ballots do not fit the ballot state.");
+			}
+			
+			IntList bucket = new IntList();
+			for(int i=0; i<size; i++) {
+				int index = input.readInt();
+				if(index < 0 || index >= tabulator.votes.size()) {
+					throw new IOException("A candidate's ballots do not fit the ballot state.");
+				}
+				bucket.add(index);
+			}
+			tabulator.candidateBallots[candidate] = bucket;
+		}
+		
+		tabulator.started = true;
+		return tabulator;
+	}
+	
+	/**
+	 * Getter for the contest
+	 *
+	 * @return Contest - the contest being counted
+	 */
+	Contest getContest() {
+		return contest;
+	}
+	
+	/**
+	 * Getter for the source of the random choice made when every other tie breaker fails
+	 *
+	 * @return Random - the source of random numbers
+	 */
+	Random getRandom() {
+		return random;
+	}
+	
+	/**
+	 * Take the vote counts and exhausted ballots of this count, as a shard reports them to the count they are merged
+	 * into
+	 *
+	 * @return ShardTally - the number of ballots, the vote count of every candidate and the exhausted ballots
+	 */
+	ShardTally getTally() {
+		return new ShardTally(numberOfVotes, fixedPoint ? null : currentVoteCounts.clone(),
+				fixedPoint ? fixedVoteCounts.clone() : null, exhaustedBallots, exhaustedWeight, fixedExhaustedWeight);
+	}
+	
+	/**
+	 * Replace the vote counts, exhausted ballots and number of votes with the totals of the shards' tallies, added in
+	 * shard order
+	 *
+	 * @param tallies - ShardTally[] - the tally of every shard
+	 */
+	private void mergeTallies(ShardTally[] tallies) {
+		Arrays.fill(currentVoteCounts, 0.0);
+		Arrays.fill(fixedVoteCounts, 0);
+		numberOfVotes = 0;
+		exhaustedBallots = 0;
+		exhaustedWeight = 0.0;
+		fixedExhaustedWeight = 0;
+		
+		for(ShardTally tally : tallies) {
+			for(int candidate=0; candidate<currentVoteCounts.length; candidate++) {
+				if(fixedPoint) {
+					fixedVoteCounts[candidate] += tally.getFixedVoteCount(candidate);
+				} else {
+					currentVoteCounts[candidate] = Double.sum(currentVoteCounts[candidate], tally.getVoteCount(candidate));
+				}
+			}
+			numberOfVotes = Math.addExact(numberOfVotes, tally.getBallotCount());
+			exhaustedBallots += tally.getExhaustedBallots();
+			exhaustedWeight += tally.getExhaustedWeight();
+			fixedExhaustedWeight += tally.getFixedExhaustedWeight();
+		}
+	}
+	
+	/**
+	 * Count the head to head results and points of a set of candidates over the ballots of every shard
+	 *
+	 * @param ids - int[] - the ids of the candidates. Matrix index i refers to ids[i]
+	 * @return PairwiseMatrix - the counts of every shard added together
+	 */
+	private PairwiseMatrix countShardPairwise(int[] ids) {
+		PairwiseMatrix[] matrices = new PairwiseMatrix[shards.size()];
+		callShards(shard -> matrices[shard] = shards.get(shard).countPairwise(ids));
+		
+		PairwiseMatrix total = matrices[0];
+		for(int shard=1; shard<matrices.length; shard++) {
+			total = total.add(matrices[shard]);
+		}
+		
+		return total;
+	}
+	
+	/**
+	 * A request made of one shard, which may fail with an IOException
+	 */
+	private interface ShardCall {
+		void call(int shard) throws IOException;
+	}
+	
+	/**
+	 * Make a request of every shard, on {@code tallyPool} if there is one so that shards in other processes work at the
+	 * same time, and otherwise in order on this thread
+	 *
+	 * @param call - ShardCall - the request, given the index of the shard
+	 * @throws UncheckedIOException if any shard fails
+	 */
+	private void callShards(ShardCall call) {
+		runBlocks(shards.size(), shard -> {
+			try {
+				call.call(shard);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Shard " + (shard+1) + " failed: " + e.getMessage(), e);
+			}
+		});
+	}
+	
+	/**
+	 * Move ballot groups to new candidates and count them there. The groups are split into blocks of
+	 * {@code TALLY_BLOCK_SIZE}, which run on {@code tallyPool} when there is one. Each block moves its groups and
+	 * sums their weight into its own primitive tally, then the block tallies are added to {@code currentVoteCounts} or
+	 * {@code fixedVoteCounts} in block order and every moved group is appended to its new candidate's bucket in its
+	 * original order. Groups that no longer count for anyone are added to the exhausted totals, and once at least half
+	 * of the votes are exhausted they are compacted away.
+	 *
+	 * @param indexes - IntList - the indexes in votes of the groups to move, or null to move every group
+	 * @param move - IntUnaryOperator - moves the vote at an index, returning the id of its new candidate or -1 if it
+	 * 		no longer counts for anyone, leaving the weight that was lost on the vote. Must only alter the vote it is
+	 * 		given
+	 */
+	private void tallyTransfers(IntList indexes, IntUnaryOperator move) {
+		int total = indexes == null ? votes.size() : indexes.size();
+		int blocks = (total + TALLY_BLOCK_SIZE - 1) / TALLY_BLOCK_SIZE;
+		//the blocks alter the votes from several threads, so any arrays shared with a copy are copied first
+		votes.own();
+		int candidateCount = currentVoteCounts.length;
+		boolean fixedPoint = this.fixedPoint;
+		
+		//the new candidate of each group moved, and the weight and number of groups each block sent to each candidate
+		IntList targets = memory.newIntList();
+		targets.grow(total);
+		double[][] blockTallies = new double[blocks][];
+		long[][] fixedBlockTallies = new long[blocks][];
+		int[][] blockPositions = new int[blocks][];
+		//the number of ballots each block scanned, and the number of groups, ballots and weight each block exhausted
+		long[] blockScannedBallots = new long[blocks];
+		int[] blockExhaustedVotes = new int[blocks];
+		long[] blockExhaustedBallots = new long[blocks];
+		double[] blockExhaustedWeight = new double[blocks];
+		long[] fixedBlockExhaustedWeight = new long[blocks];
+		
+		runBlocks(blocks, block -> {
+			double[] tally = fixedPoint ? null : new double[candidateCount];
+			long[] fixedTally = fixedPoint ? new long[candidateCount] : null;
+			int[] moved = new int[candidateCount];
+			
+			for(int i=block*TALLY_BLOCK_SIZE; i<Math.min(total, (block+1)*TALLY_BLOCK_SIZE); i++) {
+				int index = indexes == null ? i : indexes.get(i);
+				int target = move.applyAsInt(index);
+				targets.set(i, target);
+				blockScannedBallots[block] += votes.getCount(index);
+				
+				if(target != -1) {
+					if(fixedPoint) {
+						fixedTally[target] += votes.getFixedWeight(index)*votes.getCount(index);
+					} else {
+						tally[target] += votes.getWeight(index)*votes.getCount(index);
+					}
+					moved[target]++;
+				} else {
+					blockExhaustedVotes[block]++;
+					blockExhaustedBallots[block] += votes.getCount(index);
+					if(fixedPoint) {
+						fixedBlockExhaustedWeight[block] += votes.getFixedWeight(index)*votes.getCount(index);
+					} else {
+						blockExhaustedWeight[block] += votes.getWeight(index)*votes.getCount(index);
+					}
+				}
+			}
+			
+			blockTallies[block] = tally;
+			fixedBlockTallies[block] = fixedTally;
+			blockPositions[block] = moved;
+		});
+		
+		//add the block tallies in order, and turn each block's group count into the position its groups start at
+		for(int candidate=0; candidate<candidateCount; candidate++) {
+			IntList bucket = candidateBallots[candidate];
+			if(bucket == null) {
+				continue;
+			}
+			
+			int position = bucket.size();
+			for(int block=0; block<blocks; block++) {
+				if(fixedPoint) {
+					fixedVoteCounts[candidate] += fixedBlockTallies[block][candidate];
+				} else {
+					currentVoteCounts[candidate] = Double.sum(currentVoteCounts[candidate], blockTallies[block][candidate]);
+				}
+				
+				int moved = blockPositions[block][candidate];
+				blockPositions[block][candidate] = position;
+				position += moved;
+			}
+			bucket.grow(position);
+		}
+		
+		//place each moved group in its new bucket
+		runBlocks(blocks, block -> {
+			int[] positions = blockPositions[block];
+			
+			for(int i=block*TALLY_BLOCK_SIZE; i<Math.min(total, (block+1)*TALLY_BLOCK_SIZE); i++) {
+				int target = targets.get(i);
+				
+				if(target != -1) {
+					candidateBallots[target].set(positions[target]++, indexes == null ? i : indexes.get(i));
+				}
+			}
+		});
+		targets.release();
+		
+		scannedGroups += total;
+		for(int block=0; block<blocks; block++) {
+			scannedBallots += blockScannedBallots[block];
+			transferredBallots += blockScannedBallots[block] - blockExhaustedBallots[block];
+			exhaustedVotes += blockExhaustedVotes[block];
+			exhaustedBallots += blockExhaustedBallots[block];
+			exhaustedWeight += blockExhaustedWeight[block];
+			fixedExhaustedWeight += fixedBlockExhaustedWeight[block];
+		}
+		
+		if(votes.size() >= MIN_COMPACTION_SIZE && exhaustedVotes*2 >= votes.size()) {
+			compactVotes();
+		}
+	}
+	
+	/**
+	 * Remove the exhausted votes, which are in no candidate's bucket, from votes. The votes that remain keep their
+	 * order, and the buckets are renumbered to match, so the tallies of later rounds add up in the same order
+	 */
+	private void compactVotes() {
+		//mark every vote still counting for a candidate
+		IntList newIndexes = memory.newIntList();
+		newIndexes.grow(votes.size());
+		for(int i=0; i<newIndexes.size(); i++) {
+			newIndexes.set(i, -1);
+		}
+		for(IntList bucket : candidateBallots) {
+			if(bucket != null) {
+				for(int i=0; i<bucket.size(); i++) {
+					newIndexes.set(bucket.get(i), 0);
+				}
+			}
+		}
+		
+		int remaining = 0;
+		for(int i=0; i<newIndexes.size(); i++) {
+			if(newIndexes.get(i) != -1) {
+				newIndexes.set(i, remaining++);
+			}
+		}
+		votes.compact(newIndexes, remaining);
+		
+		for(IntList bucket : candidateBallots) {
+			if(bucket != null) {
+				for(int i=0; i<bucket.size(); i++) {
+					bucket.set(i, newIndexes.get(bucket.get(i)));
+				}
+			}
+		}
+		newIndexes.release();
+		
+		exhaustedVotes = 0;
+	}
+	
+	/**
+	 * Run a task for every block, on {@code tallyPool} if there is one and otherwise in order on this thread
+	 *
+	 * @param blocks - int - the number of blocks
+	 * @param task - IntConsumer - the task, given the index of the block to run
+	 */
+	private void runBlocks(int blocks, IntConsumer task) {
+		if(tallyPool == null || blocks == 1) {
+			for(int block=0; block<blocks; block++) {
+				task.accept(block);
+			}
+			return;
+		}
+		
+		//the metrics only see what the calling thread allocates, so blocks run on other threads record their own
+		TabulationMetrics metrics = this.metrics;
+		Thread caller = Thread.currentThread();
+		ArrayList<Callable<Void>> tasks = new ArrayList<>();
+		for(int block=0; block<blocks; block++) {
+			final int index = block;
+			tasks.add(() -> {
+				boolean measured = metrics != null && Thread.currentThread() != caller;
+				long allocated = measured ? TabulationMetrics.threadAllocatedBytes() : 0;
+				task.accept(index);
+				if(measured) {
+					metrics.recordWorkerAllocation(TabulationMetrics.threadAllocatedBytes() - allocated);
+				}
+				return null;
+			});
+		}
+		
+		//invokeAll waits for every block, and a block failing can only be a programming error or a shard failing
+		for(Future<Void> result : tallyPool.invokeAll(tasks)) {
+			try {
+				result.get();
+			} catch (ExecutionException e) {
+				//a shard failing to answer is passed on as it is
+				if(e.getCause() instanceof UncheckedIOException) {
+					throw (UncheckedIOException) e.getCause();
+				}
+				throw new IllegalStateException("A tally block failed", e);
+			} catch (InterruptedException e) {
+				throw new IllegalStateException("A tally block failed", e);
+			}
+		}
+	}
+	
+	/**
+	 * Check whether a candidate's vote count exceeds the winning threshold, in the arithmetic being counted with
+	 *
+	 * @param candidate - int - the id of the candidate
+	 * @return boolean - true if the candidate has more votes than the threshold
+	 */
+	private boolean isOverThreshold(int candidate) {
+		return isOverThreshold(fixedVoteCounts[candidate], currentVoteCounts[candidate]);
+	}
+	
+	/**
+	 * Compare the vote counts of two candidates, in the arithmetic being counted with
+	 *
+	 * @param a - int - the id of the first candidate
+	 * @param b - int - the id of the second candidate
+	 * @return int - negative, zero or positive as the first candidate has fewer, the same or more votes
+	 */
+	int compareVoteCounts(int a, int b) {
+		if(fixedPoint) {
+			return Long.compare(fixedVoteCounts[a], fixedVoteCounts[b]);
+		}
+		
+		return Double.compare(currentVoteCounts[a], currentVoteCounts[b]);
+	}
+}
@@ -0,0 +1,238 @@
+package voteCounter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * How a tie for last place was broken in a round: the policy used, the figures it compared the tied candidates on, and
+ * the step that finally singled out the loser. A TieBreak is never altered once the tie has been broken.
+ */
+public class TieBreak {
+
+	/**
+	 * The step of a tie break that singled out the loser
+	 */
+	public enum Step {
+
+		/**
+		 * The loser won the fewest head to head contests against the others tied
+		 */
+		PAIRWISE_WINS,
+
+		/**
+		 * The loser had the smallest total margin over the others tied, among those with the fewest head to head wins
+		 */
+		PAIRWISE_MARGIN,
+
+		/**
+		 * The loser had the fewest ranking points on the original ballots, among those with the smallest margin
+		 */
+		RANKING_POINTS,
+
+		/**
+		 * The loser had the fewest votes in an earlier round, given by {@link TieBreak#getDecidingRound()}
+		 */
+		PREVIOUS_ROUND,
+
+		/**
+		 * No other step could separate the candidates, so the loser was chosen at random
+		 */
+		RANDOM
+	}
+
+	//The policy the tie was broken with
+	private TieBreakPolicy policy;
+	//The ids of the tied candidates, in id order
+	private List<Integer> tiedCandidates;
+	//The head to head contests each tied candidate won, their total margin, and their ranking points, in the order of
+	//the tied candidates, or null if the policy did not compare them
+	private long[] pairwiseWins;
+	private long[] pairwiseMargins;
+	private long[] rankingPoints;
+	//The step that singled out the loser
+	private Step step;
+	//The number of the round whose votes singled out the loser, or 0 if it was not singled out by an earlier round
+	private int decidingRound;
+	//The id of the candidate that lost the tie break
+	private int loser;
+
+	TieBreak(TieBreakPolicy policy, List<Integer> tiedCandidates, long[] pairwiseWins, long[] pairwiseMargins,
+			long[] rankingPoints, Step step, int decidingRound, int loser) {
+		this.policy = policy;
+		this.tiedCandidates = Collections.unmodifiableList(new ArrayList<>(tiedCandidates));
+		this.pairwiseWins = pairwiseWins == null ? null : pairwiseWins.clone();
+		this.pairwiseMargins = pairwiseMargins == null ? null : pairwiseMargins.clone();
+		this.rankingPoints = rankingPoints == null ? null : rankingPoints.clone();
+		this.step = step;
+		this.decidingRound = decidingRound;
+		this.loser = loser;
+	}
+
+	/**
+	 * Getter for the policy
+	 *
+	 * @return TieBreakPolicy - the policy the tie was broken with
+	 */
+	public TieBreakPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Getter for the tied candidates
+	 *
+	 * @return {@code List<Integer>} - the ids of the tied candidates, in id order
+	 */
+	public List<Integer> getTiedCandidates() {
+		return tiedCandidates;
+	}
+
+	/**
+	 * Check whether the tied candidates were compared head to head, as the {@link TieBreakPolicy#CONDORCET} policy does
+	 *
+	 * @return boolean - true if the pairwise wins, margins and ranking points are known
+	 */
+	public boolean isPairwise() {
+		return pairwiseWins != null;
+	}
+
+	/**
+	 * Get the number of head to head contests a tied candidate won against the others tied
+	 *
+	 * @param index - int - the index of the candidate in {@link #getTiedCandidates()}
+	 * @return long - the number of contests won
+	 * @throws IllegalStateException if the candidates were not compared head to head
+	 */
+	public long getPairwiseWins(int index) {
+		checkPairwise();
+		return pairwiseWins[index];
+	}
+
+	/**
+	 * Get the total margin of a tied candidate's head to head contests against the others tied: the ballots ranking
+	 * them above each opponent less those ranking the opponent above them, summed over the contests that were not drawn
+	 *
+	 * @param index - int - the index of the candidate in {@link #getTiedCandidates()}
+	 * @return long - the total margin, negative if the candidate lost by more than they won
+	 * @throws IllegalStateException if the candidates were not compared head to head
+	 */
+	public long getPairwiseMargin(int index) {
+		checkPairwise();
+		return pairwiseMargins[index];
+	}
+
+	/**
+	 * Get the ranking points of a tied candidate on the original ballots, with a higher ranking earning more points
+	 *
+	 * @param index - int - the index of the candidate in {@link #getTiedCandidates()}
+	 * @return long - the points
+	 * @throws IllegalStateException if the candidates were not compared head to head
+	 */
+	public long getRankingPoints(int index) {
+		checkPairwise();
+		return rankingPoints[index];
+	}
+
+	/**
+	 * Getter for the step that singled out the loser
+	 *
+	 * @return Step - the step
+	 */
+	public Step getStep() {
+		return step;
+	}
+
+	/**
+	 * Getter for the deciding round
+	 *
+	 * @return int - the number of the earlier round whose votes singled out the loser, or 0 if the step was not
+	 * 		{@link Step#PREVIOUS_ROUND}
+	 */
+	public int getDecidingRound() {
+		return decidingRound;
+	}
+
+	/**
+	 * Getter for the loser
+	 *
+	 * @return int - the id of the candidate that lost the tie break
+	 */
+	public int getLoser() {
+		return loser;
+	}
+
+	/**
+	 * Throw if the tied candidates were not compared head to head
+	 */
+	private void checkPairwise() {
+		if(pairwiseWins == null) {
+			throw new IllegalStateException("The tied candidates were not compared head to head.");
+		}
+	}
+
+	/**
+	 * Write the tie break to a stream, as part of a {@link RoundResult}
+	 *
+	 * @param output - DataOutputStream - the stream
+	 * @throws IOException if the tie break could not be written
+	 */
+	void write(DataOutputStream output) throws IOException {
+		output.writeByte(policy.ordinal());
+		RoundResult.writeIds(output, tiedCandidates);
+		output.writeBoolean(pairwiseWins != null);
+		for(int i=0; pairwiseWins != null && i<pairwiseWins.length; i++) {
+			output.writeLong(pairwiseWins[i]);
+			output.writeLong(pairwiseMargins[i]);
+			output.writeLong(rankingPoints[i]);
+		}
+		output.writeByte(step.ordinal());
+		output.writeInt(decidingRound);
+		output.writeShort(loser);
+	}
+
+	/**
+	 * Read a tie break written by {@link #write(DataOutputStream)}
+	 *
+	 * @param input - DataInputStream - the stream
+	 * @param candidateCount - int - the number of registered candidates
+	 * @return TieBreak - the tie break
+	 * @throws IOException if the tie break could not be read or refers to candidates that are not registered
+	 */
+	static TieBreak read(DataInputStream input, int candidateCount) throws IOException {
+		int policy = input.readByte();
+		if(policy < 0 || policy >= TieBreakPolicy.values().length) {
+			throw new IOException("A tie break policy is not known.");
+		}
+		List<Integer> tiedCandidates = RoundResult.readIds(input, candidateCount);
+
+		long[] pairwiseWins = null;
+		long[] pairwiseMargins = null;
+		long[] rankingPoints = null;
+		if(input.readBoolean()) {
+			pairwiseWins = new long[tiedCandidates.size()];
+			pairwiseMargins = new long[tiedCandidates.size()];
+			rankingPoints = new long[tiedCandidates.size()];
+			for(int i=0; i<pairwiseWins.length; i++) {
+				pairwiseWins[i] = input.readLong();
+				pairwiseMargins[i] = input.readLong();
+				rankingPoints[i] = input.readLong();
+			}
+		}
+
+		int step = input.readByte();
+		if(step < 0 || step >= Step.values().length) {
+			throw new IOException("A tie break step is not known.");
+		}
+		int decidingRound = input.readInt();
+		int loser = input.readShort();
+		if(!tiedCandidates.contains(loser)) {
+			throw new IOException("The loser of a tie break is not one of the tied candidates.");
+		}
+
+		return new TieBreak(TieBreakPolicy.values()[policy], tiedCandidates, pairwiseWins, pairwiseMargins,
+				rankingPoints, Step.values()[step], decidingRound, loser);
+	}
+}
@@ -0,0 +1,43 @@
+package voteCounter;
+
+/**
+ * How a {@link Tabulator} chooses which of the candidates tied for last place to eliminate. Whatever the policy, a tie
+ * that it cannot break is broken at random.
+ */
+public enum TieBreakPolicy {
+
+	/**
+	 * Eliminate the candidate who wins the fewest head to head contests against the others tied, then the one with the
+	 * smallest total margin of those contests, then the one with the fewest ranking points on the original ballots.
+	 * The default
+	 */
+	CONDORCET,
+
+	/**
+	 * Eliminate the candidate who had the fewest votes in the latest earlier round in which the tied candidates' votes
+	 * differed
+	 */
+	PREVIOUS_ROUNDS,
+
+	/**
+	 * Eliminate one of the tied candidates at random
+	 */
+	RANDOM;
+
+	/**
+	 * Find a policy by its name, ignoring case and treating dashes as underscores, so that {@code previous-rounds}
+	 * finds {@link #PREVIOUS_ROUNDS}
+	 *
+	 * @param name - String - the name of the policy
+	 * @return TieBreakPolicy - the policy, or null if there is none by that name
+	 */
+	public static TieBreakPolicy forName(String name) {
+		for(TieBreakPolicy policy : values()) {
+			if(policy.name().equalsIgnoreCase(name.trim().replace('-', '_'))) {
+				return policy;
+			}
+		}
+
+		return null;
+	}
+}
@@ -1,17 +1,21 @@
 package voteCounter;
 
-import java.io.BufferedReader;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Random;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.management.JMException;
 
 /**
- * The main vote counting class. It reads the input arguments and files, analyzes the votes in rounds, 
- * and output the results of each round to the console<br>
+ * The main vote counting class. It reads the input arguments and files, counts the votes in rounds with a
+ * {@link Tabulator}, and output the results of each round to the console, and to JSON and csv files if asked<br>
  * <br>
  * Arguments:<br>
  * 	candidateFileName - String - The name of the file listing each candidate. Each candidate should be on a new line<br>
@@ -19,31 +23,52 @@ import java.util.Random;
  * 	numberOfWinners - int - The number of candidates that can win,
  */
 public class VoteCounter {
-	//Parameter: The number of candidates that can win
-	static int numberOfWinners;
-	//The percentage of votes that is needed to guarantee a win for a candidate
-	static double voteThresholdPercent;
-	//A counter for the total number of candidates
-	static int numberOfCandidates = 0;
-	//the total number of votes being counted
-	static int numberOfVotes = 0;
-	//the number of votes needed to guarantee a win
-	static double voteThreshold = 0.0;
-	//A list of the candidates which have won
-	static ArrayList<String> winningCandidates = new ArrayList<>();
-	//A list of the candidates which have been eliminated
-	static ArrayList<String> eliminatedCandidates = new ArrayList<>();
-	//A list of the original, unaltered Votes. Needed for the tie breaker
-	static ArrayList<Vote> originalVotes = new ArrayList<Vote>();
-	//A list of the votes that are redistributed
-	static ArrayList<Vote> votes = new ArrayList<Vote>();
-	//A list of the working vote counts
-	static HashMap<String, Double> currentVoteCounts = new HashMap<>();
-	static int roundCounter = 1;
+	//The most sets of winners of the resamples that are printed
+	private static final int MAX_PRINTED_WINNER_SETS = 10;
+	//Option: count in fixed-point rather than double precision. Fixed-point is exact and deterministic, and is the
+	//default for certified counts. Double precision is only kept for comparison
+	static boolean fixedPoint = true;
+	//Option: keep the name of every voter alongside their ballot group for auditing
+	static boolean keepVoters = false;
+	//Option: the number of threads used to read the vote file and tally each round
+	static int threads = 1;
+	//Option: read the ballots from a snapshot rather than a vote file
+	static boolean fromSnapshot = false;
+	//Option: the name of a snapshot file to save the ballots to once read, or null to not save one
+	static String snapshotFileName = null;
+	//Option: eliminate every mathematically defeated candidate in one round
+	static boolean batchElimination = false;
+	//Option: elect every candidate over the threshold in one round
+	static boolean simultaneousElection = false;
+	//Option: the name of a file to write the metrics of the count to as JSON, or null to not record any
+	static String metricsFileName = null;
+	//Option: the name of a file to write the results of every round to as JSON, or null to not write them
+	static String resultsFileName = null;
+	//Option: the name of a file to write the results of every round to as csv, or null to not write them
+	static String resultsCsvFileName = null;
+	//Option: only print a summary of the count to the console rather than every round
+	static boolean summary = false;
+	//Option: the name of a file to save a checkpoint of the count to between rounds, or null to not save any
+	static String checkpointFileName = null;
+	//Option: the number of rounds counted between checkpoints
+	static int checkpointInterval = 1;
+	//Option: the name of a checkpoint to carry on the count from, or null to count from the start
+	static String resumeFileName = null;
+	//Option: hold the state of the count outside the heap
+	static boolean offHeap = false;
+	//Option: the directory to create the spill file that holds the state of the count in, or null to hold it in direct
+	//memory when it is held outside the heap
+	static String spillDirectory = null;
+	//Option: the number of resamples of the ballots to count after the count, or 0 to not resample
+	static int resamples = 0;
+	//Option: the chance of each ballot being dropped from a resample, or 0 to bootstrap instead
+	static double dropRate = 0;
+	//Option: the seed of the resamples, or null to not seed them
+	static Long seed = null;
 	
 	/**
 	 * The main method. See class docs for description on required arguments
-	 * 
+	 *
 	 * @param args - String[]
 	 */
 	public static void main(String[] args) {
@@ -54,26 +79,120 @@ public class VoteCounter {
 		}
 		
 		//Quit if the three arguments were not supplied
-		if(args.length != 3) {
+		if(args.length < 3) {
 			System.out.println("Please provide all 3 arguments. Run 'VoteCounter help' for more information.");
 			return;
 		}
 		
+		CommandLine options = new CommandLine(threads, CommandLine.Option.values());
+		options.unknownHint = ". Run 'VoteCounter help' for more information.";
+		
+		//Read any options that follow the three arguments
+		for(int i=3; i<args.length; i++) {
+			if(args[i].equals("--keep-voters")) {
+				keepVoters = true;
+			} else if(args[i].startsWith("--checkpoint=")) {
+				checkpointFileName = args[i].substring("--checkpoint=".length());
+			} else if(args[i].startsWith("--checkpoint-every=")) {
+				try {
+					checkpointInterval = Integer.parseInt(args[i].substring("--checkpoint-every=".length()));
+				} catch (NumberFormatException e) {
+					checkpointInterval = 0;
+				}
+				
+				if(checkpointInterval < 1) {
+					System.out.println("The checkpoint interval must be a whole number of at least 1.");
+					return;
+				}
+			} else if(args[i].startsWith("--resume=")) {
+				resumeFileName = args[i].substring("--resume=".length());
+			} else if(args[i].equals("--off-heap")) {
+				offHeap = true;
+			} else if(args[i].startsWith("--off-heap=")) {
+				offHeap = true;
+				spillDirectory = args[i].substring("--off-heap=".length());
+			} else if(args[i].startsWith("--resample=")) {
+				try {
+					resamples = Integer.parseInt(args[i].substring("--resample=".length()));
+				} catch (NumberFormatException e) {
+					resamples = 0;
+				}
+				
+				if(resamples < 1) {
+					System.out.println("The number of resamples must be a whole number of at least 1.");
+					return;
+				}
+			} else if(args[i].startsWith("--drop=")) {
+				try {
+					dropRate = Double.parseDouble(args[i].substring("--drop=".length()));
+				} catch (NumberFormatException e) {
+					dropRate = -1;
+				}
+				
+				if(!(dropRate > 0 && dropRate < 1)) {
+					System.out.println("The drop rate must be a number above 0 and below 1.");
+					return;
+				}
+			} else if(args[i].startsWith("--metrics=")) {
+				metricsFileName = args[i].substring("--metrics=".length());
+			} else if(args[i].startsWith("--results=")) {
+				resultsFileName = args[i].substring("--results=".length());
+			} else if(args[i].startsWith("--results-csv=")) {
+				resultsCsvFileName = args[i].substring("--results-csv=".length());
+			} else if(args[i].equals("--summary")) {
+				summary = true;
+			} else if(args[i].startsWith("--save-snapshot=")) {
+				snapshotFileName = args[i].substring("--save-snapshot=".length());
+			} else if(!options.read(args[i])) {
+				return;
+			}
+		}
+		fixedPoint = options.fixedPoint;
+		batchElimination = options.batchElimination;
+		simultaneousElection = options.simultaneousElection;
+		fromSnapshot = options.fromSnapshot;
+		threads = options.threads;
+		seed = options.seed;
+		
+		//Record the timings of the count, and let them be watched over JMX while it runs
+		TabulationMetrics metrics = null;
+		if(metricsFileName != null) {
+			metrics = new TabulationMetrics(args[1]);
+			try {
+				metrics.register();
+			} catch (JMException e) {
+				System.out.println("The metrics cannot be watched over JMX:" + e.getMessage());
+			}
+		}
+		long readStart = System.nanoTime();
+		long readAllocated = metrics == null ? 0 : metrics.allocatedBytes();
+		
 		//Parse the input files
-		if(!parseCandidates(args[0])) {
-			//If parseCandidates returns false, then it failed to work correctly and the program should terminate
+		Contest contest = readContest(args[0], args[1], fromSnapshot, keepVoters, threads);
+		if(contest == null) {
+			//If readContest returns null, then it failed to work correctly and the program should terminate
 			return;
 		}
-		if(!parseVotes(args[1])) {
-			//if parseVotes returns false, then it failed to work correctly and the program should terminate
-			return;
+		if(metrics != null) {
+			metrics.recordIngest(contest.getBallots().ballotCount(), System.nanoTime() - readStart, metrics.allocatedBytes() - readAllocated);
+		}
+		
+		//Save the ballots that were read so a recount can skip reading them again
+		if(snapshotFileName != null) {
+			try {
+				BallotSnapshot.write(Paths.get(snapshotFileName), contest.getCandidates(), contest.getBallots());
+			} catch (IOException e) {
+				System.out.println("An error occured while writing the snapshot:" + e.getMessage());
+				return;
+			}
 		}
 		
 		//Try to get the number of voters
+		int numberOfWinners;
 		try {
 			numberOfWinners = Integer.parseInt(args[2]);
 			
-			if(numberOfWinners < 1 || numberOfWinners > currentVoteCounts.keySet().size()) {
+			if(numberOfWinners < 1 || numberOfWinners > contest.getCandidates().size()) {
 				System.out.println("The number of winners must be at least 1 and no more than the number of candidates");
 				return;
 			}
@@ -83,425 +202,435 @@ public class VoteCounter {
 			return;
 		}
 		
-		//calculate the vote thresholds
-		voteThresholdPercent = 1.0/(numberOfWinners+1);
-		voteThreshold = numberOfVotes*voteThresholdPercent;
+		Tabulator tabulator;
+		if(resumeFileName != null) {
+			//carry on from the checkpoint, which holds the options the count was started with
+			tabulator = readCheckpoint(contest, numberOfWinners);
+			if(tabulator == null) {
+				return;
+			}
+			
+			//print the rounds counted before the checkpoint, so the output is the same as counting without stopping
+			if(!summary) {
+				for(RoundResult round : tabulator.getResult().getRounds()) {
+					printRound(contest.getCandidates(), round);
+				}
+			}
+		} else {
+			tabulator = new Tabulator(contest, numberOfWinners);
+			tabulator.setFixedPoint(fixedPoint);
+			tabulator.setBatchElimination(batchElimination);
+			tabulator.setSimultaneousElection(simultaneousElection);
+		}
+		tabulator.setMetrics(metrics);
+		if(offHeap && resumeFileName == null) {
+			try {
+				tabulator.setStateMemory(spillDirectory == null ? StateMemory.direct() : StateMemory.spill(Paths.get(spillDirectory)));
+			} catch (IOException e) {
+				System.out.println("Unable to create a spill file in the directory " + spillDirectory + ":" + e.getMessage());
+				return;
+			}
+		}
+		//share each round's tally across the requested threads
+		if(threads > 1) {
+			tabulator.setTallyPool(new ForkJoinPool(threads));
+		}
 		
-		//perform the initial count of the votes
-		countVotes();
+		//calculate the thresholds and perform the initial count of the votes
+		if(resumeFileName == null) {
+			tabulator.start();
+		}
+		
+		//Save checkpoints in the background as the count goes, starting with the initial count
+		TabulationCheckpoint checkpoint = checkpointFileName == null ? null : new TabulationCheckpoint(Paths.get(checkpointFileName));
+		if(resumeFileName == null) {
+			checkpoint = saveCheckpoint(checkpoint, tabulator);
+		}
 		
 		//Analyze the votes, redistributing as needed, until enough winners have been found
-		do {
-			analyzeVotes();
-		} while(winningCandidates.size() < numberOfWinners);
+		while(!tabulator.isComplete()) {
+			RoundResult round = tabulator.nextRound();
+			if(round.getNumber() % checkpointInterval == 0 || tabulator.isComplete()) {
+				checkpoint = saveCheckpoint(checkpoint, tabulator);
+			}
+			if(!summary) {
+				printRound(contest.getCandidates(), round);
+			}
+		}
+		
+		//Wait for the last checkpoint to be written
+		if(checkpoint != null) {
+			try {
+				checkpoint.close();
+			} catch (IOException e) {
+				System.out.println("An error occured while writing the checkpoint:" + e.getMessage());
+			}
+		}
+		
+		//Write the full history of the count once it is done
+		TabulationResult result = tabulator.getResult();
+		writeResults(args[1], result);
 		
-		//Print the final winners
+		//Print the final winners, after how many rounds it took if the rounds were not printed
 		System.out.println();
+		if(summary) {
+			System.out.println("Counted " + result.getRounds().size() + " rounds.");
+		}
 		System.out.println("Winners:");
-		System.out.println(String.join(", ", winningCandidates));
+		System.out.println(String.join(", ", result.getWinnerNames()));
+		
+		//Count the contest again on resamples of its ballots, to show how robust the winners are
+		if(resamples > 0) {
+			printResampleReport(resample(contest, numberOfWinners, tabulator), tabulator.getResult().getWinners());
+		}
+		
+		//Write the metrics once the count is done
+		if(metrics != null) {
+			metrics.unregister();
+			try {
+				TabulationMetrics.write(Paths.get(metricsFileName), List.of(metrics));
+			} catch (IOException e) {
+				System.out.println("An error occured while writing the metrics file:" + e.getMessage());
+			}
+		}
 	}
 	
 	/**
-	 * Parse the candidate file and initialize {@code numberOfCandidates} and {@code currentVoteCounts}
-	 * 
+	 * Read the checkpoint to resume the count from, printing the reason if it cannot be read
+	 *
+	 * @param contest - Contest - the contest, read again from its vote file or snapshot
+	 * @param numberOfWinners - int - the number of winners asked for, which must match the checkpoint
+	 * @return Tabulator - the count at the checkpoint, or null if not successful
+	 */
+	static Tabulator readCheckpoint(Contest contest, int numberOfWinners) {
+		Tabulator tabulator;
+		
+		try {
+			tabulator = TabulationCheckpoint.read(Paths.get(resumeFileName), contest);
+		} catch (NoSuchFileException e) {
+			System.out.println("Unable to open the checkpoint file. Please ensure the provided file path is correct.");
+			return null;
+		} catch (IOException e) {
+			System.out.println("An error occured while reading the checkpoint file:" + e.getMessage());
+			return null;
+		}
+		
+		if(tabulator.getNumberOfWinners() != numberOfWinners) {
+			System.out.println("The checkpoint was saved for a count of " + tabulator.getNumberOfWinners() + " winners.");
+			return null;
+		}
+		
+		return tabulator;
+	}
+	
+	/**
+	 * Save a checkpoint of the count, to be written in the background. If a checkpoint cannot be saved the reason is
+	 * printed and the count carries on without them
+	 *
+	 * @param checkpoint - TabulationCheckpoint - where to save it, or null if checkpoints are not being saved
+	 * @param tabulator - Tabulator - the count
+	 * @return TabulationCheckpoint - where to save the next checkpoint, or null to save no more
+	 */
+	static TabulationCheckpoint saveCheckpoint(TabulationCheckpoint checkpoint, Tabulator tabulator) {
+		if(checkpoint == null) {
+			return null;
+		}
+		
+		try {
+			checkpoint.save(tabulator);
+			return checkpoint;
+		} catch (IOException e) {
+			System.out.println("An error occured while writing the checkpoint, so no more will be saved:" + e.getMessage());
+			return null;
+		}
+	}
+	
+	/**
+	 * Read the candidate file and the vote file or snapshot, printing the reason if either cannot be read
+	 *
 	 * @param candidateFileName - String - the name of the candidate file
-	 * @return boolean - true if successful, false if not successful
+	 * @param voteFileName - String - The file name of the vote file, or of the snapshot
+	 * @param fromSnapshot - boolean - true if the votes are in a snapshot rather than a vote file
+	 * @param keepVoters - boolean - true to keep the name of every voter for auditing
+	 * @param threads - int - the number of threads to read the vote file with
+	 * @return Contest - the contest, or null if not successful
 	 */
-	private static boolean parseCandidates(String candidateFileName) {
-		BufferedReader candidateReader = null;
+	static Contest readContest(String candidateFileName, String voteFileName, boolean fromSnapshot, boolean keepVoters, int threads) {
+		CandidateRegistry candidates = readCandidates(candidateFileName, System.out);
+		if(candidates == null) {
+			return null;
+		}
 		
+		if(fromSnapshot) {
+			return readSnapshot(candidates, voteFileName);
+		}
+		
+		BallotStore ballots = readVotes(voteFileName, candidates, keepVoters, threads, System.out);
+		return ballots == null ? null : new Contest(candidates, ballots);
+	}
+	
+	/**
+	 * Read the candidate file, printing the reason if it cannot be read
+	 *
+	 * @param candidateFileName - String - the name of the candidate file
+	 * @param messages - PrintStream - where to print the reason
+	 * @return CandidateRegistry - the candidates, or null if not successful
+	 */
+	static CandidateRegistry readCandidates(String candidateFileName, PrintStream messages) {
 		try {
-			//try to open the file for reading
-			candidateReader = new BufferedReader(new FileReader(candidateFileName));
-			String candidate = null;
-			
-			//Loop through each line and store the candidate and increase the candidate count
-			while((candidate=candidateReader.readLine()) != null) {
-				currentVoteCounts.put(candidate.trim(), 0.0);
-				numberOfCandidates += 1;
-			}
+			return Contest.readCandidates(candidateFileName);
 		} catch(FileNotFoundException e) {
 			//The file was not found, so print the error message and quit
-			System.out.println("Unable to open the candidate file. Please ensure the provided file path is correct.");
-			return false;
+			messages.println("Unable to open the candidate file. Please ensure the provided file path is correct.");
 		} catch(IOException e) {
 			//Something went wrong reading the file, so print the error message and quit
-			System.out.println("An error occured while reading the candidate file:" + e.getMessage());
-			return false;
-		} finally {
-			//Close the candidateReader after everything, if it exists
-			if(candidateReader != null) {
-				try {
-					candidateReader.close();
-				} catch (IOException e) {
-					System.out.println("An error occured while closing the candidate file:\n" + e.getMessage());
-				}
-			}
+			messages.println("An error occured while reading the candidate file:" + e.getMessage());
 		}
 		
-		return true;
+		return null;
 	}
 	
 	/**
-	 * Parse the vote file and construct all {@link Vote} objects
-	 * 
+	 * Read a vote file, printing the reason if it cannot be read
+	 *
 	 * @param voteFileName - String - The file name of the vote file
-	 * @return boolean - true if successful, false if not successful
+	 * @param candidates - CandidateRegistry - the registered candidates
+	 * @param keepVoters - boolean - true to keep the name of every voter for auditing
+	 * @param threads - int - the number of threads to read the vote file with
+	 * @param messages - PrintStream - where to print the reason
+	 * @return BallotStore - the ballots, or null if not successful
 	 */
-	private static boolean parseVotes(String voteFileName) {
-		BufferedReader voteReader = null;
-		
+	static BallotStore readVotes(String voteFileName, CandidateRegistry candidates, boolean keepVoters, int threads, PrintStream messages) {
 		try {
-			//attempt to open the vote file
-			voteReader = new BufferedReader(new FileReader(voteFileName));
-			String line = null;
-			voteReader.readLine();
-			
-			//parse the line of the csv file and use it to create a Vote object
-			while((line = voteReader.readLine()) != null) {
-				String[] inputRow = line.split(",");
-				
-				//store the vote as needed and count the total number of votes
-				votes.add(new Vote(inputRow));
-				originalVotes.add(new Vote(inputRow));
-				numberOfVotes++;
+			return Contest.readVotes(voteFileName, candidates, keepVoters, threads);
+		} catch (MalformedVoteFileException e) {
+			//report every row that could not be read, and quit rather than count an incomplete set of votes
+			messages.println("The vote file " + voteFileName + " contains malformed rows:");
+			for(String error : e.getErrors()) {
+				messages.println(error);
 			}
-		} catch (FileNotFoundException e) {
+		} catch (NoSuchFileException e) {
 			//File was not found, so return
-			System.out.println("Unable to open the vote file. Please ensure the provided file path is correct.");
-			return false;
+			messages.println("Unable to open the vote file " + voteFileName + ". Please ensure the provided file path is correct.");
 		} catch (IOException e) {
 			//Failure to read file correctly, so return
-			System.out.println("An error occured while reading the vote file:" + e.getMessage());
-			return false;
-		} finally {
-			//Close the buffered reader when finished
-			if (voteReader != null) {
-				try {
-					voteReader.close();
-				} catch (IOException e) {
-					System.out.println("An error occured while closing the vote file:\n" + e.getMessage());
-				}
-			}
+			messages.println("An error occured while reading the vote file " + voteFileName + ":" + e.getMessage());
 		}
-		return true;
+		
+		return null;
 	}
 	
 	/**
-	 * Analyzes the current vote counts, determining a winner or loser for the round, and the redistributes votes as needed
+	 * Load a snapshot in place of a vote file, checking that it was saved with the same candidates
+	 * 
+	 * @param candidates - CandidateRegistry - the candidates read from the candidate file
+	 * @param snapshotFileName - String - the name of the snapshot file
+	 * @return Contest - the contest, or null if not successful
 	 */
-	private static void analyzeVotes() {
-		//Print the start of round text and current vote counts
-		System.out.println();
-		System.out.println("Round " + roundCounter++ + " vote counts:");
-		for(Map.Entry<String, Double> entry : currentVoteCounts.entrySet()) {
-			System.out.print(entry.getKey() + ": " + entry.getValue() + " | ");
+	static Contest readSnapshot(CandidateRegistry candidates, String snapshotFileName) {
+		Contest contest;
+		
+		try {
+			contest = BallotSnapshot.read(Paths.get(snapshotFileName));
+		} catch (NoSuchFileException e) {
+			System.out.println("Unable to open the snapshot file. Please ensure the provided file path is correct.");
+			return null;
+		} catch (IOException e) {
+			System.out.println("An error occured while reading the snapshot file:" + e.getMessage());
+			return null;
 		}
-		System.out.println();
 		
-		//If the number of candidates left equals the number of winners, mark them all winners and end
-		if(currentVoteCounts.size() == numberOfWinners) {
-			for(Map.Entry<String, Double> entry : currentVoteCounts.entrySet()) {
-				if(!winningCandidates.contains(entry.getKey())) {
-					winningCandidates.add(entry.getKey());
-					System.out.println(entry.getKey() + " has won in the last round.");
-				}
-			}
-			
-			return;
+		//the candidate ids in the snapshot are only meaningful for the candidates it was saved with
+		boolean matches = contest.getCandidates().size() == candidates.size();
+		for(int candidate=0; matches && candidate<candidates.size(); candidate++) {
+			matches = contest.getCandidates().getName(candidate).equals(candidates.getName(candidate));
+		}
+		if(!matches) {
+			System.out.println("The candidate file does not list the candidates the snapshot was saved with.");
+			return null;
 		}
 		
-		boolean noWinnerFound = true;
-		
-		//create an arrayList that holds the factions with the least number of votes and track the current minimum vote total
-		ArrayList<String> minCandidatess = new ArrayList<>();
-		double minCount = Double.MAX_VALUE;
-		
-		//The entry key is the candidate name and entry value is the vote count
-		for(Map.Entry<String, Double> entry : currentVoteCounts.entrySet()) {
-			//If the candidate has already won, do not count their votes
-			if(!winningCandidates.contains(entry.getKey())) {
-				//Check if the vote count for this candidate has exceeded the winning threshold
-				if(entry.getValue().compareTo(voteThreshold) > 0) {
-					//Mark that a winner was found
-					noWinnerFound = false;
-					
-					//subtract the threshold from the number of votes over
-					//Then divide that by the total number of votes. This results in a percentage which acts as
-					//a weight for all votes from this winner as they are redistributed. 
-					double redistributeAmount = Double.sum(entry.getValue(), voteThreshold*-1.0)/numberOfVotes;
-					
-					//redistribute the votes of the winner using the calculated redistribution amount
-					redistributeVotes(entry.getKey(), redistributeAmount);
-					
-					//Add the winner to the list of winners and print that they have won
-					winningCandidates.add(entry.getKey());
-					System.out.println(entry.getKey() + " has won with " + entry.getValue() + " votes.");
-					
-					//Exit the loop
-					break;
-				}
-			}
-			
-			if(entry.getValue().compareTo(minCount) < 0) {
-				//If this candidate has a lower vote count than the current lowest
-				//Store this count as the new minimum
-				minCount = entry.getValue();
-				//remove all current candidates from the minimum count list
-				minCandidatess.clear();
-				//and add this candidate to the list
-				minCandidatess.add(entry.getKey());
-			} else if(entry.getValue().compareTo(minCount) == 0) {
-				minCandidatess.add(entry.getKey());
+		return contest;
+	}
+	
+	/**
+	 * Write the results of every round to the requested JSON and csv files, printing the reason if one cannot be
+	 * written
+	 *
+	 * @param name - String - the name of the contest
+	 * @param result - TabulationResult - the finished count
+	 */
+	static void writeResults(String name, TabulationResult result) {
+		ResultsWriter writer = new ResultsWriter(name, result);
+		
+		if(resultsFileName != null) {
+			try {
+				writer.writeJson(Paths.get(resultsFileName));
+			} catch (IOException e) {
+				System.out.println("An error occured while writing the results file:" + e.getMessage());
 			}
 		}
 		
-		//Since no one won, a loser must be eliminated
-		if(noWinnerFound) {
-			//If only one candidate has the lowest vote count, eliminate them
-			//If 2 or more are tied for the lowest, run a tie breaker and eliminate the loser
-			if(minCandidatess.size() == 1) {
-				eliminateCandidate(minCandidatess.get(0));
-			} else {
-				eliminateCandidate(condorcetTieBreak(minCandidatess));
+		if(resultsCsvFileName != null) {
+			try {
+				writer.writeCsv(Paths.get(resultsCsvFileName));
+			} catch (IOException e) {
+				System.out.println("An error occured while writing the results csv file:" + e.getMessage());
 			}
-		} 
+		}
 	}
 	
 	/**
-	 * Perform a condorcet tie break for all factions in the factions list
-	 * @param candidates - {@code ArrayList<String>} - The list of candidates to check in the tie breaker
-	 * 
-	 * @return - String - the name of the candidate that lost the tie breaker
+	 * Print the vote counts at the start of a round and its outcome. The round is built up in full and printed at once,
+	 * since printing each candidate's count separately is slow with hundreds of candidates
+	 *
+	 * @param candidates - CandidateRegistry - the registry the candidate ids refer to
+	 * @param round - RoundResult - the round to print
 	 */
-	private static String condorcetTieBreak(ArrayList<String> candidates) {
-		//Output that a tie braker is occuring between the candidates
-		System.out.println("Breaking last place tie between: " + String.join(", ", candidates));
-		
-		//create the master matrix that counts the number of times one candidate beats another candidate
-		int[][] masterMatrix = new int[candidates.size()][candidates.size()];
-		
-		//generate a matrix for each vote and add it to the master
-		for(Vote vote : originalVotes) {
-			masterMatrix = matrixAddition(masterMatrix, vote.generateMatrix(candidates));
-		}
-		
-		// Create a win matrix which marks if one candidate beats another candidate more in the master matrix
-		int[][] winMatrix = new int[candidates.size()][candidates.size()];
-		// Create a matrix that stores the magnitude of victories in the win matrix
-		int[][] magnitudeMatrix = new int[candidates.size()][candidates.size()];
-		
-		//loop through the master matrix
-		for(int x=0; x<masterMatrix.length; x++) {
-			for(int y=0; y<masterMatrix[0].length; y++) {
-				// Only 1 half of the matrix is cared about, so skip it if x < y
-				if(y>x) {
-					if(masterMatrix[x][y] > masterMatrix[y][x]) {
-						//If x beat y more than y beat x, mark that x beats y overall in the win matrix
-						winMatrix[x][y] = 1;
-						//calculate difference of counts in the master and store it as the magnitude
-						//The winner will have a positive value while the lose will have a negative value
-						magnitudeMatrix[x][y] = masterMatrix[x][y] - masterMatrix[y][x];
-						magnitudeMatrix[y][x] = masterMatrix[y][x] - masterMatrix[x][y];
-					} else if (masterMatrix[x][y] < masterMatrix[y][x]) {
-						//The same thing as above but if Y won
-						winMatrix[y][x] = 1;
-						magnitudeMatrix[y][x] = masterMatrix[y][x] - masterMatrix[x][y];
-						magnitudeMatrix[x][y] = masterMatrix[x][y] - masterMatrix[y][x];
-					}
-				}
+	static void printRound(CandidateRegistry candidates, RoundResult round) {
+		String newLine = System.lineSeparator();
+		StringBuilder output = new StringBuilder();
+		
+		//Print the start of round text and current vote counts
+		output.append(newLine);
+		output.append("Round ").append(round.getNumber()).append(" vote counts:").append(newLine);
+		for(int candidate=0; candidate<candidates.size(); candidate++) {
+			if(round.isContinuing(candidate)) {
+				output.append(candidates.getName(candidate)).append(": ").append(round.formatVoteCount(candidate)).append(" | ");
 			}
 		}
+		output.append(newLine);
 		
-		//Create a variable to store the currently lowest win count
-		int minWins = Integer.MAX_VALUE;
-		//and a list to store the people with the lowest win count
-		ArrayList<Integer> winIndecies = new ArrayList<>();
-		
-		//Loop through each candidate
-		for(int i=0; i<candidates.size(); i++) {
-			//determine that candidates win number by summing their row in the matrix
-			int currWins = matrixRowSum(winMatrix, i);
-			
-			if(currWins < minWins) {
-				//If this candidate has less wins than the current lowest, reset the list and mark this candidate the loser
-				minWins = currWins;
-				winIndecies.clear();
-				winIndecies.add(i);
-			} else if (currWins == minWins) {
-				//If this candidate has the same number of wins as the lowest, add their index to the list
-				winIndecies.add(i);
-			}
+		//Print the ballots that no longer count for anyone, once there are any
+		if(round.getExhaustedBallots() > 0) {
+			output.append("Exhausted ballots: ").append(round.getExhaustedBallots()).append(" with ")
+					.append(round.formatExhaustedWeight()).append(" votes.").append(newLine);
 		}
 		
-		//If there is someone worse than everyone else, then they lose
-		if(winIndecies.size() == 1) {
-			return candidates.get(winIndecies.get(0));
-		} else {
-			//If multiple people share the worst win number, magnitude is taken into account
-			int minMagnitude = Integer.MAX_VALUE;
-			ArrayList<Integer> worstIndecies = new ArrayList<>();
-			
-			//Sum the row of the magnitude matrix for each of the worst candidates
-			for(Integer rowNum : winIndecies) {
-				int currMag = matrixRowSum(magnitudeMatrix, rowNum);
-				
-				//Keep track of those candidate with the worst magnitude of wins against all opponents in the tie breaker
-				if(currMag < minMagnitude) {
-					minMagnitude = currMag;
-					worstIndecies.clear();
-					worstIndecies.add(rowNum);
-				} else if(currMag == minMagnitude) {
-					worstIndecies.add(rowNum);
-				}
-			}
-			
-			//If one is the worst by magnitue, eliminate them
-			if(worstIndecies.size() == 1) {
-				return candidates.get(worstIndecies.get(0));
+		for(Integer winner : round.getElected()) {
+			if(round.isLastRound()) {
+				output.append(candidates.getName(winner)).append(" has won in the last round.").append(newLine);
 			} else {
-				//If win number and magnitude did not break the tie, then we look at the original votes for each candidate
-				ArrayList<Integer> lowPointIndecies = new ArrayList<>();
-				//Points are given for the ranking of a candidate on a ballot, with a higher ranked choice getting more points
-				int lowPoint = Integer.MAX_VALUE;
-				
-				//Loop through the candidates that are stilled tied
-				for(Integer i : worstIndecies) {
-					int totalPoints = 0;
-					
-					//get the points for that candidate from each vote
-					for(Vote vote : originalVotes) {
-						totalPoints += vote.getPoints(candidates.get(i));
-					}
-					
-					//Keep track of the candidates with the worst votes
-					if(totalPoints < lowPoint) {
-						lowPoint = totalPoints;
-						lowPointIndecies.clear();
-						lowPointIndecies.add(i);
-					} else if (totalPoints == lowPoint) {
-						lowPointIndecies.add(i);
-					}
-				}
-				
-				//If there is one that is worst, eliminate them
-				if(lowPointIndecies.size() == 1) {
-					return candidates.get(lowPointIndecies.get(0));
-				} else {
-					//If there is still a tie, it is broken randomly
-					Random rand = new Random();
-					
-					int returnIndex = rand.nextInt(lowPointIndecies.size());
-					
-					return candidates.get(lowPointIndecies.get(returnIndex));
-				}
+				output.append(candidates.getName(winner)).append(" has won with ").append(round.formatVoteCount(winner))
+						.append(" votes.").append(newLine);
 			}
 		}
-	}
-	
-	/**
-	 * Calculate the sum of a row (1st index) in a matrix
-	 * 
-	 * @param matrix The matrix to operate on
-	 * @param row the index of the row to sum
-	 * @return int the sum of the row
-	 */
-	private static int matrixRowSum(int[][] matrix, int row) {
-		int sum = 0;
 		
-		for(int y=0; y<matrix[0].length; y++) {
-			sum += matrix[row][y];
+		if(!round.getTiedCandidates().isEmpty()) {
+			output.append("Breaking last place tie between: ").append(candidateNames(candidates, round.getTiedCandidates())).append(newLine);
+		}
+		
+		if(round.getEliminatedCandidates().size() > 1) {
+			output.append("Eliminating every candidate who cannot overtake the next lowest: ")
+					.append(candidateNames(candidates, round.getEliminatedCandidates())).append(newLine);
+		}
+		
+		for(Integer loser : round.getEliminatedCandidates()) {
+			output.append(candidates.getName(loser)).append(" has been eliminated with ").append(round.formatVoteCount(loser))
+					.append(" votes.").append(newLine);
 		}
 		
-		return sum;
+		System.out.print(output);
 	}
 	
 	/**
-	 * Add two matrices together
-	 * 
-	 * @param a the first matrix to add
-	 * @param b the second matrix to add
-	 * @return int[][] the matrix creating by adding a and b
+	 * Count the resamples of the contest with the same options as the count, on a pool of the requested threads
+	 *
+	 * @param contest - Contest - the contest
+	 * @param numberOfWinners - int - the number of candidates that can win
+	 * @param tabulator - Tabulator - the count, whose arithmetic and elimination options the resamples are counted with
+	 * @return ResampleReport - how often each candidate won and the margins of the last seat
 	 */
-	private static int[][] matrixAddition(int[][] a, int[][] b) {
-		//get the row and column count for the size of the new matrix
-		int rows = a.length;
-		int columns = a[0].length;
-		
-		//create the matrix
-		int[][] c = new int[rows][columns];
-		
-		//perform the addition
-		for(int i=0; i<rows; i++) {
-			for(int j=0; j<columns; j++) {
-				c[i][j] = a[i][j] + b[i][j];
-			}
-		}
+	static ResampleReport resample(Contest contest, int numberOfWinners, Tabulator tabulator) {
+		Resampler resampler = new Resampler(contest, numberOfWinners);
+		resampler.setFixedPoint(tabulator.isFixedPoint());
+		resampler.setBatchElimination(tabulator.isBatchElimination());
+		resampler.setSimultaneousElection(tabulator.isSimultaneousElection());
+		resampler.setDropRate(dropRate);
 		
-		return c;
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			return resampler.run(resamples, seed == null ? new SplittableRandom() : new SplittableRandom(seed), pool);
+		} finally {
+			pool.shutdown();
+		}
 	}
 	
 	/**
-	 * Perform the initial count of the votes
+	 * Output how often each candidate and each set of winners won the resamples, and how close the last seat was
+	 *
+	 * @param report - ResampleReport - the resamples counted
+	 * @param winners - {@code List<Integer>} - the ids of the winners of the count of every ballot
 	 */
-	private static void countVotes() {
+	static void printResampleReport(ResampleReport report, List<Integer> winners) {
+		CandidateRegistry candidates = report.getCandidates();
+		int resamples = report.getResamples();
 		
-		for(Vote vote : votes) {
-			if(!vote.getChoices().isEmpty()) {
-				//ensure that the current choice has been reset
-				vote.resetCurrentChoice();
-				
-				String currFaction = vote.getChoice();
-				double newCount = currentVoteCounts.get(currFaction)+vote.getWeight();
-				currentVoteCounts.put(currFaction, newCount);
+		System.out.println();
+		if(report.getDropRate() > 0) {
+			System.out.println("Resampling: " + resamples + " resamples, each dropping " + formatPercent(report.getDropRate()) + " of ballots at random");
+		} else {
+			System.out.println("Resampling: " + resamples + " bootstrap resamples");
+		}
+		System.out.println("These winners won " + formatPercent(report.getWinnerSetCount(winners) / (double) resamples) + " of resamples.");
+		
+		//every candidate who won any resample, from the most wins down
+		System.out.println("Share of resamples won by each candidate:");
+		ArrayList<Integer> ranked = new ArrayList<>();
+		for(int candidate=0; candidate<candidates.size(); candidate++) {
+			if(report.getWinCount(candidate) > 0) {
+				ranked.add(candidate);
 			}
 		}
+		ranked.sort((a, b) -> Integer.compare(report.getWinCount(b), report.getWinCount(a)));
+		for(int candidate : ranked) {
+			System.out.println(candidates.getName(candidate) + ": " + formatPercent(report.getWinCount(candidate) / (double) resamples));
+		}
+		
+		//only the sets that won most often, as a close contest can have a long tail of sets that won once or twice
+		List<List<Integer>> winnerSets = report.getWinnerSets();
+		System.out.println("Share of resamples won by each set of winners:");
+		for(List<Integer> winnerSet : winnerSets.subList(0, Math.min(winnerSets.size(), MAX_PRINTED_WINNER_SETS))) {
+			System.out.println(candidateNames(candidates, winnerSet) + ": " + formatPercent(report.getWinnerSetCount(winnerSet) / (double) resamples));
+		}
+		if(winnerSets.size() > MAX_PRINTED_WINNER_SETS) {
+			System.out.println("and " + (winnerSets.size() - MAX_PRINTED_WINNER_SETS) + " other sets of winners.");
+		}
+		
+		//the margin is the weakest winner's lead over the strongest loser in the last round a loser was still in
+		System.out.println("Last seat margin, as a share of ballots:");
+		StringBuilder percentiles = new StringBuilder();
+		for(int percentile : new int[] {0, 5, 25, 50, 75, 95, 100}) {
+			String label = percentile == 0 ? "min" : percentile == 50 ? "median" : percentile == 100 ? "max" : percentile + "%";
+			percentiles.append(label).append(": ").append(formatPercent(report.getMarginPercentile(percentile))).append(" | ");
+		}
+		System.out.println(percentiles);
 	}
 	
 	/**
-	 * Eliminates the specified candidate and redistributes every vote that currently is counting for that candidate with a weight of 1.0
-	 * 
-	 * @param candidate The candidate to eliminate
+	 * Format a share as a percentage, for output
+	 *
+	 * @param share - double - the share, from 0 to 1
+	 * @return String - the percentage, to 2 decimal places
 	 */
-	private static void eliminateCandidate(String candidate) {
-		redistributeVotes(candidate, 1.0);
-		
-		//remove the candidate from the vote counts.
-		System.out.println(candidate + " has been eliminated with " + currentVoteCounts.get(candidate) + " votes.");
-		currentVoteCounts.remove(candidate);
+	private static String formatPercent(double share) {
+		return String.format(Locale.ROOT, "%.2f%%", share * 100);
 	}
 	
 	/**
-	 * Redistribute votes from a candidate to that vote's next candidate with a specified weight
-	 * 
-	 * @param candidate The candidate to redistribute votes from
-	 * @param redistributeAmount The weight of the redistributed votes
+	 * Resolve a list of candidate ids to a comma separated list of their names, for output
+	 *
+	 * @param candidates - CandidateRegistry - the registry the candidate ids refer to
+	 * @param ids - {@code List<Integer>} - the candidate ids
+	 * @return String - the names joined by ", "
 	 */
-	private static void redistributeVotes(String candidate, double redistributeAmount) {
-		for(Vote vote : votes) {
-			
-			//skip the vote if it has no valid candidate choices remaining
-			if(vote.getChoices().isEmpty()) {
-				continue;
-			}
-			
-			//If the vote is currently counting for the candidate to redistribute from
-			if(vote.getChoice().compareTo(candidate) == 0) {
-				//If the vote has another valid choice
-				if(vote.getChoices().size() > vote.getCurrentChoice()+1) {
-					
-					//Set the vote to the next candidate and count the vote for that candidate
-					vote.alterWeight(redistributeAmount);
-					vote.incrementCurrentChoice();
-					String newCandidate = vote.getChoice();
-					double newCount =  Double.sum(currentVoteCounts.get(newCandidate), vote.getWeight());
-					currentVoteCounts.put(newCandidate, newCount);
-				}
-			}
+	private static String candidateNames(CandidateRegistry candidates, List<Integer> ids) {
+		ArrayList<String> names = new ArrayList<>();
+		
+		for(Integer id : ids) {
+			names.add(candidates.getName(id));
 		}
 		
-		for(Vote vote : votes) {
-			vote.eliminateRanking(candidate);
-		}	
+		return String.join(", ", names);
 	}
 }
@@ -0,0 +1,460 @@
+package voteCounter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streams the rows of a vote file straight into a {@link BallotStore}. The file is memory-mapped a window at a time
+ * and each row is tokenized over the mapped bytes, with candidate names resolved to ids through the
+ * {@link CandidateRegistry} without creating a String per field.<br>
+ * <br>
+ * Fields are separated by commas and surrounding whitespace is ignored. A field may be quoted with double quotes, in
+ * which case it may contain commas and a doubled quote stands for a single quote. Quoted fields may not span lines.
+ * Rows that cannot be read are recorded with their line number rather than stopping the parse.<br>
+ * <br>
+ * Since no row spans lines, a large file can be split into line-aligned ranges that are parsed by separate threads,
+ * each into its own store, and merged back in file order. See {@link #parseFile}.
+ */
+public class VoteFileParser {
+
+	//The largest part of the file that is mapped at once. A single row must fit within it
+	static final int WINDOW_SIZE = 1 << 26;
+	//The number of malformed rows that are described individually
+	static final int MAX_REPORTED_ERRORS = 20;
+	//The smallest range of the file worth handing to its own thread
+	static final long MIN_CHUNK_SIZE = 1 << 20;
+	//The number of ranges made per thread, so that threads finishing early can take more work
+	static final int CHUNKS_PER_THREAD = 4;
+
+	private CandidateRegistry candidates;
+	private BallotStore ballots;
+
+	//Reused buffer for the bytes of the current field
+	private byte[] field = new byte[256];
+	//Reused buffer for the candidate ids of the current row
+	private short[] choices = new short[16];
+	//The number of lines read so far, including the header
+	private int lineCount = 0;
+
+	//The total number of malformed rows
+	private int errorCount = 0;
+	//The line number, relative to the start of the parse, of each described malformed row
+	private IntList errorLines = new IntList();
+	//The description of each described malformed row
+	private ArrayList<String> errorMessages = new ArrayList<>();
+
+	public VoteFileParser(CandidateRegistry candidates, BallotStore ballots) {
+		this.candidates = candidates;
+		this.ballots = ballots;
+	}
+
+	/**
+	 * Parse a whole vote file, skipping its header line. With more than one thread the file is split into
+	 * line-aligned ranges that are parsed concurrently, and the resulting stores are merged in file order, so the
+	 * ballots, their groups and the voter side table come out exactly as a single-threaded parse would produce them.
+	 *
+	 * @param channel - FileChannel - the open vote file
+	 * @param candidates - CandidateRegistry - the registered candidates
+	 * @param keepVoters - boolean - true to keep the voter side table
+	 * @param threads - int - the number of threads to parse with
+	 * @param errors - {@code ArrayList<String>} - receives a description of each malformed row
+	 * @return BallotStore - the parsed ballots. Only complete if no errors were added
+	 * @throws IOException if the file could not be read
+	 */
+	public static BallotStore parseFile(FileChannel channel, CandidateRegistry candidates, boolean keepVoters, int threads,
+			ArrayList<String> errors) throws IOException {
+		long[] bounds = splitLines(channel, threads);
+		int chunks = bounds.length - 1;
+		VoteFileParser[] parsers = new VoteFileParser[chunks];
+		BallotStore[] stores = new BallotStore[chunks];
+		
+		for(int i=0; i<chunks; i++) {
+			stores[i] = new BallotStore(keepVoters);
+			parsers[i] = new VoteFileParser(candidates, stores[i]);
+		}
+		
+		if(chunks == 1) {
+			parsers[0].parse(channel, bounds[0], bounds[1], true);
+		} else {
+			//the registry is only read while parsing, so it can be shared by every worker
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			
+			try {
+				ArrayList<Future<Void>> results = new ArrayList<>();
+				
+				for(int i=0; i<chunks; i++) {
+					final int chunk = i;
+					results.add(pool.submit(() -> {
+						parsers[chunk].parse(channel, bounds[chunk], bounds[chunk+1], chunk == 0);
+						return null;
+					}));
+				}
+				
+				for(Future<Void> result : results) {
+					result.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while reading the vote file.");
+			} catch (ExecutionException e) {
+				if(e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw new IOException(e.getCause());
+			} finally {
+				pool.shutdown();
+			}
+		}
+		
+		//merge the chunks in file order, numbering their lines from where the previous chunk ended
+		BallotStore ballots = stores[0];
+		int firstLine = 1;
+		int errorCount = 0;
+		
+		for(int i=0; i<chunks; i++) {
+			if(i > 0) {
+				ballots.addAll(stores[i]);
+				//release the chunk as soon as it has been merged
+				stores[i] = null;
+			}
+			
+			for(int e=0; e<parsers[i].errorMessages.size() && errors.size() < MAX_REPORTED_ERRORS; e++) {
+				errors.add(parsers[i].describeError(e, firstLine));
+			}
+			errorCount += parsers[i].errorCount;
+			firstLine += parsers[i].lineCount;
+		}
+		
+		if(errorCount > errors.size()) {
+			errors.add((errorCount - errors.size()) + " more malformed rows were not listed.");
+		}
+		
+		return ballots;
+	}
+
+	/**
+	 * Parse every row between two offsets of a vote file
+	 *
+	 * @param channel - FileChannel - the open vote file
+	 * @param start - long - the offset of the first byte to parse, which must be the start of a line
+	 * @param end - long - the offset just past the last byte to parse, which must be the end of a line or of the file
+	 * @param skipHeader - boolean - true if the first line is a header rather than a ballot
+	 * @throws IOException if the file could not be read, or a row is longer than the mapping window
+	 */
+	public void parse(FileChannel channel, long start, long end, boolean skipHeader) throws IOException {
+		long position = start;
+		boolean headerPending = skipHeader;
+
+		while(position < end) {
+			long windowEnd = Math.min(end, position + WINDOW_SIZE);
+			MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowEnd - position);
+			int limit = window.limit();
+
+			//Unless this window reaches the end of the range, stop it after the last complete line
+			if(windowEnd < end) {
+				limit = lastLineEnd(window, limit);
+
+				if(limit == 0) {
+					throw new IOException("Line " + (lineCount + 1) + " is longer than " + WINDOW_SIZE + " bytes.");
+				}
+			}
+
+			int i = 0;
+			if(headerPending) {
+				i = skipLine(window, 0, limit);
+				lineCount++;
+				headerPending = false;
+			}
+
+			while(i < limit) {
+				lineCount++;
+				i = parseRow(window, i, limit);
+			}
+
+			position += limit;
+		}
+	}
+
+	/**
+	 * Getter for the number of lines read
+	 *
+	 * @return int - the number of lines, including the header
+	 */
+	public int getLineCount() {
+		return lineCount;
+	}
+
+	/**
+	 * Getter for the number of malformed rows
+	 *
+	 * @return int - the number of rows that could not be read
+	 */
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * Describe the malformed rows, up to {@code MAX_REPORTED_ERRORS} of them
+	 *
+	 * @param firstLineNumber - int - the line number in the file of the first line this parser read
+	 * @return {@code ArrayList<String>} - a description of each malformed row with its line number
+	 */
+	public ArrayList<String> getErrors(int firstLineNumber) {
+		ArrayList<String> errors = new ArrayList<>();
+
+		for(int i=0; i<errorMessages.size(); i++) {
+			errors.add(describeError(i, firstLineNumber));
+		}
+
+		if(errorCount > errorMessages.size()) {
+			errors.add((errorCount - errorMessages.size()) + " more malformed rows were not listed.");
+		}
+
+		return errors;
+	}
+
+	/**
+	 * Describe a recorded malformed row
+	 *
+	 * @return String - the description, prefixed with the row's line number in the file
+	 */
+	private String describeError(int index, int firstLineNumber) {
+		return "Line " + (firstLineNumber + errorLines.get(index) - 1) + ": " + errorMessages.get(index);
+	}
+
+	/**
+	 * Split a file into ranges that each start at the beginning of a line
+	 *
+	 * @return long[] - the offsets bounding each range, starting with 0 and ending with the size of the file
+	 */
+	private static long[] splitLines(FileChannel channel, int threads) throws IOException {
+		long size = channel.size();
+		long chunkSize = Math.max(MIN_CHUNK_SIZE, size / Math.max(1, threads * CHUNKS_PER_THREAD));
+		
+		if(threads <= 1 || size <= chunkSize) {
+			return new long[] {0, size};
+		}
+		
+		ArrayList<Long> bounds = new ArrayList<>();
+		bounds.add(0L);
+		ByteBuffer probe = ByteBuffer.allocate(4096);
+		long position = chunkSize;
+		
+		//move each tentative boundary forward to just past the next newline
+		while(position < size) {
+			long lineEnd = -1;
+			
+			while(lineEnd == -1 && position < size) {
+				probe.clear();
+				int read = channel.read(probe, position);
+				if(read <= 0) {
+					break;
+				}
+				
+				for(int i=0; i<read; i++) {
+					if(probe.get(i) == '\n') {
+						lineEnd = position + i + 1;
+						break;
+					}
+				}
+				position += read;
+			}
+			
+			if(lineEnd == -1 || lineEnd >= size) {
+				break;
+			}
+			
+			bounds.add(lineEnd);
+			position = lineEnd + chunkSize;
+		}
+		bounds.add(size);
+		
+		long[] result = new long[bounds.size()];
+		for(int i=0; i<result.length; i++) {
+			result[i] = bounds.get(i);
+		}
+		
+		return result;
+	}
+
+	/**
+	 * Parse a single row and store its ballot
+	 *
+	 * @return int - the index just past the end of the row
+	 */
+	private int parseRow(MappedByteBuffer buffer, int i, int limit) {
+		int length = 0;
+		int fieldIndex = 0;
+		String voter = null;
+
+		while(true) {
+			//skip leading whitespace
+			while(i < limit && isWhitespace(buffer.get(i))) {
+				i++;
+			}
+
+			int fieldLength = 0;
+
+			if(i < limit && buffer.get(i) == '"') {
+				//read a quoted field up to its closing quote
+				i++;
+				while(true) {
+					if(i >= limit || buffer.get(i) == '\n') {
+						return reject("Unterminated quoted field.", buffer, i, limit);
+					}
+
+					byte b = buffer.get(i++);
+					if(b == '"') {
+						if(i < limit && buffer.get(i) == '"') {
+							//a doubled quote is a literal quote
+							i++;
+						} else {
+							break;
+						}
+					}
+
+					fieldLength = append(fieldLength, b);
+				}
+
+				//only whitespace may follow the closing quote
+				while(i < limit && isWhitespace(buffer.get(i))) {
+					i++;
+				}
+				if(i < limit && buffer.get(i) != ',' && buffer.get(i) != '\n') {
+					return reject("Unexpected text after a quoted field.", buffer, i, limit);
+				}
+			} else {
+				//read an unquoted field, then trim its trailing whitespace
+				while(i < limit) {
+					byte b = buffer.get(i);
+					if(b == ',' || b == '\n') {
+						break;
+					}
+
+					fieldLength = append(fieldLength, b);
+					i++;
+				}
+
+				while(fieldLength > 0 && isWhitespace(field[fieldLength-1])) {
+					fieldLength--;
+				}
+			}
+
+			boolean lastField = i >= limit || buffer.get(i) == '\n';
+
+			if(fieldIndex == 0) {
+				if(fieldLength == 0) {
+					//blank lines are not ballots
+					if(lastField) {
+						return i + 1;
+					}
+					return reject("Missing voter name.", buffer, i, limit);
+				}
+
+				//the voter name is only needed if it is kept for auditing
+				if(ballots.hasVoters()) {
+					voter = new String(field, 0, fieldLength, StandardCharsets.UTF_8);
+				}
+			} else if(fieldLength > 0) {
+				int id = candidates.getId(field, 0, fieldLength);
+
+				if(id == -1) {
+					String name = new String(field, 0, fieldLength, StandardCharsets.UTF_8);
+					return reject("Unknown candidate: " + name, buffer, i, limit);
+				}
+
+				if(length == choices.length) {
+					choices = Arrays.copyOf(choices, length*2);
+				}
+				choices[length++] = (short) id;
+			}
+
+			fieldIndex++;
+
+			if(lastField) {
+				break;
+			}
+
+			//step over the comma
+			i++;
+		}
+
+		ballots.add(voter, choices, length);
+
+		return i + 1;
+	}
+
+	/**
+	 * Append a byte to the field buffer, growing it as needed
+	 *
+	 * @return int - the new length of the field
+	 */
+	private int append(int fieldLength, byte b) {
+		if(fieldLength == field.length) {
+			field = Arrays.copyOf(field, fieldLength*2);
+		}
+
+		field[fieldLength] = b;
+		return fieldLength + 1;
+	}
+
+	/**
+	 * Record a malformed row and skip the rest of it
+	 *
+	 * @return int - the index just past the end of the row
+	 */
+	private int reject(String message, MappedByteBuffer buffer, int i, int limit) {
+		errorCount++;
+
+		if(errorMessages.size() < MAX_REPORTED_ERRORS) {
+			errorLines.add(lineCount);
+			errorMessages.add(message);
+		}
+
+		return skipLine(buffer, i, limit);
+	}
+
+	/**
+	 * Find the end of the line containing an index
+	 *
+	 * @return int - the index just past the line's newline, or the limit if there is none
+	 */
+	private static int skipLine(MappedByteBuffer buffer, int i, int limit) {
+		while(i < limit && buffer.get(i) != '\n') {
+			i++;
+		}
+
+		return Math.min(i + 1, limit);
+	}
+
+	/**
+	 * Find the end of the last complete line before a limit
+	 *
+	 * @return int - the index just past the last newline, or 0 if there is none
+	 */
+	private static int lastLineEnd(MappedByteBuffer buffer, int limit) {
+		for(int i=limit-1; i>=0; i--) {
+			if(buffer.get(i) == '\n') {
+				return i + 1;
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Check for an ASCII space or control character other than the newline that ends a row
+	 */
+	private static boolean isWhitespace(byte b) {
+		return b >= 0 && b <= ' ' && b != '\n';
+	}
+}